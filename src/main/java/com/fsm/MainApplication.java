@@ -1,5 +1,9 @@
 package com.fsm;
 
+import com.fsm.database.CascadeDeleteJob;
+import com.fsm.database.ResponseFormatMigration;
+import com.fsm.database.MongoManager;
+import com.fsm.database.ResponseSubmissionQueue;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -19,9 +23,34 @@ public class MainApplication extends Application {
     @Override
     public void start(Stage stage) throws IOException {
         primaryStage = stage; // Store the primary stage reference
+
+        // Make sure the indexes exist; in diagnostic mode this throws if a hot query would COLLSCAN
+        MongoManager.getInstance().bootstrapIndexes();
+
+        // Start the write-behind response queue (replays responses that were not yet sent)
+        try {
+            ResponseSubmissionQueue.getInstance().start();
+        } catch (IOException e) {
+            System.err.println("❌ ERROR: Could not open the response journal: " + e.getMessage());
+        }
+
+        // Resume removing the responses of deleted surveys where the last run stopped
+        CascadeDeleteJob.getInstance().start();
+        // Convert old-format responses to the compact v2 format in the background (resumable)
+        ResponseFormatMigration.getInstance().start();
+
         showLoginScreen(null); // Load the login screen initially
     }
 
+    @Override
+    public void stop() {
+        // The current cascade-delete batch is checkpointed; the job continues on the next start
+        CascadeDeleteJob.getInstance().shutdown();
+        ResponseFormatMigration.getInstance().shutdown();
+        // Give queued responses a last chance to reach the database; the rest stay in the journal
+        ResponseSubmissionQueue.getInstance().shutdown(5000);
+    }
+
     /**
      * Loads the Login View and displays it in a new stage.
      * If an old window is provided, it is closed first.
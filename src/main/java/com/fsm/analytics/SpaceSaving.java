@@ -0,0 +1,106 @@
+package com.fsm.analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Most frequent strings of a stream in fixed memory (Metwally et al., "Space-Saving").
+ * At most 'capacity' counters are kept. When a new string arrives and all counters are taken, it
+ * replaces the least frequent one and inherits its count; the inherited part is kept as the error.
+ * Every string that occurs more than N / capacity times is guaranteed to be tracked, and a
+ * tracked count overestimates the true count by at most its error.
+ */
+public class SpaceSaving {
+
+    // -----------------------------------------------------------
+    // Nested Model Class: One ranked string with its (over)estimated count
+    // -----------------------------------------------------------
+    public static class Entry {
+        private final String value;
+        private final long count;
+        private final long error;
+
+        Entry(String value, long count, long error) {
+            this.value = value;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getValue() { return value; }
+        /** Upper bound of the true count. */
+        public long getCount() { return count; }
+        /** How much of the count may come from evicted strings (0 means exact). */
+        public long getError() { return error; }
+    }
+    // -----------------------------------------------------------
+
+    private static final class Counter {
+        final String value;
+        long count;
+        long error;
+        final long order; // Tie-breaker for the ordered set: first seen first
+
+        Counter(String value, long count, long error, long order) {
+            this.value = value;
+            this.count = count;
+            this.error = error;
+            this.order = order;
+        }
+    }
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    // Ordered by count, so the eviction victim (the minimum) is found in O(log capacity)
+    private final TreeSet<Counter> byCount = new TreeSet<>(
+            Comparator.<Counter>comparingLong(c -> c.count).thenComparingLong(c -> c.order));
+    private long nextOrder;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("SpaceSaving capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void add(String value) {
+        Counter counter = counters.get(value);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count++;
+            byCount.add(counter);
+            return;
+        }
+
+        if (counters.size() < capacity) {
+            counter = new Counter(value, 1, 0, nextOrder++);
+        } else {
+            Counter victim = byCount.pollFirst();
+            counters.remove(victim.value);
+            counter = new Counter(value, victim.count + 1, victim.count, nextOrder++);
+        }
+        counters.put(value, counter);
+        byCount.add(counter);
+    }
+
+    /**
+     * @return Up to k entries, most frequent first.
+     */
+    public List<Entry> top(int k) {
+        List<Entry> top = new ArrayList<>(Math.min(k, counters.size()));
+        for (Counter counter : byCount.descendingSet()) {
+            if (top.size() == k) break;
+            top.add(new Entry(counter.value, counter.count, counter.error));
+        }
+        return top;
+    }
+
+    /**
+     * @return Every tracked entry, most frequent first (at most 'capacity').
+     */
+    public List<Entry> entries() {
+        return top(counters.size());
+    }
+}
@@ -0,0 +1,127 @@
+package com.fsm.analytics;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * One-pass summary of free-text (TEXT_INPUT) answers in fixed memory, for any number of responses:
+ *  - approximate distinct answers and distinct words (HyperLogLog, 16 KB each);
+ *  - the most frequent answers and words (Space-Saving, a few hundred counters each).
+ * Answers are normalized first so that "Yes", " yes." and "YES" count as the same answer.
+ * Not thread-safe: feed it from one cursor.
+ */
+public class TextAnswerAnalyzer {
+
+    /** Counters kept per Space-Saving sketch; a multiple of the reported top-k keeps the ranks reliable. */
+    private static final int COUNTERS_PER_RESULT = 10;
+    private static final int MIN_TOKEN_LENGTH = 3;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // Common English words that would otherwise fill the top of the word ranking
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "and", "for", "are", "but", "not", "you", "all", "any", "can", "had", "her", "was", "one",
+            "our", "out", "has", "him", "his", "how", "its", "may", "who", "did", "get", "too", "use", "she",
+            "they", "them", "their", "there", "then", "than", "that", "this", "these", "those", "with", "from",
+            "have", "been", "were", "what", "when", "where", "which", "will", "would", "could", "should",
+            "very", "just", "also", "into", "about", "more", "some", "such", "only", "your", "yours");
+
+    // -----------------------------------------------------------
+    // Nested Model Class: Summary of a question's text answers
+    // -----------------------------------------------------------
+    public static class Result {
+        private final long answerCount;
+        private final long distinctAnswers;
+        private final long distinctTokens;
+        private final List<SpaceSaving.Entry> topAnswers;
+        private final List<SpaceSaving.Entry> topTokens;
+
+        Result(long answerCount, long distinctAnswers, long distinctTokens,
+               List<SpaceSaving.Entry> topAnswers, List<SpaceSaving.Entry> topTokens) {
+            this.answerCount = answerCount;
+            this.distinctAnswers = distinctAnswers;
+            this.distinctTokens = distinctTokens;
+            this.topAnswers = topAnswers;
+            this.topTokens = topTokens;
+        }
+
+        /** Non-empty answers seen (exact). */
+        public long getAnswerCount() { return answerCount; }
+        /** Approximate number of different normalized answers. */
+        public long getDistinctAnswers() { return distinctAnswers; }
+        /** Approximate number of different words (stop words excluded). */
+        public long getDistinctTokens() { return distinctTokens; }
+        public List<SpaceSaving.Entry> getTopAnswers() { return topAnswers; }
+        public List<SpaceSaving.Entry> getTopTokens() { return topTokens; }
+    }
+    // -----------------------------------------------------------
+
+    private final int topK;
+    private final HyperLogLog distinctAnswers = new HyperLogLog();
+    private final HyperLogLog distinctTokens = new HyperLogLog();
+    private final SpaceSaving frequentAnswers;
+    private final SpaceSaving frequentTokens;
+    private long answerCount;
+
+    /**
+     * @param topK Number of answers and words to report.
+     */
+    public TextAnswerAnalyzer(int topK) {
+        this.topK = topK;
+        this.frequentAnswers = new SpaceSaving(topK * COUNTERS_PER_RESULT);
+        this.frequentTokens = new SpaceSaving(topK * COUNTERS_PER_RESULT);
+    }
+
+    public void add(String answer) {
+        String normalized = normalize(answer);
+        if (normalized.isEmpty()) return;
+
+        answerCount++;
+        distinctAnswers.add(normalized);
+        frequentAnswers.add(normalized);
+
+        for (String token : NON_WORD.split(normalized)) {
+            if (token.length() < MIN_TOKEN_LENGTH || STOP_WORDS.contains(token)) continue;
+            distinctTokens.add(token);
+            frequentTokens.add(token);
+        }
+    }
+
+    public Result result() {
+        return new Result(answerCount, distinctAnswers.estimate(), distinctTokens.estimate(),
+                reliableTop(frequentAnswers), reliableTop(frequentTokens));
+    }
+
+    /**
+     * The top k entries, leaving out those that may have been seen only once: once the sketch is full, a
+     * value that appears a single time inherits the count of the value it evicted and would otherwise rank
+     * high. Filtered before taking k, so the dropped entries make room for the next reliable ones.
+     */
+    private List<SpaceSaving.Entry> reliableTop(SpaceSaving sketch) {
+        return sketch.entries().stream()
+                .filter(entry -> entry.getError() == 0 || entry.getCount() - entry.getError() > 1)
+                .limit(topK)
+                .toList();
+    }
+
+    /**
+     * Lower case, accents removed, punctuation at the ends dropped and inner whitespace collapsed.
+     */
+    static String normalize(String answer) {
+        if (answer == null) return "";
+        String text = Normalizer.normalize(answer, Normalizer.Form.NFD);
+        text = DIACRITICS.matcher(text).replaceAll("").toLowerCase(Locale.ROOT);
+        text = WHITESPACE.matcher(text).replaceAll(" ").trim();
+
+        int start = 0;
+        int end = text.length();
+        while (start < end && !Character.isLetterOrDigit(text.charAt(start))) start++;
+        while (end > start && !Character.isLetterOrDigit(text.charAt(end - 1))) end--;
+        return text.substring(start, end);
+    }
+}
@@ -1,19 +1,19 @@
 package com.fsm.controllers;
 
 import com.fsm.database.MongoManager;
+import com.fsm.database.SurveyRepository;
 import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.MongoCollection;
-import org.bson.Document;
+import org.bson.types.ObjectId;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.TextField;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Button;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
 import javafx.stage.Stage;
 
-import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.Updates;
-import static com.fsm.controllers.SurveyController.Survey;
+import static com.fsm.controllers.SurveyController.SurveyRow;
 
 public class AddSurveyController {
 
@@ -23,7 +23,7 @@ public class AddSurveyController {
     @FXML private Button btnCancel;
 
     private SurveyController parentController;
-    private String originalSurveyName;
+    private String originalSurveyId; // Set in EDIT mode; every write is keyed on it
 
     // Field to store the username of the person creating/editing the survey
     private String creatorUsername;
@@ -46,12 +46,12 @@ public class AddSurveyController {
         System.out.println("AddSurveyController received creator username: " + username);
     }
 
-    public void initData(SurveyController parent, Survey surveyToEdit) {
+    public void initData(SurveyController parent, SurveyRow surveyToEdit) {
         this.parentController = parent;
 
         // If a survey is passed, enter EDIT mode
         if (surveyToEdit != null) {
-            this.originalSurveyName = surveyToEdit.getName();
+            this.originalSurveyId = surveyToEdit.getId();
 
             // Set the creatorUsername from the existing survey data
             // This ensures we don't accidentally overwrite the creator in EDIT mode
@@ -83,27 +83,37 @@ public class AddSurveyController {
             return;
         }
 
+        // PERFORMANCE FIX: Use the Singleton instance to get the shared database connection
+        MongoDatabase db = MongoManager.getInstance().getDatabase();
+        if (db == null) {
+            System.err.println("FATAL: Cannot connect to DB to save survey.");
+            return;
+        }
+
         // Check if we are in EDIT mode or ADD mode
-        if (originalSurveyName != null) {
-            // EDIT MODE
-            // The original creatorUsername is retained from initData
-            if (updateSurveyInMongo(name, status)) {
-                System.out.println("Survey updated successfully: " + name);
-            }
+        SurveyRepository.WriteResult result;
+        if (originalSurveyId != null) {
+            // EDIT MODE: matched by _id; the creator is never changed here
+            result = SurveyRepository.updateDetails(db, new ObjectId(originalSurveyId), name, status);
         } else {
-            // ADD MODE
-            int numQuestions = 0;
-            Document surveyDoc = new Document()
-                    .append("name", name)
-                    .append("status", status)
-                    .append("numQuestions", numQuestions)
-                    // Append the creator's username when creating a new survey
-                    .append("creator", creatorUsername)
-                    .append("dateCreated", new java.util.Date());
-
-            if (insertSurveyIntoMongo(surveyDoc)) {
+            // ADD MODE: the creator's username is stored with the new survey
+            result = SurveyRepository.create(db, name, status, creatorUsername);
+        }
+
+        switch (result) {
+            case SAVED:
                 System.out.println("Survey saved successfully: " + name);
-            }
+                break;
+            case DUPLICATE_NAME:
+                // Keep the form open so the user can pick another name
+                showAlert(AlertType.WARNING, "Duplicate Name", "A survey named '" + name + "' already exists. Please choose another name.");
+                return;
+            case NOT_FOUND:
+                showAlert(AlertType.ERROR, "Survey Not Found", "This survey no longer exists. It may have been deleted by another user.");
+                break;
+            default:
+                showAlert(AlertType.ERROR, "Save Failed", "Failed to save the survey to the database.");
+                return;
         }
 
         // Final steps are the same for both
@@ -113,57 +123,12 @@ public class AddSurveyController {
         closeWindow();
     }
 
-    /**
-     * Executes the MongoDB update operation using the Singleton connection.
-     */
-    private boolean updateSurveyInMongo(String newName, String newStatus) {
-        // PERFORMANCE FIX: Use the Singleton instance to get the shared database connection
-        MongoDatabase db = MongoManager.getInstance().getDatabase();
-        if (db == null) {
-            System.err.println("FATAL: Cannot connect to DB to update survey.");
-            return false;
-        }
-        try {
-            MongoCollection<Document> collection = db.getCollection("surveys");
-
-            // 1. Define the filter (find the document by its ORIGINAL name)
-            org.bson.conversions.Bson filter = Filters.eq("name", originalSurveyName);
-
-            // 2. Define the updates
-            // We do NOT update the 'creator' field in EDIT mode.
-            org.bson.conversions.Bson updates = Updates.combine(
-                    Updates.set("name", newName),
-                    Updates.set("status", newStatus)
-            );
-
-            // 3. Perform the update
-            collection.updateOne(filter, updates);
-
-            return true;
-        } catch (Exception e) {
-            System.err.println("MongoDB Update Error: " + e.getMessage());
-            return false;
-        }
-    }
-
-    /**
-     * Executes the MongoDB insert operation using the Singleton connection.
-     */
-    private boolean insertSurveyIntoMongo(Document doc) {
-        // PERFORMANCE FIX: Use the Singleton instance to get the shared database connection
-        MongoDatabase db = MongoManager.getInstance().getDatabase();
-        if (db == null) {
-            System.err.println("FATAL: Cannot connect to DB to save survey.");
-            return false;
-        }
-        try {
-            MongoCollection<Document> collection = db.getCollection("surveys");
-            collection.insertOne(doc);
-            return true;
-        } catch (Exception e) {
-            System.err.println("MongoDB Insert Error: " + e.getMessage());
-            return false;
-        }
+    private void showAlert(AlertType type, String title, String content) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(content);
+        alert.showAndWait();
     }
 
     private void handleCancel() {
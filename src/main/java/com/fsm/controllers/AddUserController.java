@@ -1,6 +1,7 @@
 package com.fsm.controllers;
 
 import com.fsm.database.MongoManager;
+import com.fsm.database.UserProvisioning;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
@@ -17,6 +18,7 @@ import javafx.scene.control.Alert.AlertType;
 import javafx.stage.Stage;
 import com.mongodb.MongoWriteException;
 
+import com.mongodb.client.model.CountOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Updates;
 import org.bson.conversions.Bson;
@@ -35,7 +37,7 @@ public class AddUserController {
     private String originalRole;          // The role before editing (null in add mode)
     private String currentLoggedInUsername; // The username of the currently logged-in admin
 
-    private static final int MAX_ADMINS = 3; // Enforces the admin limit
+    private static final int MAX_ADMINS = UserProvisioning.MAX_ADMINS; // Enforces the admin limit
 
     @FXML
     public void initialize() {
@@ -279,10 +281,11 @@ public class AddUserController {
         try {
             MongoCollection<Document> collection = db.getCollection("users");
 
-            // Use case-insensitive regex query to find any matching username
-            Bson filter = Filters.regex("username", "^" + java.util.regex.Pattern.quote(username) + "$", "i");
+            // Case-insensitive equality through the collation index (an anchored /i regex cannot use it)
+            Bson filter = Filters.eq("username", username);
 
-            long count = collection.countDocuments(filter);
+            long count = collection.countDocuments(filter,
+                    new CountOptions().collation(MongoManager.CASE_INSENSITIVE).limit(1));
             return count > 0;
         } catch (MongoException e) {
             System.err.println("Error checking for duplicate username: " + e.getMessage());
@@ -1,28 +1,33 @@
 package com.fsm.controllers;
 
-import com.fsm.database.MongoManager;
-import com.mongodb.client.MongoCollection;
-import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.model.Filters;
+import com.fsm.database.QueryScope;
+import com.fsm.database.SurveyDefinitionCache;
+import com.fsm.database.ResponseCsvExporter;
+import com.fsm.database.ResponsePager;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.control.*;
 import javafx.scene.control.Alert.AlertType;
-import javafx.scene.layout.AnchorPane;
+import javafx.scene.control.skin.VirtualFlow;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import org.bson.Document;
+import com.fsm.model.Answer;
+import com.fsm.model.Question;
+import com.fsm.model.Response;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import javafx.event.ActionEvent;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
 
 public class DetailedReportController {
@@ -31,90 +36,112 @@ public class DetailedReportController {
     @FXML private TableView<Map<String, String>> responseTable;
     @FXML private Button btnBack;
     @FXML private Button btnExport;
+    @FXML private DatePicker dpFrom;
+    @FXML private DatePicker dpTo;
+    @FXML private Label lblRowInfo;
+    @FXML private ProgressBar exportProgress;
+    @FXML private Button btnCancelExport;
 
     private String surveyId;
     private String surveyName;
+    private List<Question> surveyQuestions = List.of();
 
-    // NEW: Fields to store user context needed for proper navigation/re-initialization
-    private String currentUserRole;
-    private String currentUsername;
+    // Back navigation, set by MainDashboardController
+    private Runnable onBack;
 
     // Data storage for the export functionality
     private List<String> columnKeys = new ArrayList<>();
-    private ObservableList<Map<String, String>> tableData = FXCollections.observableArrayList();
+    // Only a bounded window of rows is kept; more pages are fetched as the user scrolls
+    private final ObservableList<Map<String, String>> tableData = FXCollections.observableArrayList();
+
+    // --- Paging window configuration ---
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_WINDOW_ROWS = 1000;
+    // Hidden row keys holding the (timestamp, _id) seek key of each row; never shown or exported
+    private static final String ROW_ID = "_id";
+    private static final String ROW_TS = "_ts";
+
+    private ResponsePager pager;
+    private boolean hasMoreAfter;
+    private boolean hasMoreBefore;
+    private long totalInRange = -1;
+    private boolean newestFirst = false;
+    private TableColumn<Map<String, String>, String> timestampColumn;
+
+    // The CSV export currently running, if any
+    private ResponseCsvExporter activeExport;
+
+    // Background queries owned by this view
+    private final QueryScope queryScope = new QueryScope();
 
     @FXML
     public void initialize() {
-        // Initialization can be minimal since data loading depends on initData
+        // Initialization can be minimal since data loading depends on initData.
+        // Cancel any pending background query once this view is navigated away from.
+        queryScope.bindTo(responseTable);
+        responseTable.setItems(tableData);
+
+        // Sorting is done by the server (only the timestamp column is sortable)
+        responseTable.setSortPolicy(table -> {
+            handleServerSort();
+            return true;
+        });
+
+        // The VirtualFlow only exists once the table skin is created
+        responseTable.skinProperty().addListener((obs, oldSkin, newSkin) -> attachScrollListener());
     }
 
     /**
-     * Called by ReportController to pass the necessary survey context.
-     * Updated to also accept user role/username, although we don't strictly need them
-     * in the detailed view, they are necessary for the back navigation.
+     * Called by MainDashboardController to pass the necessary survey context.
      */
     public void initData(String surveyId, String surveyName) {
         this.surveyId = surveyId;
         this.surveyName = surveyName;
         lblSurveyName.setText("Detailed Responses for: " + surveyName);
         loadDetailedResponses();
-
-        // TEMPORARY FIX: We need a way to pass user context through a static helper or singleton
-        // or refactor the MainController to pass it here initially. Since we don't have
-        // the full context chain, we'll try to retrieve the user details from the root parent.
-        // If the ReportController passed user info, we'd add it here:
-        // public void initData(String surveyId, String surveyName, String userRole, String username) { ... }
-
-        // Since the ReportController didn't pass user context previously, we must assume a default
-        // or accept a wider set of parameters in the `initData` above.
-        // For now, let's assume the user context fields are set by a parent call or are managed
-        // at the higher level, but we will make the `handleBack` call robust.
     }
 
-    // NEW: Setter for user context (allows the calling ReportController to pass data back)
-    public void setUserContext(String userRole, String username) {
-        this.currentUserRole = userRole;
-        this.currentUsername = username;
+    /**
+     * Sets what the Back button does (MainDashboardController returns to the cached Reports screen).
+     */
+    public void setOnBack(Runnable onBack) {
+        this.onBack = onBack;
     }
 
 
     /**
-     * Loads the survey questions and then fetches the responses, dynamically building the table.
+     * Loads the survey questions to build the columns, then starts paging through the responses.
+     * The queries run in the background; the table shows a loading state until they return.
      */
     private void loadDetailedResponses() {
-        // FIX: Use MongoManager.getInstance().getDatabase()
-        MongoDatabase db = MongoManager.getInstance().getDatabase();
-        if (db == null) return;
-
         responseTable.getColumns().clear();
-        responseTable.getItems().clear();
         columnKeys.clear();
         tableData.clear();
+        responseTable.setPlaceholder(QueryScope.loadingPlaceholder("Loading responses..."));
 
-        try {
+        queryScope.load("definition", db -> {
             // 1. Fetch the survey structure to get the question list
-            MongoCollection<Document> surveyCollection = db.getCollection("surveys");
-            Document surveyDoc = surveyCollection.find(Filters.eq("_id", new ObjectId(surveyId))).first();
-
-            if (surveyDoc == null) {
+            return SurveyDefinitionCache.get(db, surveyId);
+        }, survey -> {
+            if (survey == null) {
                 lblSurveyName.setText("Error: Survey not found.");
+                responseTable.setPlaceholder(new Label("Survey not found."));
                 return;
             }
-
-            List<Document> questions = surveyDoc.getList("questions", Document.class, new ArrayList<>());
+            // The pager decodes the responses with these questions' option dictionaries
+            surveyQuestions = survey.questions();
 
             // Map: Key = Question ID (from DB), Value = Question Text (for Column Header)
             Map<String, String> questionMap = new LinkedHashMap<>();
             questionMap.put("Timestamp", "Submission Date"); // Always add a timestamp column
 
-            for (Document q : questions) {
-                questionMap.put(q.getString("id"), q.getString("text"));
+            for (Question q : survey.questions()) {
+                questionMap.put(q.id(), q.text());
             }
 
             // Store the list of keys (IDs) for CSV generation
             columnKeys.addAll(questionMap.keySet());
 
-
             // 2. Dynamically create TableColumns
             for (Map.Entry<String, String> entry : questionMap.entrySet()) {
                 String colId = entry.getKey();
@@ -136,54 +163,240 @@ public class DetailedReportController {
                 // Set column width based on whether it's the Timestamp or a question
                 if (colId.equals("Timestamp")) {
                     column.setPrefWidth(150);
+                    timestampColumn = column;
                 } else {
                     column.setPrefWidth(250);
+                    // Only the timestamp can be sorted server-side
+                    column.setSortable(false);
                 }
 
                 responseTable.getColumns().add(column);
             }
 
-            // 3. Fetch all responses for this survey
-            MongoCollection<Document> responseCollection = db.getCollection("responses");
-            ObservableList<Map<String, String>> tableRows = FXCollections.observableArrayList();
+            // 3. Fetch the first page of responses
+            resetPaging();
+        }, error -> {
+            System.err.println("Error loading detailed report data: " + error.getMessage());
+            error.printStackTrace();
+            responseTable.setPlaceholder(new Label("Could not load responses. Check the database connection."));
+        });
+    }
 
-            for (Document responseDoc : responseCollection.find(Filters.eq("survey_id", new ObjectId(surveyId)))) {
-                Map<String, String> row = new HashMap<>();
+    /**
+     * Drops the current window and fetches the first page for the current sort and date filter.
+     */
+    private void resetPaging() {
+        queryScope.cancel("page");
+        tableData.clear();
+        hasMoreAfter = false;
+        hasMoreBefore = false;
+        totalInRange = -1;
+        responseTable.setPlaceholder(QueryScope.loadingPlaceholder("Loading responses..."));
+
+        ResponsePager currentPager = new ResponsePager(surveyId, surveyQuestions, fromDate(), toDate(), newestFirst);
+        pager = currentPager;
+
+        // Fetch one extra row to know whether another page exists
+        queryScope.loadReport("page", db -> currentPager.fetchFirst(db, PAGE_SIZE + 1), docs -> {
+            hasMoreAfter = docs.size() > PAGE_SIZE;
+            tableData.setAll(toRows(docs.subList(0, Math.min(docs.size(), PAGE_SIZE))));
+            responseTable.scrollTo(0);
+            responseTable.setPlaceholder(new Label("No responses found for the selected range."));
+            updateRowInfo();
+        }, this::handlePageError);
+
+        queryScope.loadReport("count", db -> db.getCollection("responses").countDocuments(currentPager.rangeFilter()), count -> {
+            totalInRange = count;
+            updateRowInfo();
+        }, error -> System.err.println("Error counting responses: " + error.getMessage()));
+    }
 
-                // Add timestamp first
-                Date timestamp = responseDoc.getDate("timestamp");
-                row.put("Timestamp", timestamp != null ? timestamp.toString() : "N/A");
+    /**
+     * Appends the page after the last row of the window, trimming rows from the top if the window is full.
+     */
+    private void loadNextPage() {
+        if (!hasMoreAfter || tableData.isEmpty() || queryScope.isLoading("page")) return;
+
+        Map<String, String> edge = tableData.get(tableData.size() - 1);
+        ResponsePager currentPager = pager;
+
+        queryScope.loadReport("page", db -> currentPager.fetchAfter(db, edgeTimestamp(edge), edgeId(edge), PAGE_SIZE + 1), docs -> {
+            // Ignore the page if the window moved while it was loading
+            if (currentPager != pager || tableData.isEmpty() || tableData.get(tableData.size() - 1) != edge) return;
+            hasMoreAfter = docs.size() > PAGE_SIZE;
+
+            int firstVisible = firstVisibleIndex();
+            tableData.addAll(toRows(docs.subList(0, Math.min(docs.size(), PAGE_SIZE))));
+
+            int overflow = tableData.size() - MAX_WINDOW_ROWS;
+            if (overflow > 0) {
+                tableData.remove(0, overflow);
+                hasMoreBefore = true;
+                // Keep the same rows on screen after dropping from the top
+                responseTable.scrollTo(Math.max(0, firstVisible - overflow));
+            }
+            updateRowInfo();
+        }, this::handlePageError);
+    }
 
-                // Process answers array
-                List<Document> answers = responseDoc.getList("answers", Document.class, new ArrayList<>());
-                for (Document answerDoc : answers) {
-                    String qId = answerDoc.getString("question_id");
-                    Object answer = answerDoc.get("answer");
+    /**
+     * Prepends the page before the first row of the window, trimming rows from the bottom if the window is full.
+     */
+    private void loadPreviousPage() {
+        if (!hasMoreBefore || tableData.isEmpty() || queryScope.isLoading("page")) return;
+
+        Map<String, String> edge = tableData.get(0);
+        ResponsePager currentPager = pager;
+
+        queryScope.loadReport("page", db -> currentPager.fetchBefore(db, edgeTimestamp(edge), edgeId(edge), PAGE_SIZE + 1), docs -> {
+            // Ignore the page if the window moved while it was loading
+            if (currentPager != pager || tableData.isEmpty() || tableData.get(0) != edge) return;
+            hasMoreBefore = docs.size() > PAGE_SIZE;
+
+            // fetchBefore returns rows in display order; the extra row is the oldest one
+            List<Response> page = docs.subList(Math.max(0, docs.size() - PAGE_SIZE), docs.size());
+            int firstVisible = firstVisibleIndex();
+            tableData.addAll(0, toRows(page));
+            // Keep the same rows on screen after inserting above them
+            responseTable.scrollTo(firstVisible + page.size());
+
+            int overflow = tableData.size() - MAX_WINDOW_ROWS;
+            if (overflow > 0) {
+                tableData.remove(tableData.size() - overflow, tableData.size());
+                hasMoreAfter = true;
+            }
+            updateRowInfo();
+        }, this::handlePageError);
+    }
 
-                    if (qId != null && answer != null) {
-                        row.put(qId, answer.toString());
-                    }
+    private void handlePageError(Throwable error) {
+        System.err.println("Error loading response page: " + error.getMessage());
+        responseTable.setPlaceholder(new Label("Could not load responses. Check the database connection."));
+    }
+
+    /**
+     * Flattens decoded responses into table rows (Question ID -> display value).
+     */
+    private List<Map<String, String>> toRows(List<Response> responses) {
+        List<Map<String, String>> rows = new ArrayList<>(responses.size());
+        for (Response response : responses) {
+            Map<String, String> row = new HashMap<>();
+
+            // Seek key for paging; a response without a timestamp keeps a null key (it sorts before every date)
+            Date timestamp = response.timestamp();
+            row.put(ROW_ID, response.id().toHexString());
+            row.put(ROW_TS, timestamp != null ? String.valueOf(timestamp.getTime()) : null);
+
+            // Add timestamp first
+            row.put("Timestamp", timestamp != null ? timestamp.toString() : "N/A");
+
+            // v2 responses leave unanswered questions out; show them blank, like v1's stored ""
+            for (String key : columnKeys) {
+                if (!"Timestamp".equals(key)) row.put(key, "");
+            }
+
+            // Process answers array
+            for (Answer answer : response.answers()) {
+                String qId = answer.questionId();
+
+                // A stored null answer has neither text nor choices; leave the cell blank
+                if (qId != null && (answer.text() != null || answer.isMultiChoice())) {
+                    row.put(qId, answer.displayValue());
                 }
+            }
 
-                tableRows.add(row);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Date edgeTimestamp(Map<String, String> row) {
+        String millis = row.get(ROW_TS);
+        return millis != null ? new Date(Long.parseLong(millis)) : null;
+    }
+
+    private static ObjectId edgeId(Map<String, String> row) {
+        return new ObjectId(row.get(ROW_ID));
+    }
+
+    /**
+     * Triggers the next/previous page fetch when the user scrolls near either edge of the window.
+     */
+    private void attachScrollListener() {
+        VirtualFlow<?> flow = (VirtualFlow<?>) responseTable.lookup(".virtual-flow");
+        if (flow == null) return;
+
+        flow.positionProperty().addListener((obs, oldPos, newPos) -> {
+            double position = newPos.doubleValue();
+            if (position > 0.9 && position > oldPos.doubleValue()) {
+                loadNextPage();
+            } else if (position < 0.1 && position < oldPos.doubleValue()) {
+                loadPreviousPage();
             }
+        });
+    }
+
+    private int firstVisibleIndex() {
+        VirtualFlow<?> flow = (VirtualFlow<?>) responseTable.lookup(".virtual-flow");
+        if (flow == null || flow.getFirstVisibleCell() == null) return 0;
+        return flow.getFirstVisibleCell().getIndex();
+    }
 
-            // Store data for export and set to table
-            tableData = tableRows;
-            responseTable.setItems(tableData);
+    /**
+     * Called by the table's sort policy. Re-pages from the server when the timestamp sort direction changes.
+     */
+    private void handleServerSort() {
+        if (timestampColumn == null || pager == null) return;
+
+        boolean descending = responseTable.getSortOrder().contains(timestampColumn)
+                && timestampColumn.getSortType() == TableColumn.SortType.DESCENDING;
+        if (descending != newestFirst) {
+            newestFirst = descending;
+            resetPaging();
+        }
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error loading detailed report data: " + e.getMessage());
-            e.printStackTrace();
+    @FXML
+    private void handleApplyFilter() {
+        LocalDate from = dpFrom.getValue();
+        LocalDate to = dpTo.getValue();
+        if (from != null && to != null && from.isAfter(to)) {
+            showAlert(AlertType.WARNING, "Invalid Range", "The 'From' date must not be after the 'To' date.");
+            return;
         }
+        resetPaging();
+    }
+
+    @FXML
+    private void handleClearFilter() {
+        dpFrom.setValue(null);
+        dpTo.setValue(null);
+        resetPaging();
+    }
+
+    private Date fromDate() {
+        LocalDate from = dpFrom.getValue();
+        return from == null ? null : Date.from(from.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private Date toDate() {
+        // The 'To' day is inclusive, so the exclusive bound is the start of the next day
+        LocalDate to = dpTo.getValue();
+        return to == null ? null : Date.from(to.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private void updateRowInfo() {
+        String total = totalInRange >= 0 ? String.valueOf(totalInRange) : "...";
+        lblRowInfo.setText("Rows in view: " + tableData.size() + " of " + total + " matching responses");
     }
 
     /**
      * Handles the action to export the detailed response data to a CSV file.
+     * Exports every response in the current date range, not just the rows loaded in the table.
      */
     @FXML
     private void handleExportCsv() {
-        if (tableData.isEmpty()) {
+        if (tableData.isEmpty() || pager == null) {
             showAlert(AlertType.INFORMATION, "Export Failed", "No responses available to export.");
             return;
         }
@@ -202,48 +415,81 @@ public class DetailedReportController {
         File file = fileChooser.showSaveDialog(stage);
 
         if (file != null) {
-            try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
-
-                // --- 3. Write CSV Headers ---
-                List<String> displayHeaders = new ArrayList<>();
-                for (TableColumn<Map<String, String>, ?> col : responseTable.getColumns()) {
-                    // Ensure the header text itself is properly quoted for CSV
-                    displayHeaders.add("\"" + col.getText().replace("\"", "\"\"") + "\"");
-                }
-
-                writer.println(String.join(",", displayHeaders));
-
-                // --- 4. Write CSV Data Rows ---
-                for (Map<String, String> rowData : tableData) {
-                    StringBuilder dataLine = new StringBuilder();
-                    boolean first = true;
-
-                    // Iterate using the columnKeys list to maintain column order
-                    for (String key : columnKeys) {
-                        if (!first) {
-                            dataLine.append(",");
-                        }
-                        String value = rowData.getOrDefault(key, "");
+            startExport(file.toPath());
+        }
+    }
 
-                        // Sanitize value: escape double quotes and enclose in quotes
-                        String quotedValue = "\"" + value.replace("\"", "\"\"") + "\"";
-                        dataLine.append(quotedValue);
-                        first = false;
-                    }
-                    writer.println(dataLine.toString());
+    /**
+     * Streams every response matching the current date filter to the CSV file in the background.
+     * Progress is shown next to the export button, and the export can be cancelled.
+     */
+    private void startExport(Path target) {
+        // --- 3. Column headers and order come from the table definition ---
+        List<String> displayHeaders = new ArrayList<>();
+        for (TableColumn<Map<String, String>, ?> col : responseTable.getColumns()) {
+            displayHeaders.add(col.getText());
+        }
+        List<String> keys = new ArrayList<>(columnKeys);
+        Bson filter = pager.rangeFilter();
+
+        ResponseCsvExporter exporter = new ResponseCsvExporter();
+        activeExport = exporter;
+        setExportRunning(true);
+
+        // --- 4. Stream the rows from the cursor straight into the file ---
+        queryScope.loadReport("export", db -> {
+            try {
+                return exporter.export(db, filter, keys, displayHeaders, target,
+                        (written, total) -> Platform.runLater(() -> updateExportProgress(written, total)));
+            } catch (IOException | RuntimeException e) {
+                // Never leave a half-written file behind
+                try {
+                    Files.deleteIfExists(target);
+                } catch (IOException ignored) {
+                    // Nothing more we can do
                 }
-
+                throw (e instanceof RuntimeException) ? (RuntimeException) e : new UncheckedIOException((IOException) e);
+            }
+        }, rows -> {
+            setExportRunning(false);
+            if (rows < 0) {
+                showAlert(AlertType.INFORMATION, "Export Cancelled", "The export was cancelled.");
+            } else {
                 showAlert(AlertType.INFORMATION, "Export Successful",
-                        "Responses exported successfully to:\n" + file.getAbsolutePath());
-
-            } catch (IOException e) {
-                System.err.println("Error writing CSV file: " + e.getMessage());
-                showAlert(AlertType.ERROR, "Export Failed",
-                        "Could not write the file: " + e.getMessage());
+                        rows + " responses exported successfully to:\n" + target.toAbsolutePath());
             }
+        }, error -> {
+            setExportRunning(false);
+            System.err.println("Error writing CSV file: " + error.getMessage());
+            showAlert(AlertType.ERROR, "Export Failed",
+                    "Could not write the file: " + error.getMessage());
+        });
+    }
+
+    @FXML
+    private void handleCancelExport() {
+        if (activeExport != null) {
+            activeExport.cancel();
         }
     }
 
+    private void setExportRunning(boolean running) {
+        btnExport.setDisable(running);
+        exportProgress.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+        exportProgress.setVisible(running);
+        exportProgress.setManaged(running);
+        btnCancelExport.setVisible(running);
+        btnCancelExport.setManaged(running);
+        if (!running) {
+            activeExport = null;
+        }
+    }
+
+    private void updateExportProgress(long written, long total) {
+        if (activeExport == null) return;
+        exportProgress.setProgress(total > 0 ? (double) written / total : ProgressBar.INDETERMINATE_PROGRESS);
+    }
+
     /**
      * Utility method to display alerts.
      */
@@ -257,50 +503,12 @@ public class DetailedReportController {
 
     @FXML
     private void handleBack(ActionEvent event) {
-        // Go back to the Survey Summary Report (ReportController)
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/fsm/report-view.fxml"));
-            Parent summaryReportView = loader.load();
-
-            // FIX: Get the ReportController and call its initData method.
-            // Since the DetailedReportController doesn't have the user role/username
-            // natively, we must ensure it was passed to this controller first,
-            // which requires updating the initial call in ReportController.
-
-            // For this fix to work, we must assume the necessary user context
-            // (currentUserRole and currentUsername) are available when going back.
-            // This is generally passed down from the dashboard/main controller.
-
-            ReportController reportController = loader.getController();
-
-            // CRITICAL: We need the user role/username to initialize the ReportController
-            // so it loads the correct data (due to RBAC filter).
-            // If the parent controller (ReportController) didn't pass this down,
-            // this back step will fail to load the report data correctly.
-            // Assuming this class is being initialized with context via the setUserContext
-            // method from the parent context, we use the stored fields:
-            if (currentUserRole != null && currentUsername != null) {
-                reportController.initData(this.currentUserRole, this.currentUsername);
-            } else {
-                // Fallback or debug message if user context wasn't set on this controller
-                System.err.println("WARNING: User context (Role/Username) is null. Initializing ReportController with default context.");
-                // Attempt to initialize without data, which might load all reports (if non-creator) or fail.
-            }
-
-
-            // Get the parent container
-            AnchorPane parent = (AnchorPane) responseTable.getParent().getParent();
-            parent.getChildren().clear();
-            parent.getChildren().add(summaryReportView);
-
-            // Anchor the new view to fill the entire container
-            AnchorPane.setTopAnchor(summaryReportView, 0.0);
-            AnchorPane.setBottomAnchor(summaryReportView, 0.0);
-            AnchorPane.setLeftAnchor(summaryReportView, 0.0);
-            AnchorPane.setRightAnchor(summaryReportView, 0.0);
-
-        } catch (IOException e) {
-            System.err.println("Failed to load summary report view: " + e.getMessage());
+        // Go back to the Survey Summary Report (ReportController), through the dashboard so the
+        // cached report view is shown again as it was
+        if (onBack != null) {
+            onBack.run();
+        } else {
+            System.err.println("WARNING: No back navigation set for the detailed report view.");
         }
     }
 }
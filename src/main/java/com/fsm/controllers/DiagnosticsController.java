@@ -0,0 +1,129 @@
+package com.fsm.controllers;
+
+import com.fsm.database.LatencyHistogram;
+import com.fsm.database.MongoMetrics;
+import com.fsm.database.SurveyDefinitionCache;
+import com.fsm.database.MongoMetrics.CommandStats;
+import com.fsm.database.MongoMetrics.ScreenStats;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.SimpleLongProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+/**
+ * Shows the driver metrics collected by MongoMetrics: pool usage, per-command latency
+ * percentiles and database time per screen. Refreshes itself every 2 seconds while open.
+ */
+public class DiagnosticsController {
+
+    @FXML private Label lblPool;
+    @FXML private Label lblCheckout;
+    @FXML private Label lblSurveyCache;
+
+    @FXML private TableView<CommandStats> commandTable;
+    @FXML private TableColumn<CommandStats, String> colCommand;
+    @FXML private TableColumn<CommandStats, String> colCollection;
+    @FXML private TableColumn<CommandStats, Number> colCount;
+    @FXML private TableColumn<CommandStats, Number> colFailures;
+    @FXML private TableColumn<CommandStats, String> colP50;
+    @FXML private TableColumn<CommandStats, String> colP95;
+    @FXML private TableColumn<CommandStats, String> colP99;
+    @FXML private TableColumn<CommandStats, String> colMax;
+    @FXML private TableColumn<CommandStats, String> colTotal;
+
+    @FXML private TableView<ScreenStats> screenTable;
+    @FXML private TableColumn<ScreenStats, String> colScreen;
+    @FXML private TableColumn<ScreenStats, Number> colScreenCommands;
+    @FXML private TableColumn<ScreenStats, String> colScreenTotal;
+
+    @FXML private Button btnClose;
+
+    private final MongoMetrics metrics = MongoMetrics.getInstance();
+    private Timeline autoRefresh;
+
+    @FXML
+    public void initialize() {
+        colCommand.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getCommandName()));
+        colCollection.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getCollection()));
+        colCount.setCellValueFactory(cellData -> new SimpleLongProperty(cellData.getValue().getLatency().getCount()));
+        colFailures.setCellValueFactory(cellData -> new SimpleLongProperty(cellData.getValue().getFailures()));
+        colP50.setCellValueFactory(cellData -> percentile(cellData.getValue().getLatency(), 50));
+        colP95.setCellValueFactory(cellData -> percentile(cellData.getValue().getLatency(), 95));
+        colP99.setCellValueFactory(cellData -> percentile(cellData.getValue().getLatency(), 99));
+        colMax.setCellValueFactory(cellData -> new SimpleStringProperty(MongoMetrics.formatMicros(cellData.getValue().getLatency().getMaxMicros())));
+        colTotal.setCellValueFactory(cellData -> new SimpleStringProperty(MongoMetrics.formatMicros(cellData.getValue().getLatency().getTotalMicros())));
+
+        colScreen.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getScreen()));
+        colScreenCommands.setCellValueFactory(cellData -> new SimpleLongProperty(cellData.getValue().getCommands()));
+        colScreenTotal.setCellValueFactory(cellData -> new SimpleStringProperty(MongoMetrics.formatMicros(cellData.getValue().getTotalMicros())));
+
+        commandTable.setPlaceholder(new Label("No database commands recorded yet."));
+        screenTable.setPlaceholder(new Label("No database commands recorded yet."));
+
+        refresh();
+
+        // Live view while the window is open; stops when it is closed
+        autoRefresh = new Timeline(new KeyFrame(Duration.seconds(2), event -> refresh()));
+        autoRefresh.setCycleCount(Timeline.INDEFINITE);
+        autoRefresh.play();
+        btnClose.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null) {
+                newScene.windowProperty().addListener((o, oldWindow, newWindow) -> {
+                    if (newWindow != null) newWindow.setOnHidden(e -> autoRefresh.stop());
+                });
+            }
+        });
+    }
+
+    private void refresh() {
+        LatencyHistogram wait = metrics.getCheckoutWait();
+
+        lblPool.setText(String.format("Pool:     %d open, %d in use, %d waiting (max %d)",
+                metrics.getOpenConnections(), metrics.getCheckedOutConnections(),
+                metrics.getWaitingForConnection(), metrics.getPoolMaxSize()));
+        lblCheckout.setText(String.format("Checkout: %d waits, p50 %s, p99 %s, max %s, %d failed",
+                wait.getCount(), MongoMetrics.formatMicros(wait.getValueAtPercentile(50)),
+                MongoMetrics.formatMicros(wait.getValueAtPercentile(99)),
+                MongoMetrics.formatMicros(wait.getMaxMicros()), metrics.getCheckoutFailures()));
+
+        lblSurveyCache.setText("Surveys:  " + SurveyDefinitionCache.getStats());
+
+        commandTable.setItems(FXCollections.observableArrayList(metrics.getCommandStats()));
+        screenTable.setItems(FXCollections.observableArrayList(metrics.getScreenStats()));
+    }
+
+    private static SimpleStringProperty percentile(LatencyHistogram histogram, double percentile) {
+        return new SimpleStringProperty(MongoMetrics.formatMicros(histogram.getValueAtPercentile(percentile)));
+    }
+
+    @FXML
+    private void handleRefresh() {
+        refresh();
+    }
+
+    @FXML
+    private void handleReset() {
+        metrics.reset();
+        refresh();
+    }
+
+    @FXML
+    private void handleLogSummary() {
+        metrics.logSummary();
+    }
+
+    @FXML
+    private void handleClose() {
+        autoRefresh.stop();
+        Stage stage = (Stage) btnClose.getScene().getWindow();
+        stage.close();
+    }
+}
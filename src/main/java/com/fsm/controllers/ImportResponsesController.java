@@ -0,0 +1,170 @@
+package com.fsm.controllers;
+
+import com.fsm.database.QueryScope;
+import com.fsm.database.ResponseImporter;
+import com.fsm.database.SurveyRepository;
+import com.fsm.model.Survey;
+import javafx.application.Platform;
+import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextArea;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import org.bson.types.ObjectId;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Date;
+
+/**
+ * Modal dialog for bulk-importing responses into one survey (see ResponseImporter).
+ */
+public class ImportResponsesController {
+
+    @FXML private Label lblTitle;
+    @FXML private Label lblFile;
+    @FXML private Button btnChooseFile;
+    @FXML private CheckBox chkUseImportTime;
+    @FXML private Button btnStart;
+    @FXML private Button btnCancel;
+    @FXML private ProgressBar pbImport;
+    @FXML private Label lblProgress;
+    @FXML private TextArea txtReport;
+
+    private final QueryScope queryScope = new QueryScope();
+    private ResponseImporter activeImport;
+
+    private ObjectId surveyId;
+    private String surveyName;
+    private String username;
+    private File selectedFile;
+
+    /**
+     * @param surveyId The survey the responses belong to.
+     * @param username Stored as user_id for rows without a user column.
+     */
+    public void initData(String surveyId, String surveyName, String username) {
+        this.surveyId = new ObjectId(surveyId);
+        this.surveyName = surveyName;
+        this.username = username;
+        lblTitle.setText("Import Responses: " + surveyName);
+    }
+
+    @FXML
+    public void initialize() {
+        queryScope.bindTo(txtReport);
+    }
+
+    @FXML
+    private void handleChooseFile() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Import Survey Responses");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Response files (*.csv, *.jsonl)", "*.csv", "*.jsonl", "*.ndjson"),
+                new FileChooser.ExtensionFilter("CSV files (*.csv)", "*.csv"),
+                new FileChooser.ExtensionFilter("JSON Lines (*.jsonl)", "*.jsonl", "*.ndjson")
+        );
+
+        File file = fileChooser.showOpenDialog(btnChooseFile.getScene().getWindow());
+        if (file != null) {
+            selectedFile = file;
+            lblFile.setText(file.getName() + " (" + ResponseImporter.formatOf(file.toPath()) + ", "
+                    + String.format("%,d", file.length() / 1024) + " KB)");
+            btnStart.setDisable(false);
+        }
+    }
+
+    /**
+     * Runs the import in the background. The survey definition is read fresh from the database, so
+     * rows are validated against the questions as they are now. Rows without a timestamp are rejected
+     * unless "use the import time" is ticked.
+     */
+    @FXML
+    private void handleStartImport() {
+        if (selectedFile == null) return;
+
+        ResponseImporter importer = new ResponseImporter();
+        activeImport = importer;
+        setImportRunning(true);
+        txtReport.clear();
+        lblProgress.setText("Reading " + selectedFile.getName() + "...");
+        Date defaultTimestamp = chkUseImportTime.isSelected() ? new Date() : null;
+
+        queryScope.load("import", db -> {
+            Survey survey = SurveyRepository.findById(db, surveyId);
+            if (survey == null) {
+                throw new IllegalStateException("The survey '" + surveyName + "' no longer exists.");
+            }
+            if (survey.questions().isEmpty()) {
+                throw new IllegalStateException("The survey '" + surveyName + "' has no questions yet.");
+            }
+            try {
+                return importer.importFile(db, survey, selectedFile.toPath(), username, defaultTimestamp,
+                        (parsed, total, inserted) -> Platform.runLater(() -> updateImportProgress(parsed, total, inserted)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Import interrupted", e);
+            }
+        }, report -> {
+            setImportRunning(false);
+            lblProgress.setText(String.format("%,d inserted, %,d rejected", report.getRowsInserted(), report.getRowsRejected()));
+            txtReport.setText(report.toDisplayText());
+        }, error -> {
+            setImportRunning(false);
+            lblProgress.setText("");
+            System.err.println("Error importing responses: " + error.getMessage());
+            showAlert(AlertType.ERROR, "Import Failed", "Could not import the file: " + error.getMessage());
+        });
+    }
+
+    @FXML
+    private void handleCancelImport() {
+        if (activeImport != null) {
+            activeImport.cancel();
+            lblProgress.setText("Cancelling...");
+        }
+    }
+
+    @FXML
+    private void handleClose() {
+        // Closing stops the import; rows already inserted are kept
+        handleCancelImport();
+        ((Stage) txtReport.getScene().getWindow()).close();
+    }
+
+    private void setImportRunning(boolean running) {
+        btnStart.setDisable(running);
+        btnChooseFile.setDisable(running);
+        chkUseImportTime.setDisable(running);
+        pbImport.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+        pbImport.setVisible(running);
+        pbImport.setManaged(running);
+        btnCancel.setVisible(running);
+        btnCancel.setManaged(running);
+        if (!running) {
+            activeImport = null;
+        }
+    }
+
+    private void updateImportProgress(long parsed, long total, long inserted) {
+        if (activeImport == null) return;
+        pbImport.setProgress(total > 0 ? (double) parsed / total : ProgressBar.INDETERMINATE_PROGRESS);
+        lblProgress.setText(String.format("%,d rows inserted", inserted));
+    }
+
+    private void showAlert(AlertType type, String title, String content) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(content);
+        alert.showAndWait();
+    }
+}
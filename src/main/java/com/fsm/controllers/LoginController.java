@@ -1,6 +1,7 @@
 package com.fsm.controllers;
 
-import com.fsm.database.MongoManager;
+import com.fsm.database.AuthService;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
 import javafx.scene.control.PasswordField;
@@ -9,12 +10,12 @@ import javafx.scene.control.ComboBox;
 import javafx.scene.Node;
 import javafx.stage.Stage;
 import javafx.event.ActionEvent;
-import org.bson.Document;
 import javafx.scene.Parent;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.CompletionException;
 
 public class LoginController {
 
@@ -35,9 +36,8 @@ public class LoginController {
 
     /**
      * Handles the login button click event.
-     * Since MongoManager.authenticateUser() is a static helper,
-     * it now internally calls MongoManager.getInstance().getDatabase(),
-     * ensuring the database connection is initialized and used efficiently.
+     * The user lookup and BCrypt check run on AuthService's worker pool; the button is disabled
+     * until the result comes back on the FX thread, so the window stays responsive meanwhile.
      */
     @FXML
     private void handleLoginButton(ActionEvent event) {
@@ -55,50 +55,64 @@ public class LoginController {
             return;
         }
 
-        // Call the static helper method. This is where the Singleton connection is
-        // first accessed (or initialized if it's the very first call).
-        Document authenticatedUser = MongoManager.authenticateUser(username, password, selectedRole);
-
-        if (authenticatedUser != null) {
-            // SUCCESS: Load the Main Dashboard
-            try {
-                // The role is already known (selectedRole), but we confirm it matches the document
-                String userRole = authenticatedUser.getString("role");
-
-                // 1. Get the current stage (login window)
-                Stage loginStage = (Stage)((Node) event.getSource()).getScene().getWindow();
-
-                // 2. Load the new FXML (Main Dashboard)
-                FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/fsm/main-dashboard-view.fxml"));
-                Parent root = loader.load();
+        // Capture the window and button now; the event is not valid once we are back from the worker
+        Node source = (Node) event.getSource();
+        Stage loginStage = (Stage) source.getScene().getWindow();
+
+        source.setDisable(true);
+        statusLabel.setText("Signing in...");
+
+        AuthService.authenticateAsync(username, password, selectedRole).whenComplete((authenticatedUser, error) ->
+                Platform.runLater(() -> {
+                    source.setDisable(false);
+
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        System.err.println("Login error: " + cause.getMessage());
+                        statusLabel.setText(cause instanceof IllegalStateException
+                                ? cause.getMessage()
+                                : "Login failed due to a database error. Please try again.");
+                    } else if (authenticatedUser != null) {
+                        statusLabel.setText("");
+                        openDashboard(loginStage, username, authenticatedUser.getString("role"));
+                    } else {
+                        // FAILURE: Login failed.
+                        statusLabel.setText("Invalid credentials or role mismatch. Please try again.");
+                        passwordField.clear();
+                    }
+                }));
+    }
 
-                // 3. Get the controller instance
-                MainDashboardController dashboardController = loader.getController();
+    /**
+     * Loads the Main Dashboard for the authenticated user and closes the login window.
+     */
+    private void openDashboard(Stage loginStage, String username, String userRole) {
+        try {
+            // 1. Load the new FXML (Main Dashboard)
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/fsm/main-dashboard-view.fxml"));
+            Parent root = loader.load();
 
-                // Pass the credentials to the dashboard controller
-                dashboardController.initData(username, userRole);
+            // 2. Get the controller instance
+            MainDashboardController dashboardController = loader.getController();
 
-                // 4. Set up the new scene and stage
-                Stage mainStage = new Stage();
-                mainStage.setTitle("Field Survey Manager - Dashboard");
-                mainStage.setScene(new Scene(root, 800, 600));
+            // Pass the credentials to the dashboard controller
+            dashboardController.initData(username, userRole);
 
-                // 5. Load the default Surveys view *after* role restrictions are applied.
-                dashboardController.loadDefaultView();
+            // 3. Set up the new scene and stage
+            Stage mainStage = new Stage();
+            mainStage.setTitle("Field Survey Manager - Dashboard");
+            mainStage.setScene(new Scene(root, 800, 600));
 
-                // 6. Show the main stage and close the login stage
-                mainStage.show();
-                loginStage.close();
+            // 4. Load the default Surveys view *after* role restrictions are applied.
+            dashboardController.loadDefaultView();
 
-            } catch (IOException e) {
-                e.printStackTrace();
-                statusLabel.setText("Error loading main application view.");
-            }
+            // 5. Show the main stage and close the login stage
+            mainStage.show();
+            loginStage.close();
 
-        } else {
-            // FAILURE: Login failed.
-            statusLabel.setText("Invalid credentials or role mismatch. Please try again.");
-            passwordField.clear();
+        } catch (IOException e) {
+            e.printStackTrace();
+            statusLabel.setText("Error loading main application view.");
         }
     }
 }
@@ -1,6 +1,7 @@
 package com.fsm.controllers;
 
 import com.fsm.MainApplication;
+import com.fsm.database.MongoMetrics;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.layout.BorderPane;
@@ -35,11 +36,15 @@ public class MainDashboardController {
     @FXML private MenuItem menuItemLogout;
     @FXML private MenuItem menuItemExit;
     @FXML private MenuItem menuItemAbout;
+    @FXML private MenuItem menuItemDiagnostics;
 
     // --- Fields to store logged-in user data ---
     private String currentUserRole;
     private String currentLoggedInUsername;
 
+    // Parsed views and controllers of this login session (see ViewCache)
+    private ViewCache viewCache = new ViewCache(null, null, 0);
+
     @FXML
     public void initialize() {
         // 1. Surveys: Use the decision method to load the correct view based on role
@@ -64,6 +69,7 @@ public class MainDashboardController {
     @FXML
     private void handleLogout() {
         System.out.println("User " + currentLoggedInUsername + " logging out.");
+        viewCache.clear();
         MainApplication.showLoginScreen(rootPane.getScene().getWindow());
     }
 
@@ -105,6 +111,29 @@ public class MainDashboardController {
     }
     // --- End Handle About Dialog ---
 
+    /**
+     * Handles the 'Diagnostics' menu item click. Opens the database metrics panel
+     * as a non-modal window so it can stay open while navigating the app.
+     */
+    @FXML
+    private void handleDiagnostics() {
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/fsm/diagnostics-view.fxml"));
+            Parent root = loader.load();
+
+            Stage diagnosticsStage = new Stage();
+            diagnosticsStage.setTitle("Database Diagnostics");
+            diagnosticsStage.initOwner(rootPane.getScene().getWindow());
+            diagnosticsStage.setScene(new Scene(root, 900, 600));
+            diagnosticsStage.show();
+
+        } catch (IOException e) {
+            System.err.println("Error loading Diagnostics panel: " + e.getMessage());
+            e.printStackTrace();
+            loadErrorView("Could not load Diagnostics screen.");
+        }
+    }
+
 
     /**
      * Initializes the dashboard with the logged-in user's credentials.
@@ -114,6 +143,12 @@ public class MainDashboardController {
         this.currentLoggedInUsername = username;
         this.currentUserRole = userRole;
 
+        // Cached screens are only valid for this user and role
+        if (!viewCache.belongsTo(username, userRole)) {
+            viewCache.clear();
+            viewCache = new ViewCache(username, userRole);
+        }
+
         System.out.println("Dashboard initialized for User: " + username + " with Role: " + userRole);
 
         applyRoleRestrictions();
@@ -192,6 +227,19 @@ public class MainDashboardController {
      * @param controllerTypeHint Optional hint for the controller class name (e.g., "SurveyController").
      */
     private void loadViewWithData(String fxmlPath, String controllerTypeHint) {
+        // Queries started from here on are attributed to this screen in the diagnostics panel
+        MongoMetrics.getInstance().setCurrentScreen(controllerTypeHint);
+
+        // Returning to a screen: reuse the parsed view and its controller, just refresh its data
+        ViewCache.CachedView cached = viewCache.get(fxmlPath);
+        if (cached != null) {
+            showInContentArea(cached.getView());
+            if (cached.getController() instanceof RefreshableView) {
+                ((RefreshableView) cached.getController()).refresh();
+            }
+            return;
+        }
+
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource(fxmlPath));
             Parent view = loader.load();
@@ -209,6 +257,7 @@ public class MainDashboardController {
                 switch (controllerTypeHint) {
                     case "ReportController":
                         // Assuming ReportController has initData(String userRole, String username)
+                        ((ReportController) controller).setDashboard(this);
                         ((ReportController) controller).initData(this.currentUserRole, this.currentLoggedInUsername);
                         break;
                     case "SurveyController":
@@ -233,13 +282,12 @@ public class MainDashboardController {
                 }
             }
 
-            mainContentArea.getChildren().clear();
-            mainContentArea.getChildren().add(view);
+            showInContentArea(view);
 
-            AnchorPane.setTopAnchor(view, 0.0);
-            AnchorPane.setBottomAnchor(view, 0.0);
-            AnchorPane.setLeftAnchor(view, 0.0);
-            AnchorPane.setRightAnchor(view, 0.0);
+            // Only screens that know how to refresh themselves can be reused
+            if (controller instanceof RefreshableView) {
+                viewCache.put(fxmlPath, new ViewCache.CachedView(view, controller));
+            }
 
         } catch (IOException e) {
             System.err.println("Error loading FXML view: " + fxmlPath + ". " + e.getMessage());
@@ -256,6 +304,42 @@ public class MainDashboardController {
         }
     }
 
+    /**
+     * Drill-down from the Reports screen: shows one survey's detailed responses in the content area.
+     * The detailed view is not cached, and the cached report view is left as it is, so Back and the
+     * Reports button both return to it (refreshed) instead of rebuilding it.
+     */
+    void showDetailedReport(String surveyId, String surveyName) {
+        MongoMetrics.getInstance().setCurrentScreen("DetailedReportController");
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/fsm/detailed-report-view.fxml"));
+            Parent view = loader.load();
+
+            DetailedReportController controller = loader.getController();
+            controller.setOnBack(() -> loadViewWithData("/com/fsm/report-view.fxml", "ReportController"));
+            controller.initData(surveyId, surveyName);
+
+            showInContentArea(view);
+        } catch (IOException e) {
+            System.err.println("Failed to load detailed report view: " + e.getMessage());
+            e.printStackTrace();
+            loadErrorView("Could not load the detailed report screen.");
+        }
+    }
+
+    /**
+     * Replaces the main content area with the given view, stretched to fill it.
+     */
+    private void showInContentArea(Parent view) {
+        mainContentArea.getChildren().clear();
+        mainContentArea.getChildren().add(view);
+
+        AnchorPane.setTopAnchor(view, 0.0);
+        AnchorPane.setBottomAnchor(view, 0.0);
+        AnchorPane.setLeftAnchor(view, 0.0);
+        AnchorPane.setRightAnchor(view, 0.0);
+    }
+
     /**
      * Placeholder method for deprecated paths. Now redirects to loadErrorView.
      */
@@ -8,7 +8,7 @@ import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
 import org.bson.Document;
 
-public class ProfileSettingsController {
+public class ProfileSettingsController implements RefreshableView {
 
     @FXML private Label lblCurrentUsername;
     @FXML private TextField txtNewUsername;
@@ -43,6 +43,18 @@ public class ProfileSettingsController {
         fetchUserDocument(username);
     }
 
+    /**
+     * Called when the cached view is shown again: re-reads the profile and clears any typed passwords.
+     */
+    @Override
+    public void refresh() {
+        pwdCurrentForUsername.clear();
+        pwdCurrentForPassword.clear();
+        pwdNewPassword.clear();
+        pwdConfirmNewPassword.clear();
+        fetchUserDocument(currentUsername);
+    }
+
     /**
      * Fetches the user's document from the database based on the username.
      * This is required to access the stored password hash for verification.
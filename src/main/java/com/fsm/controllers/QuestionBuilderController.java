@@ -1,16 +1,17 @@
 package com.fsm.controllers;
 
 import com.fsm.database.MongoManager;
+import com.fsm.database.SurveyDefinitionCache;
+import com.fsm.database.SurveyRepository;
+import com.fsm.model.Question;
+import com.fsm.model.Survey;
 import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.MongoCollection;
-import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.Updates;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.stage.Stage;
 
-import org.bson.Document;
+import org.bson.types.ObjectId;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,27 +24,26 @@ import javafx.scene.layout.HBox;
 import java.util.UUID;
 
 public class QuestionBuilderController {
-    public static class Question {
-        private String id;
-        private String text;
-        private String type; // e.g., "TEXT", "SINGLE_CHOICE", "RATING"
-        private List<String> options; // Used for MULTIPLE_CHOICE type
-        private boolean isMandatory; // ADDED: Mandatory status
-
-        public Question(String id, String text, String type, List<String> options, boolean isMandatory) { // UPDATED Constructor
-            this.id = id;
-            this.text = text;
-            this.type = type;
-            this.options = (options != null) ? options : new ArrayList<>();
-            this.isMandatory = isMandatory; // Initialize new field
+    public static class QuestionRow {
+        // Backed by the model record, which is what gets saved (encoded by the model codec)
+        private final Question model;
+
+        public QuestionRow(Question model) {
+            this.model = model;
+        }
+
+        public QuestionRow(String id, String text, String type, List<String> options, boolean isMandatory) { // UPDATED Constructor
+            this(new Question(id, text, type, options, isMandatory));
         }
 
+        public Question getModel() { return model; }
+
         // Simple Getters (no setters needed for this transient model)
-        public String getId() { return id; }
-        public String getText() { return text; }
-        public String getType() { return type; }
-        public List<String> getOptions() { return options; }
-        public boolean isMandatory() { return isMandatory; } // ADDED Getter
+        public String getId() { return model.id(); }
+        public String getText() { return model.text(); } // e.g., "TEXT", "SINGLE_CHOICE", "RATING"
+        public String getType() { return model.type(); }
+        public List<String> getOptions() { return model.options(); } // Used for choice types
+        public boolean isMandatory() { return model.mandatory(); } // ADDED Getter
     }
     // FXML elements
     @FXML private Label lblSurveyName;
@@ -58,20 +58,20 @@ public class QuestionBuilderController {
 
     // Reference to the parent controller and the survey being edited
     private SurveyController parentController;
-    private SurveyController.Survey currentSurvey;
-    private List<Question> currentQuestions = new ArrayList<>();
+    private SurveyController.SurveyRow currentSurvey;
+    private List<QuestionRow> currentQuestions = new ArrayList<>();
     private int questionCounter = 0;
 
     // Use the fully qualified name for the inner class
     // This is the method called by SurveyController to pass data
-    public void initData(SurveyController parent, SurveyController.Survey survey) {
+    public void initData(SurveyController parent, SurveyController.SurveyRow survey) {
         this.parentController = parent;
         this.currentSurvey = survey;
 
         lblSurveyName.setText("Question Builder: " + survey.getName());
 
         // 1. Load existing questions from DB when opening
-        loadExistingQuestions(survey.getName());
+        loadExistingQuestions(survey);
 
         // 2. Populate the UI with the loaded questions
         redrawQuestionsList();
@@ -138,7 +138,7 @@ public class QuestionBuilderController {
         String questionId = "Q" + (++questionCounter);
 
         // Create new Question object and add to list (UPDATED: Added isMandatory)
-        Question newQuestion = new Question(questionId, text, type, options, isMandatory);
+        QuestionRow newQuestion = new QuestionRow(questionId, text, type, options, isMandatory);
         currentQuestions.add(newQuestion);
 
         // Redraw the list to show the new question
@@ -150,47 +150,23 @@ public class QuestionBuilderController {
         updateDynamicOptions(type);
     }
 
-    private void loadExistingQuestions(String surveyName) {
+    private void loadExistingQuestions(SurveyController.SurveyRow survey) {
         currentQuestions.clear();
 
         MongoDatabase db = MongoManager.getInstance().getDatabase();
         if (db == null) return;
 
         try {
-            MongoCollection<Document> collection = db.getCollection("surveys");
-            Document surveyDoc = collection.find(Filters.eq("name", surveyName)).first();
-
-            if (surveyDoc != null && surveyDoc.containsKey("questions")) {
-                @SuppressWarnings("unchecked")
-                List<Document> questionDocs = (List<Document>) surveyDoc.get("questions");
-
-                for (Document qDoc : questionDocs) {
-                    // Reconstruct the Question object from the MongoDB Document
-                    List<String> options = qDoc.containsKey("options") ? (List<String>) qDoc.get("options") : new ArrayList<>();
-                    // NEW: Retrieve isMandatory status (default to false if not present)
-                    boolean isMandatory = qDoc.getBoolean("isMandatory", false);
-
-                    Question q = new Question(
-                            qDoc.getString("id"),
-                            qDoc.getString("text"),
-                            qDoc.getString("type"),
-                            options,
-                            isMandatory // Pass mandatory status
-                    );
-                    currentQuestions.add(q);
-
-                    // Update the counter to ensure new IDs don't conflict
-                    if (qDoc.getString("id") != null && qDoc.getString("id").startsWith("Q")) {
-                        try {
-                            int num = Integer.parseInt(qDoc.getString("id").substring(1));
-                            if (num > questionCounter) {
-                                questionCounter = num;
-                            }
-                        } catch (NumberFormatException e) {
-                            // Ignore non-numeric IDs, rely on UUID fallback later if needed
-                        }
-                    }
+            // Served from the shared definition cache, keyed on the row's _id
+            Survey stored = SurveyDefinitionCache.get(db, survey.getId());
+
+            if (stored != null) {
+                // Questions arrive already decoded (missing isMandatory defaults to false in the codec)
+                for (Question model : stored.questions()) {
+                    currentQuestions.add(new QuestionRow(model));
                 }
+                // New IDs continue after every ID the survey ever issued, including deleted questions
+                questionCounter = stored.nextQuestionNumber() - 1;
             }
         } catch (Exception e) {
             System.err.println("Error loading existing questions: " + e.getMessage());
@@ -206,7 +182,7 @@ public class QuestionBuilderController {
         }
 
         for (int i = 0; i < currentQuestions.size(); i++) {
-            Question q = currentQuestions.get(i);
+            QuestionRow q = currentQuestions.get(i);
 
             // Create a styled VBox for each question
             VBox questionBox = new VBox(5);
@@ -242,20 +218,14 @@ public class QuestionBuilderController {
     // Placeholder for saving the questions
     @FXML
     private void handleSaveQuestions() {
-        // 1. Convert the Java List<Question> into a List<Document> for MongoDB
-        List<Document> questionDocs = new ArrayList<>();
-        for (Question q : currentQuestions) {
-            Document qDoc = new Document("id", q.getId())
-                    .append("text", q.getText())
-                    .append("type", q.getType())
-                    .append("options", q.getOptions())
-                    .append("isMandatory", q.isMandatory()); // CRITICAL: Save the mandatory status
-            questionDocs.add(qDoc);
+        // 1. Collect the model records; the QuestionCodec writes them (including isMandatory)
+        List<Question> questions = new ArrayList<>();
+        for (QuestionRow q : currentQuestions) {
+            questions.add(q.getModel());
         }
 
         // 2. Perform the MongoDB update
-        int newQuestionCount = currentQuestions.size();
-        if (saveQuestionsToMongo(questionDocs, newQuestionCount)) {
+        if (saveQuestionsToMongo(questions)) {
             System.out.println("SUCCESS: Questions saved for survey: " + currentSurvey.getName());
         } else {
             System.err.println("ERROR: Failed to save questions to DB.");
@@ -269,41 +239,20 @@ public class QuestionBuilderController {
     }
 
     /**
-     * Saves the list of questions as an array in the current survey document.
-     * @param questionDocs List of BSON Documents representing questions.
+     * Saves the list of questions as an array in the current survey document, matched on its _id.
+     * The repository also updates 'numQuestions' and bumps the version stamp so cached copies are refreshed.
+     * @param questions The questions to store, encoded by the registered model codec.
      * @return true if update was successful.
      */
-    private boolean saveQuestionsToMongo(List<Document> questionDocs, int questionCount) {
+    private boolean saveQuestionsToMongo(List<Question> questions) {
         MongoDatabase db = MongoManager.getInstance().getDatabase();
         if (db == null) return false;
 
-        try {
-            MongoCollection<Document> collection = db.getCollection("surveys");
-
-            // Filter: Find the survey using its unique name
-            org.bson.conversions.Bson filter = Filters.eq("name", currentSurvey.getName());
-
-            // Update 1: Set the 'questions' array
-            org.bson.conversions.Bson updateQuestions = Updates.set("questions", questionDocs);
-
-            // Update 2: Set the CRITICAL 'numQuestions' integer field
-            org.bson.conversions.Bson updateCount = Updates.set("numQuestions", questionCount);
-
-            // Combine updates into a single list
-            List<org.bson.conversions.Bson> updatesList = List.of(updateQuestions, updateCount);
-
-            // Apply both updates to the document
-            collection.updateOne(filter, Updates.combine(updatesList));
-
-            return true;
-
-        } catch (Exception e) {
-            System.err.println("MongoDB Question Save Error: " + e.getMessage());
-            return false;
-        }
+        return SurveyRepository.replaceQuestions(db, new ObjectId(currentSurvey.getId()), questions)
+                == SurveyRepository.WriteResult.SAVED;
     }
 
-    private void handleDeleteQuestion(Question q) {
+    private void handleDeleteQuestion(QuestionRow q) {
         currentQuestions.remove(q);
         redrawQuestionsList(); // Refresh the UI
         System.out.println("Deleted question: " + q.getText());
@@ -0,0 +1,15 @@
+package com.fsm.controllers;
+
+/**
+ * Implemented by dashboard screens that can be kept alive in the ViewCache.
+ * When a cached screen is shown again, refresh() is called instead of re-parsing the FXML
+ * and creating a new controller. Implementations should reload their data in the background
+ * and keep the current content visible until the new data arrives.
+ */
+public interface RefreshableView {
+
+    /**
+     * Brings the screen's data up to date. Called on the JavaFX Application Thread.
+     */
+    void refresh();
+}
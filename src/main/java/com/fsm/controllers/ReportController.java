@@ -1,22 +1,34 @@
 package com.fsm.controllers;
 
+import com.fsm.analytics.SpaceSaving;
+import com.fsm.database.ChangeStreamService;
 import com.fsm.database.MongoManager;
-import com.mongodb.client.MongoCollection;
-import com.mongodb.client.MongoDatabase;
+import com.fsm.database.QueryScope;
+import com.fsm.database.ResponseCounterStore;
+import com.fsm.database.SurveyDefinitionCache;
+import com.fsm.database.SurveyListingQueries;
+import com.fsm.database.ReportQueryEngine;
+import com.fsm.model.Question;
+import com.fsm.model.Survey;
+import com.mongodb.client.model.Collation;
 import com.mongodb.client.model.Filters;
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.chart.BarChart;
 import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.PieChart;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.layout.AnchorPane;
+import javafx.geometry.Pos;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.StackPane; // Added for chart container
 import javafx.scene.layout.VBox; // Added VBox for visualization panel
 import javafx.event.ActionEvent;
@@ -25,6 +37,7 @@ import javafx.event.ActionEvent;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.BufferedWriter;
@@ -34,41 +47,43 @@ import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 
-public class ReportController {
+public class ReportController implements RefreshableView {
 
     // -----------------------------------------------------------
     // Nested Model Class: Read-only data model for the report table
     // -----------------------------------------------------------
     public static class ReportSurvey {
-        private final String id;
-        private final String name;
-        private final String status;
-        private final int numQuestions;
-        private final String dateCreated;
+        private final Survey survey; // Listing row (no questions) or full survey from a change event
         private final int totalResponses;
 
         private static final DateTimeFormatter DATE_FORMAT =
                 DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneId.systemDefault());
 
-        public ReportSurvey(String id, String name, String status, int numQuestions, Date dateCreated, int totalResponses) {
-            this.id = id;
-            this.name = name;
-            this.status = status;
-            this.numQuestions = numQuestions;
-            this.dateCreated = (dateCreated != null) ? DATE_FORMAT.format(dateCreated.toInstant()) : "N/A";
+        public ReportSurvey(Survey survey, int totalResponses) {
+            this.survey = survey;
             this.totalResponses = totalResponses;
         }
 
-        public String getId() { return id; }
-        public String getName() { return name; }
-        public String getStatus() { return status; }
-        public int getNumQuestions() { return numQuestions; }
-        public String getDateCreated() { return dateCreated; }
+        /** Same row with a new response total (live updates). */
+        ReportSurvey withTotalResponses(int total) {
+            return new ReportSurvey(survey, total);
+        }
+
+        public Survey getModel() { return survey; }
+        public String getId() { return survey.idHex(); }
+        public String getName() { return survey.name(); }
+        public String getStatus() { return survey.status(); }
+        public int getNumQuestions() { return survey.numQuestions(); }
+        public String getDateCreated() {
+            return (survey.dateCreated() != null) ? DATE_FORMAT.format(survey.dateCreated().toInstant()) : "N/A";
+        }
         public int getTotalResponses() { return totalResponses; }
     }
     // -----------------------------------------------------------
@@ -103,6 +118,7 @@ public class ReportController {
     @FXML private TableColumn<ReportSurvey, Integer> colTotalResponses;
     @FXML private Button btnViewDetails;
     @FXML private Button btnExportCSV;
+    @FXML private Button btnRebuildCounts;
 
     // --- Visualization FXML Bindings ---
     @FXML private VBox visualizationPanel;
@@ -110,6 +126,25 @@ public class ReportController {
     @FXML private StackPane chartContainer;
     @FXML private Label lblChartMessage;
 
+    // --- Trend FXML Bindings ---
+    @FXML private ComboBox<QuestionMetadata> cbxTrendQuestion;
+    @FXML private ComboBox<ReportQueryEngine.TrendUnit> cbxTrendUnit;
+    @FXML private DatePicker dpTrendFrom;
+    @FXML private DatePicker dpTrendTo;
+    @FXML private StackPane trendContainer;
+    @FXML private Label lblTrendMessage;
+
+    // --- Cross-Tab FXML Bindings ---
+    @FXML private ComboBox<QuestionMetadata> cbxCrossTabRows;
+    @FXML private ComboBox<QuestionMetadata> cbxCrossTabColumns;
+    @FXML private StackPane crossTabContainer;
+    @FXML private Label lblCrossTabMessage;
+
+    // First entry of the trend dropdown: plain response counts instead of one question's options
+    private static final QuestionMetadata ALL_RESPONSES = new QuestionMetadata(null, "All responses", null);
+    private static final int DEFAULT_TREND_DAYS = 30;
+    private static final int TOP_TEXT_RESULTS = 20;
+
     private List<QuestionMetadata> currentSurveyQuestions = new ArrayList<>();
     // -----------------------------------------
 
@@ -118,6 +153,25 @@ public class ReportController {
 
     private final ObservableList<ReportSurvey> reportData = FXCollections.observableArrayList();
 
+    // Background queries owned by this view
+    private final QueryScope queryScope = new QueryScope();
+
+    // Live response totals: rows touched since the last refresh, flushed at most once per interval
+    private static final Duration LIVE_COUNT_INTERVAL = Duration.seconds(1);
+    private final Set<String> dirtyCountIds = new HashSet<>();
+    private boolean allCountsDirty;
+    private final PauseTransition liveCountTimer = new PauseTransition(LIVE_COUNT_INTERVAL);
+
+    // Owner of the content area; drill-down and Back go through it (see showDetailedReport)
+    private MainDashboardController dashboard;
+
+    /**
+     * Called by MainDashboardController before initData.
+     */
+    void setDashboard(MainDashboardController dashboard) {
+        this.dashboard = dashboard;
+    }
+
     /**
      * Initializes the controller with the logged-in user's role and username.
      */
@@ -125,6 +179,12 @@ public class ReportController {
         this.currentUserRole = userRole;
         this.currentUsername = username;
         System.out.println("INIT_DATA: Received Role: " + userRole + ", Username: " + username);
+
+        // Only Administrators may reconcile the response counters
+        boolean isAdmin = "Administrator".equals(userRole);
+        btnRebuildCounts.setVisible(isAdmin);
+        btnRebuildCounts.setManaged(isAdmin);
+
         loadReportData();
     }
 
@@ -140,6 +200,9 @@ public class ReportController {
         // 2. Set the data source
         surveyReportTable.setItems(reportData);
 
+        // Cancel any pending background query once this view is navigated away from
+        queryScope.bindTo(surveyReportTable);
+
         // Disable buttons initially
         btnViewDetails.setDisable(true);
         if (btnExportCSV != null) {
@@ -148,11 +211,28 @@ public class ReportController {
         visualizationPanel.setVisible(false);
         visualizationPanel.setManaged(false);
 
+        // Trend defaults: daily buckets over the last 30 days
+        cbxTrendUnit.getItems().setAll(ReportQueryEngine.TrendUnit.values());
+        cbxTrendUnit.getSelectionModel().select(ReportQueryEngine.TrendUnit.DAY);
+        dpTrendTo.setValue(LocalDate.now());
+        dpTrendFrom.setValue(LocalDate.now().minusDays(DEFAULT_TREND_DAYS - 1));
+
+        liveCountTimer.setOnFinished(event -> flushLiveCounts());
+
+        // Live updates: survey edits and new responses are applied row by row (see applySurveyChanges)
+        ChangeStreamService.getInstance().bindSurveys(surveyReportTable, this::applySurveyChanges);
+        ChangeStreamService.getInstance().bindResponses(surveyReportTable, this::applyResponseChanges);
+
         // 3. Listener for survey selection (CRITICAL for visualization)
         surveyReportTable.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
             boolean isSelected = newVal != null;
             btnViewDetails.setDisable(!isSelected);
 
+            // A live update replaced the selected row with a newer copy of the same survey: keep the chart
+            if (isSelected && oldVal != null && newVal.getId().equals(oldVal.getId())) {
+                return;
+            }
+
             // Show visualization panel and load questions when a survey is selected
             if (isSelected) {
                 loadQuestionsForVisualization(newVal.getId());
@@ -162,7 +242,17 @@ public class ReportController {
                 visualizationPanel.setVisible(false);
                 visualizationPanel.setManaged(false);
                 cbxQuestions.getItems().clear();
+                cbxTrendQuestion.getItems().clear();
+                cbxCrossTabRows.getItems().clear();
+                cbxCrossTabColumns.getItems().clear();
                 chartContainer.getChildren().clear();
+                trendContainer.getChildren().clear();
+                crossTabContainer.getChildren().clear();
+                queryScope.cancel("questions");
+                queryScope.cancel("chart");
+                queryScope.cancel("ratingStats");
+                queryScope.cancel("trend");
+                queryScope.cancel("crossTab");
             }
         });
     }
@@ -175,41 +265,61 @@ public class ReportController {
     private void loadQuestionsForVisualization(String surveyId) {
         currentSurveyQuestions.clear();
         cbxQuestions.getItems().clear();
+        cbxTrendQuestion.getItems().clear();
+        cbxCrossTabRows.getItems().clear();
+        cbxCrossTabColumns.getItems().clear();
         chartContainer.getChildren().clear();
-        lblChartMessage.setText("Select a question from the dropdown to see the chart.");
-
-        // FIX: Use MongoManager.getInstance().getDatabase()
-        MongoDatabase db = MongoManager.getInstance().getDatabase();
-        if (db == null) return;
-
-        try {
-            MongoCollection<Document> surveyCollection = db.getCollection("surveys");
-            Document surveyDoc = surveyCollection.find(Filters.eq("_id", new ObjectId(surveyId))).first();
-
-            if (surveyDoc != null) {
-                List<Document> questions = surveyDoc.getList("questions", Document.class, new ArrayList<>());
-
-                // Only visualize questions that are of type MULTI_CHOICE, RATING, or TEXT_INPUT (if we count unique answers)
-                for (Document q : questions) {
-                    String type = q.getString("type");
-                    // We only provide visualization for categorical/rating types initially
-                    if ("MULTI_CHOICE".equals(type) || "SINGLE_CHOICE".equals(type) || "RATING".equals(type)) {
-                        QuestionMetadata metadata = new QuestionMetadata(
-                                q.getString("id"),
-                                q.getString("text"),
-                                type
-                        );
-                        currentSurveyQuestions.add(metadata);
+        queryScope.cancel("chart");
+        queryScope.cancel("ratingStats");
+        queryScope.cancel("crossTab");
+        lblCrossTabMessage.setText("Select two questions to break one down by the other.");
+        crossTabContainer.getChildren().setAll(lblCrossTabMessage);
+        lblChartMessage.setText("Loading questions...");
+        chartContainer.getChildren().add(lblChartMessage);
+
+        // The response trend does not need the questions, so it starts right away
+        generateTrendChart(surveyId, ALL_RESPONSES);
+
+        queryScope.loadReport("questions", db -> {
+            List<QuestionMetadata> metadataList = new ArrayList<>();
+            Survey survey = SurveyDefinitionCache.get(db, surveyId);
+
+            if (survey != null) {
+                // Visualize categorical/rating questions as charts and TEXT_INPUT questions as ranked answer lists
+                for (Question q : survey.questions()) {
+                    String type = q.type();
+                    if ("MULTI_CHOICE".equals(type) || "SINGLE_CHOICE".equals(type) || "RATING".equals(type)
+                            || isTextType(type)) {
+                        metadataList.add(new QuestionMetadata(q.id(), q.text(), type));
                     }
                 }
             }
-
+            return metadataList;
+        }, metadataList -> {
+            currentSurveyQuestions.addAll(metadataList);
             cbxQuestions.getItems().setAll(currentSurveyQuestions);
             cbxQuestions.getSelectionModel().clearSelection();
-
-        } catch (Exception e) {
-            System.err.println("Error loading questions for visualization: " + e.getMessage());
-        }
+            lblChartMessage.setText("Select a question from the dropdown to see the chart.");
+
+            // Set the items first and select afterwards, so the trend is not queried a second time
+            // Option trends and cross-tabs only make sense for categorical/rating questions
+            List<QuestionMetadata> categorical = currentSurveyQuestions.stream()
+                    .filter(q -> !isTextType(q.type))
+                    .collect(Collectors.toList());
+            List<QuestionMetadata> trendChoices = new ArrayList<>();
+            trendChoices.add(ALL_RESPONSES);
+            trendChoices.addAll(categorical);
+            cbxTrendQuestion.setOnAction(null);
+            cbxTrendQuestion.getItems().setAll(trendChoices);
+            cbxTrendQuestion.getSelectionModel().select(ALL_RESPONSES);
+            cbxTrendQuestion.setOnAction(this::handleTrendChanged);
+
+            cbxCrossTabRows.getItems().setAll(categorical);
+            cbxCrossTabColumns.getItems().setAll(categorical);
+        }, error -> {
+            System.err.println("Error loading questions for visualization: " + error.getMessage());
+            lblChartMessage.setText("Could not load questions for this survey.");
+        });
     }
 
     /**
@@ -228,52 +338,22 @@ public class ReportController {
     }
 
     /**
-     * Fetches responses for the selected question and generates a PieChart or BarChart.
+     * Fetches the per-option answer counts for the selected question and generates a PieChart or BarChart.
+     * The counting is done by a server-side aggregation (see ReportQueryEngine) on a background thread.
      */
     private void generateReportChart(String surveyId, QuestionMetadata question) {
-        // FIX: Use MongoManager.getInstance().getDatabase()
-        MongoDatabase db = MongoManager.getInstance().getDatabase();
-        if (db == null) return;
-
-        // 1. Fetch responses for the selected survey
-        MongoCollection<Document> responseCollection = db.getCollection("responses");
-        Map<String, Integer> answerCounts = new HashMap<>();
-        int totalResponsesWithAnswer = 0;
-
-        try {
-            for (Document responseDoc : responseCollection.find(Filters.eq("survey_id", new ObjectId(surveyId)))) {
-                List<Document> answers = responseDoc.getList("answers", Document.class, new ArrayList<>());
-
-                // Find the answer corresponding to the selected question ID
-                Optional<Document> answerDocOpt = answers.stream()
-                        .filter(a -> question.id.equals(a.getString("question_id")))
-                        .findFirst();
-
-                if (answerDocOpt.isPresent()) {
-                    Object answerObj = answerDocOpt.get().get("answer");
-                    if (answerObj != null) {
-                        String answer = answerObj.toString();
-
-                        // Handle MULTI_CHOICE (stored as list/array)
-                        if (answer.startsWith("[") && answer.endsWith("]")) {
-                            // Simple parsing to split array elements
-                            String innerAnswers = answer.substring(1, answer.length() - 1);
-                            String[] individualAnswers = innerAnswers.split(",\\s*");
-                            for (String item : individualAnswers) {
-                                String cleanItem = item.trim().replace("\"", "");
-                                if (!cleanItem.isEmpty()) {
-                                    answerCounts.merge(cleanItem, 1, Integer::sum);
-                                    totalResponsesWithAnswer++; // Count each selected item
-                                }
-                            }
-                        } else {
-                            // Handle SINGLE_CHOICE or RATING
-                            answerCounts.merge(answer, 1, Integer::sum);
-                            totalResponsesWithAnswer++;
-                        }
-                    }
-                }
-            }
+        chartContainer.getChildren().setAll(QueryScope.loadingPlaceholder("Aggregating responses..."));
+        queryScope.cancel("ratingStats");
+
+        // Free text has no options to count: rank the answers and words instead
+        if (isTextType(question.type)) {
+            generateTextAnalysis(surveyId, question);
+            return;
+        }
+
+        // 1. Let MongoDB group the answers for this question
+        queryScope.loadReport("chart", db -> ReportQueryEngine.countAnswersByOption(surveyId, question.id), answerCounts -> {
+            int totalResponsesWithAnswer = answerCounts.values().stream().mapToInt(Integer::intValue).sum();
 
             // 2. Clear container and display chart
             chartContainer.getChildren().clear();
@@ -288,18 +368,140 @@ public class ReportController {
             if ("RATING".equals(question.type)) {
                 // RATING: Use BarChart for better comparison of ordered categories
                 BarChart<String, Number> barChart = createBarChart(question.text, answerCounts);
-                chartContainer.getChildren().add(barChart);
+                VBox statsPane = new VBox(6, QueryScope.loadingPlaceholder("Computing statistics..."));
+                statsPane.setMinWidth(200);
+                statsPane.setStyle("-fx-padding: 10; -fx-border-color: #eee; -fx-background-color: #fafafa;");
+                HBox.setHgrow(barChart, Priority.ALWAYS);
+                chartContainer.getChildren().add(new HBox(10, barChart, statsPane));
+                loadRatingStats(surveyId, question, statsPane);
             } else {
                 // MULTI_CHOICE/SINGLE_CHOICE: Use PieChart for part-to-whole view
                 PieChart pieChart = createPieChart(question.text, answerCounts, totalResponsesWithAnswer);
                 chartContainer.getChildren().add(pieChart);
             }
+        }, error -> {
+            System.err.println("Error generating report chart: " + error.getMessage());
+            lblChartMessage.setText("Error generating chart: " + error.getMessage());
+            chartContainer.getChildren().setAll(lblChartMessage);
+        });
+    }
+
+    /**
+     * Fills the panel beside a rating chart with count, mean, spread and percentiles
+     * (one aggregation, see ReportQueryEngine.computeRatingStats).
+     */
+    private void loadRatingStats(String surveyId, QuestionMetadata question, VBox statsPane) {
+        ObjectId surveyObjectId = new ObjectId(surveyId);
+        queryScope.loadReport("ratingStats",
+                db -> ReportQueryEngine.computeRatingStats(db, surveyObjectId, question.id),
+                stats -> {
+                    Label title = new Label("Statistics");
+                    title.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
+                    statsPane.getChildren().setAll(title);
+
+                    if (stats.getCount() == 0) {
+                        statsPane.getChildren().add(new Label("No numeric ratings."));
+                        return;
+                    }
+
+                    GridPane grid = new GridPane();
+                    grid.setHgap(12);
+                    grid.setVgap(4);
+                    addStatRow(grid, "Responses", String.valueOf(stats.getCount()));
+                    addStatRow(grid, "Mean", formatStat(stats.getMean()));
+                    addStatRow(grid, "Std. deviation", formatStat(stats.getStandardDeviation()));
+                    addStatRow(grid, "Variance", formatStat(stats.getVariance()));
+                    addStatRow(grid, "Min", formatStat(stats.getMin()));
+                    addStatRow(grid, "Max", formatStat(stats.getMax()));
+                    if (stats.hasPercentiles()) {
+                        addStatRow(grid, "25th percentile", formatStat(stats.getPercentile(0.25)));
+                        addStatRow(grid, "Median", formatStat(stats.getPercentile(0.5)));
+                        addStatRow(grid, "75th percentile", formatStat(stats.getPercentile(0.75)));
+                        addStatRow(grid, "90th percentile", formatStat(stats.getPercentile(0.9)));
+                    }
+                    statsPane.getChildren().add(grid);
+                }, error -> {
+                    System.err.println("Error computing rating statistics: " + error.getMessage());
+                    statsPane.getChildren().setAll(new Label("Statistics unavailable."));
+                });
+    }
+
+    private void addStatRow(GridPane grid, String name, String value) {
+        int row = grid.getRowCount();
+        Label valueLabel = new Label(value);
+        valueLabel.setStyle("-fx-font-weight: bold;");
+        grid.add(new Label(name + ":"), 0, row);
+        grid.add(valueLabel, 1, row);
+    }
+
+    private static String formatStat(double value) {
+        // Ratings are whole numbers: show them without decimals, derived values with two
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.format("%.2f", value);
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error generating report chart: " + e.getMessage());
-            lblChartMessage.setText("Error generating chart: " + e.getMessage());
-            chartContainer.getChildren().add(lblChartMessage);
+    /**
+     * Shows the distinct-answer estimates and the most frequent answers and words of a TEXT_INPUT question
+     * (one streaming pass over the answers, see ReportQueryEngine.analyzeTextAnswers).
+     */
+    private void generateTextAnalysis(String surveyId, QuestionMetadata question) {
+        ObjectId surveyObjectId = new ObjectId(surveyId);
+        queryScope.loadReport("chart",
+                db -> ReportQueryEngine.analyzeTextAnswers(db, surveyObjectId, question.id, TOP_TEXT_RESULTS),
+                analysis -> {
+                    chartContainer.getChildren().clear();
+
+                    if (analysis.getAnswerCount() == 0) {
+                        lblChartMessage.setText("No responses found for this question.");
+                        chartContainer.getChildren().add(lblChartMessage);
+                        return;
+                    }
+
+                    Label title = new Label(question.text);
+                    title.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
+                    Label summary = new Label(String.format("%,d answers  \u2022  ~%,d distinct answers  \u2022  ~%,d distinct words",
+                            analysis.getAnswerCount(), analysis.getDistinctAnswers(), analysis.getDistinctTokens()));
+                    summary.setStyle("-fx-text-fill: #555;");
+
+                    HBox lists = new HBox(10,
+                            createRankedList("Most frequent answers", analysis.getTopAnswers()),
+                            createRankedList("Most frequent words", analysis.getTopTokens()));
+                    lists.getChildren().forEach(list -> HBox.setHgrow(list, Priority.ALWAYS));
+
+                    VBox panel = new VBox(8, title, summary, lists);
+                    panel.setStyle("-fx-padding: 10;");
+                    VBox.setVgrow(lists, Priority.ALWAYS);
+                    chartContainer.getChildren().add(panel);
+                }, error -> {
+                    System.err.println("Error analyzing text answers: " + error.getMessage());
+                    lblChartMessage.setText("Error analyzing answers: " + error.getMessage());
+                    chartContainer.getChildren().setAll(lblChartMessage);
+                });
+    }
+
+    /**
+     * A ranked list of sketch entries. Counts that may include evicted values are marked as upper bounds.
+     */
+    private VBox createRankedList(String title, List<SpaceSaving.Entry> entries) {
+        ListView<String> list = new ListView<>();
+        for (int i = 0; i < entries.size(); i++) {
+            SpaceSaving.Entry entry = entries.get(i);
+            String count = entry.getError() > 0 ? "\u2264 " + entry.getCount() : String.valueOf(entry.getCount());
+            list.getItems().add((i + 1) + ".  " + entry.getValue() + "  (" + count + ")");
+        }
+        if (entries.isEmpty()) {
+            list.setPlaceholder(new Label("Nothing to rank."));
         }
+
+        Label header = new Label(title);
+        header.setStyle("-fx-font-weight: bold;");
+        VBox box = new VBox(4, header, list);
+        VBox.setVgrow(list, Priority.ALWAYS);
+        box.setMaxWidth(Double.MAX_VALUE);
+        return box;
+    }
+
+    private static boolean isTextType(String type) {
+        return "TEXT_INPUT".equals(type) || "TEXT".equals(type);
     }
 
     /**
@@ -355,6 +557,216 @@ public class ReportController {
         return barChart;
     }
 
+    /**
+     * Re-runs the trend query when the question, bucket size or date range changes.
+     */
+    @FXML
+    private void handleTrendChanged(ActionEvent event) {
+        ReportSurvey selectedSurvey = surveyReportTable.getSelectionModel().getSelectedItem();
+        if (selectedSurvey == null) {
+            return;
+        }
+
+        QuestionMetadata question = cbxTrendQuestion.getSelectionModel().getSelectedItem();
+        generateTrendChart(selectedSurvey.getId(), question != null ? question : ALL_RESPONSES);
+    }
+
+    /**
+     * Charts the survey's responses (or one question's options) per hour, day or week for the chosen dates.
+     * The date range and the bucketing are applied in MongoDB (see ReportQueryEngine.countResponsesOverTime),
+     * so only one count per bucket comes back, however many responses the survey has.
+     */
+    private void generateTrendChart(String surveyId, QuestionMetadata question) {
+        LocalDate fromDate = dpTrendFrom.getValue();
+        LocalDate toDate = dpTrendTo.getValue();
+        ReportQueryEngine.TrendUnit unit = cbxTrendUnit.getValue();
+        if (fromDate == null || toDate == null || unit == null) {
+            return;
+        }
+        if (fromDate.isAfter(toDate)) {
+            queryScope.cancel("trend");
+            lblTrendMessage.setText("The 'From' date must not be after the 'To' date.");
+            trendContainer.getChildren().setAll(lblTrendMessage);
+            return;
+        }
+
+        // Whole days in local time: 'To' is inclusive, so the range ends at the following midnight
+        ZoneId zone = ZoneId.systemDefault();
+        Instant from = fromDate.atStartOfDay(zone).toInstant();
+        Instant to = toDate.plusDays(1).atStartOfDay(zone).toInstant();
+        ObjectId surveyObjectId = new ObjectId(surveyId);
+
+        trendContainer.getChildren().setAll(QueryScope.loadingPlaceholder("Aggregating responses over time..."));
+
+        queryScope.loadReport("trend", db -> {
+            if (question.id == null) {
+                Map<String, Map<Date, Integer>> single = new LinkedHashMap<>();
+                single.put("Responses", ReportQueryEngine.countResponsesOverTime(db, surveyObjectId, unit, from, to));
+                return single;
+            }
+            return ReportQueryEngine.countOptionsOverTime(db, surveyObjectId, question.id, unit, from, to);
+        }, series -> {
+            boolean empty = series.values().stream()
+                    .allMatch(buckets -> buckets.values().stream().allMatch(count -> count == 0));
+            if (empty) {
+                lblTrendMessage.setText("No responses in the selected period.");
+                trendContainer.getChildren().setAll(lblTrendMessage);
+                return;
+            }
+            String title = (question.id == null ? "Responses" : question.text) + " (" + unit + ")";
+            trendContainer.getChildren().setAll(createTrendChart(title, unit, series));
+        }, error -> {
+            System.err.println("Error generating trend chart: " + error.getMessage());
+            lblTrendMessage.setText(error instanceof IllegalArgumentException
+                    ? error.getMessage()
+                    : "Error generating trend: " + error.getMessage());
+            trendContainer.getChildren().setAll(lblTrendMessage);
+        });
+    }
+
+    /**
+     * Creates a LineChart with one series per entry (e.g. one line per option), buckets on the X axis.
+     */
+    private LineChart<String, Number> createTrendChart(String title, ReportQueryEngine.TrendUnit unit,
+                                                      Map<String, Map<Date, Integer>> series) {
+        DateTimeFormatter bucketFormat = DateTimeFormatter.ofPattern(
+                unit == ReportQueryEngine.TrendUnit.HOUR ? "MMM d HH:00" : "MMM d, yyyy")
+                .withZone(ZoneId.systemDefault());
+
+        final CategoryAxis xAxis = new CategoryAxis();
+        final NumberAxis yAxis = new NumberAxis();
+        xAxis.setLabel(unit == ReportQueryEngine.TrendUnit.WEEK ? "Week starting" : null);
+        yAxis.setLabel("Count of Responses");
+
+        LineChart<String, Number> lineChart = new LineChart<>(xAxis, yAxis);
+        lineChart.setTitle(title);
+        lineChart.setLegendVisible(series.size() > 1);
+        lineChart.setAnimated(false);
+
+        int bucketCount = 0;
+        for (Map.Entry<String, Map<Date, Integer>> entry : series.entrySet()) {
+            XYChart.Series<String, Number> line = new XYChart.Series<>();
+            line.setName(entry.getKey());
+            for (Map.Entry<Date, Integer> bucket : entry.getValue().entrySet()) {
+                line.getData().add(new XYChart.Data<>(bucketFormat.format(bucket.getKey().toInstant()), bucket.getValue()));
+            }
+            bucketCount = Math.max(bucketCount, entry.getValue().size());
+            lineChart.getData().add(line);
+        }
+        // Point markers only while they can still be told apart
+        lineChart.setCreateSymbols(bucketCount <= 60);
+        return lineChart;
+    }
+
+    /**
+     * Builds the cross-tab once both a row and a column question are chosen.
+     */
+    @FXML
+    private void handleCrossTabChanged(ActionEvent event) {
+        QuestionMetadata rowQuestion = cbxCrossTabRows.getSelectionModel().getSelectedItem();
+        QuestionMetadata columnQuestion = cbxCrossTabColumns.getSelectionModel().getSelectedItem();
+        ReportSurvey selectedSurvey = surveyReportTable.getSelectionModel().getSelectedItem();
+
+        if (rowQuestion == null || columnQuestion == null || selectedSurvey == null) {
+            return;
+        }
+
+        generateCrossTab(selectedSurvey.getId(), rowQuestion, columnQuestion);
+    }
+
+    /**
+     * Fetches the contingency table of the two questions (one aggregation, see ReportQueryEngine.crossTabulate)
+     * and renders it as a heatmap grid.
+     */
+    private void generateCrossTab(String surveyId, QuestionMetadata rowQuestion, QuestionMetadata columnQuestion) {
+        crossTabContainer.getChildren().setAll(QueryScope.loadingPlaceholder("Cross-tabulating responses..."));
+
+        ObjectId surveyObjectId = new ObjectId(surveyId);
+        queryScope.loadReport("crossTab",
+                db -> ReportQueryEngine.crossTabulate(db, surveyObjectId, rowQuestion.id, columnQuestion.id),
+                crossTab -> {
+                    if (crossTab.isEmpty()) {
+                        lblCrossTabMessage.setText("No responses answered both questions.");
+                        crossTabContainer.getChildren().setAll(lblCrossTabMessage);
+                        return;
+                    }
+                    ScrollPane scroll = new ScrollPane(createHeatmap(crossTab));
+                    scroll.setFitToWidth(false);
+                    scroll.setStyle("-fx-background-color: transparent;");
+                    crossTabContainer.getChildren().setAll(scroll);
+                }, error -> {
+                    System.err.println("Error generating cross-tab: " + error.getMessage());
+                    lblCrossTabMessage.setText("Error generating cross-tab: " + error.getMessage());
+                    crossTabContainer.getChildren().setAll(lblCrossTabMessage);
+                });
+    }
+
+    /**
+     * Creates the heatmap: one cell per (row answer, column answer), shaded by its count relative to the
+     * largest cell, with row and column totals on the edges. Hovering a cell shows its share of the row.
+     */
+    private GridPane createHeatmap(ReportQueryEngine.CrossTab crossTab) {
+        GridPane grid = new GridPane();
+        grid.setHgap(2);
+        grid.setVgap(2);
+        grid.setStyle("-fx-padding: 10;");
+
+        List<String> rows = crossTab.getRowLabels();
+        List<String> columns = crossTab.getColumnLabels();
+
+        // Header row: column answers, then the totals column
+        for (int c = 0; c < columns.size(); c++) {
+            grid.add(heatmapHeader(columns.get(c)), c + 1, 0);
+        }
+        grid.add(heatmapHeader("Total"), columns.size() + 1, 0);
+
+        for (int r = 0; r < rows.size(); r++) {
+            grid.add(heatmapHeader(rows.get(r)), 0, r + 1);
+            int rowTotal = crossTab.getRowTotal(r);
+            for (int c = 0; c < columns.size(); c++) {
+                int count = crossTab.getCount(r, c);
+                double intensity = (double) count / crossTab.getMaxCount();
+                Label cell = heatmapCell(String.valueOf(count), String.format(
+                        "-fx-background-color: rgb(%d, %d, %d); -fx-text-fill: %s;",
+                        (int) Math.round(255 - 255 * intensity),
+                        (int) Math.round(255 - 132 * intensity),
+                        255,
+                        intensity > 0.55 ? "white" : "#333"));
+                double share = rowTotal > 0 ? (double) count / rowTotal * 100 : 0;
+                cell.setTooltip(new Tooltip(String.format("%s \u00d7 %s: %d (%.1f%% of row)",
+                        rows.get(r), columns.get(c), count, share)));
+                grid.add(cell, c + 1, r + 1);
+            }
+            grid.add(heatmapCell(String.valueOf(rowTotal), "-fx-background-color: #f0f0f0; -fx-font-weight: bold;"),
+                    columns.size() + 1, r + 1);
+        }
+
+        // Footer row: column totals
+        grid.add(heatmapHeader("Total"), 0, rows.size() + 1);
+        for (int c = 0; c < columns.size(); c++) {
+            grid.add(heatmapCell(String.valueOf(crossTab.getColumnTotal(c)), "-fx-background-color: #f0f0f0; -fx-font-weight: bold;"),
+                    c + 1, rows.size() + 1);
+        }
+        return grid;
+    }
+
+    private Label heatmapHeader(String text) {
+        Label header = new Label(text);
+        header.setStyle("-fx-font-weight: bold; -fx-padding: 4 8;");
+        header.setMaxWidth(180);
+        header.setTooltip(new Tooltip(text));
+        return header;
+    }
+
+    private Label heatmapCell(String text, String style) {
+        Label cell = new Label(text);
+        cell.setAlignment(Pos.CENTER);
+        cell.setMinSize(64, 30);
+        cell.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
+        cell.setStyle(style);
+        return cell;
+    }
+
     // --- Visualization Logic END ---
 
 
@@ -426,138 +838,200 @@ public class ReportController {
     // --- End CSV Export Implementation ---
 
 
-    private Map<String, Integer> getSurveyResponseCounts(MongoDatabase db) {
-        Map<String, Integer> counts = new HashMap<>();
-        MongoCollection<Document> responseCollection = db.getCollection("responses");
-
-        List<Bson> pipeline = new ArrayList<>();
-        pipeline.add(new Document("$group",
-                new Document("_id", "$survey_id")
-                        .append("count", new Document("$sum", 1))
-        ));
-
-        try {
-            responseCollection.aggregate(pipeline).forEach(doc -> {
-                Object idObject = doc.get("_id");
-                if (idObject instanceof ObjectId) {
-                    ObjectId surveyId = (ObjectId) idObject;
-                    Integer count = doc.getInteger("count");
-                    if (surveyId != null && count != null) {
-                        counts.put(surveyId.toHexString(), count);
-                    }
-                }
-            });
-        } catch (Exception e) {
-            System.err.println("Error calculating response counts: " + e.getMessage());
-        }
-
-        return counts;
-    }
-
-
     private void loadReportData() {
-        reportData.clear();
-        // FIX: Use MongoManager.getInstance().getDatabase()
-        MongoDatabase db = MongoManager.getInstance().getDatabase();
-
-        if (db == null) {
-            System.err.println("Database connection failed. Cannot load report data.");
-            if (btnExportCSV != null) btnExportCSV.setDisable(true);
-            return;
-        }
-
-        System.out.println("INFO: Database connection established successfully for reports.");
+        // Current rows stay visible until the new ones arrive (the placeholder shows only while empty)
+        if (btnExportCSV != null) btnExportCSV.setDisable(true);
+        surveyReportTable.setPlaceholder(QueryScope.loadingPlaceholder("Loading reports..."));
 
         Bson filter;
+        Collation collation = null;
 
         if ("Survey Creator".equals(currentUserRole) && currentUsername != null) {
-            filter = Filters.regex("creator", "^" + currentUsername + "$", "i");
+            // Case-insensitive equality, served by the creator_ci collation index
+            filter = Filters.eq("creator", currentUsername);
+            collation = MongoManager.CASE_INSENSITIVE;
             System.out.println("✅ Report RBAC: Creator Filter Applied. User: " + currentUsername);
         } else {
             filter = new Document();
             System.out.println("✅ Report RBAC: Showing ALL surveys. Role: " + currentUserRole);
         }
 
-        try {
-            Map<String, Integer> responseCounts = getSurveyResponseCounts(db);
-            MongoCollection<Document> surveyCollection = db.getCollection("surveys");
-
-            int documentsFound = 0;
-            for (Document doc : surveyCollection.find(filter)) {
-                documentsFound++;
-
-                String surveyId = doc.getObjectId("_id").toHexString();
-
-                int questionCount = 0;
-                if (doc.containsKey("questions") && doc.get("questions") instanceof List) {
-                    questionCount = ((List) doc.get("questions")).size();
-                }
-
-                int totalResponses = responseCounts.getOrDefault(surveyId, 0);
+        Collation filterCollation = collation;
+        queryScope.loadReport("reports", db -> {
+            List<ReportSurvey> rows = new ArrayList<>();
+            // Projected listing: question counts come from $size on the server, not the questions arrays
+            List<Survey> surveys = SurveyListingQueries.listSurveys(db, filter, filterCollation);
 
-                ReportSurvey report = new ReportSurvey(
-                        surveyId,
-                        doc.getString("name"),
-                        doc.getString("status"),
-                        questionCount,
-                        doc.getDate("dateCreated"),
-                        totalResponses
-                );
-                reportData.add(report);
+            // Response totals come from the materialized counters (one _id lookup), not a $group over responses
+            List<ObjectId> surveyIds = new ArrayList<>();
+            for (Survey survey : surveys) {
+                surveyIds.add(survey.id());
             }
+            Map<String, Integer> responseCounts = ResponseCounterStore.loadCounts(db, surveyIds);
 
-            if (documentsFound == 0) {
+            for (Survey survey : surveys) {
+                int totalResponses = responseCounts.getOrDefault(survey.idHex(), 0);
+                rows.add(new ReportSurvey(survey, totalResponses));
+            }
+            return rows;
+        }, rows -> {
+            if (rows.isEmpty()) {
                 System.out.println("⚠️ WARNING: MongoDB query executed successfully but returned zero survey documents.");
             }
 
+            reportData.setAll(rows);
+            surveyReportTable.setPlaceholder(new Label("No surveys found."));
+
             if (btnExportCSV != null) {
                 btnExportCSV.setDisable(reportData.isEmpty());
             }
             System.out.println("INFO: Loaded " + reportData.size() + " reports for user '" + currentUsername + "'.");
-
-        } catch (Exception e) {
-            System.err.println("Error loading report data: " + e.getMessage());
+        }, error -> {
+            System.err.println("Error loading report data: " + error.getMessage());
+            surveyReportTable.setPlaceholder(new Label("Could not load reports. Check the database connection."));
             if (btnExportCSV != null) {
                 btnExportCSV.setDisable(true);
             }
+        });
+    }
+
+    // --- Live updates (ChangeStreamService) ---
+
+    /**
+     * Applies one frame's worth of survey change events to the report table without re-querying.
+     */
+    private void applySurveyChanges(List<ChangeStreamService.SurveyChange> changes) {
+        if (currentUserRole == null) return; // initData not called yet
+
+        for (ChangeStreamService.SurveyChange change : changes) {
+            switch (change.getType()) {
+                case RESYNC:
+                    loadReportData();
+                    return;
+                case DELETE:
+                    reportData.removeIf(row -> change.getId().equals(row.getId()));
+                    break;
+                case UPSERT:
+                    Survey survey = change.getSurvey();
+                    int index = indexOfReport(change.getId());
+                    if (!isVisibleToCurrentUser(survey)) {
+                        if (index >= 0) reportData.remove(index);
+                        break;
+                    }
+                    // The survey document has no response total; keep the one the row already shows
+                    int totalResponses = index >= 0 ? reportData.get(index).getTotalResponses() : 0;
+                    ReportSurvey row = new ReportSurvey(survey, totalResponses);
+                    if (index >= 0) {
+                        reportData.set(index, row);
+                    } else {
+                        reportData.add(row);
+                    }
+                    break;
+            }
         }
+        if (btnExportCSV != null) btnExportCSV.setDisable(reportData.isEmpty());
     }
 
-    @FXML
-    private void handleViewDetails(ActionEvent event) {
-        ReportSurvey selectedSurvey = surveyReportTable.getSelectionModel().getSelectedItem();
+    /**
+     * New responses: marks the affected rows and refreshes their totals at most once per
+     * LIVE_COUNT_INTERVAL, however fast the inserts arrive (see flushLiveCounts).
+     */
+    private void applyResponseChanges(List<ChangeStreamService.ResponseChanges> batch) {
+        for (ChangeStreamService.ResponseChanges changes : batch) {
+            allCountsDirty |= changes.isUnknownSurveys();
+            dirtyCountIds.addAll(changes.getSurveyIds());
+        }
+        // Trailing edge: the first change starts the timer, later ones ride along until it fires
+        if (liveCountTimer.getStatus() != Animation.Status.RUNNING) {
+            liveCountTimer.playFromStart();
+        }
+    }
 
-        if (selectedSurvey == null) {
-            return;
+    /**
+     * Reads the totals of the marked rows from the materialized counters (one _id lookup in survey_stats).
+     * The counters are incremented right after the insert; by the time the timer fires they have caught up.
+     */
+    private void flushLiveCounts() {
+        List<ObjectId> ids = new ArrayList<>();
+        for (ReportSurvey row : reportData) {
+            if (allCountsDirty || dirtyCountIds.contains(row.getId())) ids.add(new ObjectId(row.getId()));
         }
+        dirtyCountIds.clear();
+        allCountsDirty = false;
+        if (ids.isEmpty()) return;
+
+        queryScope.loadReport("liveCounts", db -> ResponseCounterStore.loadCounts(db, ids), counts -> {
+            for (ObjectId id : ids) {
+                String hex = id.toHexString();
+                int index = indexOfReport(hex);
+                int total = counts.getOrDefault(hex, 0);
+                if (index >= 0 && reportData.get(index).getTotalResponses() != total) {
+                    reportData.set(index, reportData.get(index).withTotalResponses(total));
+                }
+            }
+        }, error -> System.err.println("Live response count update failed: " + error.getMessage()));
+    }
 
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/fsm/detailed-report-view.fxml"));
-            Parent detailedReportView = loader.load();
+    private int indexOfReport(String id) {
+        for (int i = 0; i < reportData.size(); i++) {
+            if (id.equals(reportData.get(i).getId())) return i;
+        }
+        return -1;
+    }
 
-            DetailedReportController controller = loader.getController();
+    /**
+     * Same RBAC rule as loadReportData(): creators only see their own surveys (case-insensitive).
+     */
+    private boolean isVisibleToCurrentUser(Survey survey) {
+        if ("Survey Creator".equals(currentUserRole) && currentUsername != null) {
+            return currentUsername.equalsIgnoreCase(survey.creator());
+        }
+        return true;
+    }
 
-            // FIX: Pass the user context down to the Detailed Report Controller
-            // so it can use it to return correctly to the ReportController.
-            controller.setUserContext(this.currentUserRole, this.currentUsername);
+    /**
+     * Called when the cached view is shown again: reloads the survey list and response counts.
+     */
+    @Override
+    public void refresh() {
+        loadReportData();
+    }
 
-            controller.initData(selectedSurvey.getId(), selectedSurvey.getName());
+    /**
+     * Recomputes the materialized response counters from the 'responses' collection
+     * (e.g. after a bulk import) and reloads the table.
+     */
+    @FXML
+    private void handleRebuildCounts(ActionEvent event) {
+        btnRebuildCounts.setDisable(true);
+        surveyReportTable.setPlaceholder(QueryScope.loadingPlaceholder("Rebuilding response counts..."));
+
+        queryScope.load("rebuild", db -> {
+            ResponseCounterStore.rebuild(db);
+            return Boolean.TRUE;
+        }, done -> {
+            btnRebuildCounts.setDisable(false);
+            loadReportData();
+        }, error -> {
+            btnRebuildCounts.setDisable(false);
+            System.err.println("Error rebuilding response counts: " + error.getMessage());
+            showAlert(Alert.AlertType.ERROR, "Rebuild Failed", "Could not rebuild response counts: " + error.getMessage());
+        });
+    }
 
-            // Replace the current content (ReportController's view) with the detailed view
-            AnchorPane parent = (AnchorPane) surveyReportTable.getParent().getParent();
-            parent.getChildren().clear();
-            parent.getChildren().add(detailedReportView);
+    @FXML
+    private void handleViewDetails(ActionEvent event) {
+        ReportSurvey selectedSurvey = surveyReportTable.getSelectionModel().getSelectedItem();
 
-            // Anchor the new view to fill the entire container
-            AnchorPane.setTopAnchor(detailedReportView, 0.0);
-            AnchorPane.setBottomAnchor(detailedReportView, 0.0);
-            AnchorPane.setLeftAnchor(detailedReportView, 0.0);
-            AnchorPane.setRightAnchor(detailedReportView, 0.0);
+        if (selectedSurvey == null) {
+            return;
+        }
 
-        } catch (IOException e) {
-            System.err.println("Failed to load detailed report view: " + e.getMessage());
-            e.printStackTrace();
-            showAlert(Alert.AlertType.ERROR, "View Error", "Failed to load the detailed report screen.");
+        // The dashboard swaps its content area, so this (cached) view is never modified
+        if (dashboard == null) {
+            System.err.println("WARNING: Report view has no dashboard to navigate with.");
+            return;
         }
+        dashboard.showDetailedReport(selectedSurvey.getId(), selectedSurvey.getName());
     }
 }
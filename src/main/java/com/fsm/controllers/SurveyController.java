@@ -1,16 +1,24 @@
 package com.fsm.controllers;
 
 import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.MongoCollection;
 import com.mongodb.MongoException;
 import org.bson.Document;
+import com.fsm.database.CascadeDeleteJob;
+import com.fsm.database.ChangeStreamService;
 import com.fsm.database.MongoManager; // Keep this import
+import com.fsm.database.QueryScope;
+import com.fsm.database.SurveyRepository;
+import com.fsm.database.SurveyListingQueries;
+import com.fsm.model.Survey;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.layout.VBox;
+import javafx.scene.layout.HBox;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.beans.property.SimpleStringProperty;
@@ -26,55 +34,68 @@ import java.io.IOException;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ButtonType;
+import com.mongodb.client.model.Collation;
 import com.mongodb.client.model.Filters;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 
-public class SurveyController {
+public class SurveyController implements RefreshableView {
 
     // -----------------------------------------------------------
     // Nested Model Class
     // -----------------------------------------------------------
-    public static class Survey {
-        private String name;
-        private String status;
-        private int questions;
-        private String creator; // New field to hold the creator's username
-
-        public Survey(String name, String status, int questions, String creator) {
-            this.name = name;
-            this.status = status;
-            this.questions = questions;
-            this.creator = creator;
+    public static class SurveyRow {
+        // Backed by the immutable model record; setters swap in an updated copy
+        private Survey model;
+
+        public SurveyRow(Survey model) {
+            this.model = model;
+        }
+
+        public SurveyRow(String id, String name, String status, int questions, String creator) {
+            this(new Survey(id != null ? new ObjectId(id) : null, name, status, creator, null, questions, 0, 0, null));
         }
 
+        public Survey getModel() { return model; }
+
         // Getters and Setters (REQUIRED for TableView)
-        public String getName() { return name; }
-        public void setName(String name) { this.name = name; }
-        public String getStatus() { return status; }
-        public void setStatus(String status) { this.setStatus(status); }
-        public int getQuestions() { return questions; }
-        public void setQuestions(int questions) { this.questions = questions; }
-        public String getCreator() { return creator; } // New Getter
-        public void setCreator(String creator) { this.creator = creator; } // New Setter
+        public String getId() { return model.idHex(); } // Hex _id, used to match live change events to rows
+        public String getName() { return model.name(); }
+        public void setName(String name) { this.model = model.withName(name); }
+        public String getStatus() { return model.status(); }
+        public void setStatus(String status) { this.model = model.withStatus(status); }
+        public int getQuestions() { return model.numQuestions(); }
+        public void setQuestions(int questions) { this.model = model.withNumQuestions(questions); }
+        public String getCreator() { return model.creator(); } // New Getter
+        public void setCreator(String creator) { this.model = model.withCreator(creator); } // New Setter
     }
     // -----------------------------------------------------------
 
 
     @FXML private VBox surveyViewContainer;
-    @FXML private TableView<Survey> surveyTable;
-    @FXML private TableColumn<Survey, String> colName;
-    @FXML private TableColumn<Survey, String> colStatus;
-    @FXML private TableColumn<Survey, Integer> colQuestions;
+    @FXML private TableView<SurveyRow> surveyTable;
+    @FXML private TableColumn<SurveyRow, String> colName;
+    @FXML private TableColumn<SurveyRow, String> colStatus;
+    @FXML private TableColumn<SurveyRow, Integer> colQuestions;
     @FXML private Button btnAdd;
     @FXML private Button btnEdit;
     @FXML private Button btnDelete;
     @FXML private Button btnManageQuestions;
+    @FXML private Button btnImportResponses;
+    @FXML private HBox cleanupStatusBox;
+    @FXML private ProgressBar pbCleanup;
+    @FXML private Label lblCleanupStatus;
 
     private String currentUserRole;         // Stored for permission checks
     private String currentLoggedInUsername; // Stored for filtering surveys
 
-    private final ObservableList<Survey> masterData = FXCollections.observableArrayList();
+    private final ObservableList<SurveyRow> masterData = FXCollections.observableArrayList();
+
+    // Background queries owned by this view
+    private final QueryScope queryScope = new QueryScope();
 
     /**
      * CRITICAL: Updated method to accept and store the logged-in username.
@@ -105,6 +126,7 @@ public class SurveyController {
             btnEdit.setDisable(true);
             btnDelete.setDisable(true);
             btnManageQuestions.setDisable(true);
+            btnImportResponses.setDisable(true);
 
             System.out.println("Survey view: Modification buttons disabled for role: " + userRole);
         }
@@ -123,59 +145,160 @@ public class SurveyController {
         btnEdit.setOnAction(event -> handleEditSurvey());
         btnDelete.setOnAction(event -> handleDeleteSurvey());
         btnManageQuestions.setOnAction(event -> handleManageQuestions());
+        btnImportResponses.setOnAction(event -> handleImportResponses());
 
         // NOTE: loadSurveyData() is removed from here and moved to initData()
+
+        // 3. Cancel any pending background query once this view is navigated away from
+        queryScope.bindTo(surveyTable);
+
+        // 4. Live updates: apply survey changes made anywhere (this or another client) row by row
+        ChangeStreamService.getInstance().bindSurveys(surveyTable, this::applySurveyChanges);
+
+        // 5. Progress of the background removal of deleted surveys' responses
+        CascadeDeleteJob.getInstance().bindProgress(surveyTable, this::showCleanupProgress);
     }
 
     /**
-     * FIX: Loads survey data, applying a filter if the user is a Survey Creator.
+     * Shows the running cascade deletes under the table; hides the bar once they are all done.
      */
-    private void loadSurveyData() {
-        masterData.clear();
-        // PERFORMANCE FIX: Use the Singleton instance to get the shared database connection
-        MongoDatabase db = MongoManager.getInstance().getDatabase();
-        surveyTable.setItems(masterData); // Set the empty list immediately
+    private void showCleanupProgress(List<CascadeDeleteJob.Progress> jobs) {
+        List<CascadeDeleteJob.Progress> running = new ArrayList<>();
+        for (CascadeDeleteJob.Progress job : jobs) {
+            if (!job.isDone()) running.add(job);
+        }
 
-        if (db == null) {
-            System.err.println("Database connection failed. Cannot load survey data.");
-            return;
+        boolean visible = !running.isEmpty();
+        cleanupStatusBox.setVisible(visible);
+        cleanupStatusBox.setManaged(visible);
+        if (!visible) return;
+
+        if (running.size() == 1) {
+            CascadeDeleteJob.Progress job = running.get(0);
+            double fraction = job.getFraction();
+            pbCleanup.setProgress(fraction >= 0 ? fraction : ProgressBar.INDETERMINATE_PROGRESS);
+            lblCleanupStatus.setText(job.toString());
+        } else {
+            long deleted = running.stream().mapToLong(CascadeDeleteJob.Progress::getDeleted).sum();
+            pbCleanup.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+            lblCleanupStatus.setText("Removing responses of " + running.size() + " deleted surveys: " + deleted + " so far");
         }
+    }
 
-        try {
-            MongoCollection<Document> surveyCollection = db.getCollection("surveys");
-
-            // --- CRITICAL FILTERING LOGIC ---
-            Bson filter = new Document(); // Start with an empty filter (shows all)
-
-            if ("Survey Creator".equals(currentUserRole)) {
-                // If user is a Survey Creator, filter by the 'creator' field matching the logged-in username
-                filter = Filters.eq("creator", currentLoggedInUsername);
-                System.out.println("Survey Creator view: Filtering surveys for creator: " + currentLoggedInUsername);
-            } else if ("Administrator".equals(currentUserRole)) {
-                System.out.println("Admin view: Showing all surveys.");
-                // No filter needed, already an empty Document()
-            } else {
-                // Default/Data Entry: Show nothing, or only public surveys (assuming Data Entry sees none here)
-                filter = Filters.eq("_id", null); // Filter that matches nothing
-                System.out.println("Data Entry view: Showing no surveys.");
+    /**
+     * Applies one frame's worth of survey change events to the table without re-querying.
+     */
+    private void applySurveyChanges(List<ChangeStreamService.SurveyChange> changes) {
+        if (currentUserRole == null) return; // initData not called yet
+
+        for (ChangeStreamService.SurveyChange change : changes) {
+            switch (change.getType()) {
+                case RESYNC:
+                    // Events may have been missed; fall back to a full reload
+                    loadSurveyData();
+                    return;
+                case DELETE:
+                    masterData.removeIf(row -> change.getId().equals(row.getId()));
+                    break;
+                case UPSERT:
+                    Survey survey = change.getSurvey();
+                    int index = indexOfSurvey(change.getId());
+                    if (!isVisibleToCurrentUser(survey)) {
+                        // e.g. reassigned to another creator
+                        if (index >= 0) masterData.remove(index);
+                        break;
+                    }
+                    SurveyRow row = new SurveyRow(survey);
+                    if (index >= 0) {
+                        masterData.set(index, row);
+                    } else {
+                        masterData.add(row);
+                    }
+                    break;
             }
-            // --- END FILTERING LOGIC ---
+        }
+    }
 
+    private int indexOfSurvey(String id) {
+        for (int i = 0; i < masterData.size(); i++) {
+            if (id.equals(masterData.get(i).getId())) return i;
+        }
+        return -1;
+    }
 
-            for (Document doc : surveyCollection.find(filter)) {
-                String name = doc.getString("name");
-                String status = doc.getString("status");
-                int numQuestions = doc.getInteger("numQuestions", 0);
-                String creator = doc.getString("creator"); // Ensure this field exists in your DB documents
+    /**
+     * Same rule as the query in loadSurveyData(), applied to a single document.
+     */
+    private boolean isVisibleToCurrentUser(Survey survey) {
+        if ("Administrator".equals(currentUserRole)) return true;
+        if ("Survey Creator".equals(currentUserRole)) return currentLoggedInUsername != null && currentLoggedInUsername.equalsIgnoreCase(survey.creator());
+        return false;
+    }
 
-                masterData.add(new Survey(name, status, numQuestions, creator));
-            }
+    /**
+     * Ownership check for Edit, Delete, Manage Questions and Import; ignores case like the listing does.
+     */
+    private boolean isCreatedByCurrentUser(SurveyRow survey) {
+        return currentLoggedInUsername != null && currentLoggedInUsername.equalsIgnoreCase(survey.getCreator());
+    }
 
-        } catch (MongoException e) {
-            System.err.println("Error loading survey data from MongoDB: " + e.getMessage());
-        } catch (Exception e) {
-            System.err.println("General error loading survey data: " + e.getMessage());
+    /**
+     * FIX: Loads survey data, applying a filter if the user is a Survey Creator.
+     * The query runs in the background; the table shows a loading state until it returns.
+     */
+    private void loadSurveyData() {
+        // Current rows stay visible until the new ones arrive (the placeholder shows only while empty)
+        surveyTable.setItems(masterData);
+        surveyTable.setPlaceholder(QueryScope.loadingPlaceholder("Loading surveys..."));
+
+        // --- CRITICAL FILTERING LOGIC ---
+        Bson filter = new Document(); // Start with an empty filter (shows all)
+        Collation collation = null;
+
+        if ("Survey Creator".equals(currentUserRole)) {
+            // If user is a Survey Creator, filter by the 'creator' field matching the logged-in username
+            // (case-insensitive, like Reports, and served by the creator_ci collation index)
+            filter = Filters.eq("creator", currentLoggedInUsername);
+            collation = MongoManager.CASE_INSENSITIVE;
+            System.out.println("Survey Creator view: Filtering surveys for creator: " + currentLoggedInUsername);
+        } else if ("Administrator".equals(currentUserRole)) {
+            System.out.println("Admin view: Showing all surveys.");
+            // No filter needed, already an empty Document()
+        } else {
+            // Default/Data Entry: Show nothing, or only public surveys (assuming Data Entry sees none here)
+            filter = Filters.eq("_id", null); // Filter that matches nothing
+            System.out.println("Data Entry view: Showing no surveys.");
         }
+        // --- END FILTERING LOGIC ---
+
+        final Bson surveyFilter = filter;
+        final Collation surveyCollation = collation;
+        queryScope.load("surveys", db -> {
+            List<SurveyRow> rows = new ArrayList<>();
+            // Projected listing: only the row fields, with the question count computed by $size
+            for (Survey survey : SurveyListingQueries.listSurveys(db, surveyFilter, surveyCollation)) {
+                rows.add(new SurveyRow(survey));
+            }
+            return rows;
+        }, rows -> {
+            masterData.setAll(rows);
+            surveyTable.setPlaceholder(new Label("No surveys found."));
+        }, error -> {
+            if (error instanceof MongoException) {
+                System.err.println("Error loading survey data from MongoDB: " + error.getMessage());
+            } else {
+                System.err.println("General error loading survey data: " + error.getMessage());
+            }
+            surveyTable.setPlaceholder(new Label("Could not load surveys. Check the database connection."));
+        });
+    }
+
+    /**
+     * Called when the cached view is shown again: reloads the survey list in the background.
+     */
+    @Override
+    public void refresh() {
+        loadSurveyData();
     }
 
     // --- Button Handlers (Needs access control for edit/delete) ---
@@ -210,7 +333,7 @@ public class SurveyController {
     }
 
     private void handleEditSurvey() {
-        Survey selectedSurvey = surveyTable.getSelectionModel().getSelectedItem();
+        SurveyRow selectedSurvey = surveyTable.getSelectionModel().getSelectedItem();
 
         if (selectedSurvey == null) {
             showAlert(AlertType.WARNING, "No Selection", "Please select a survey from the table to edit.");
@@ -218,7 +341,7 @@ public class SurveyController {
         }
 
         // --- Access Control Check for Edit ---
-        if ("Survey Creator".equals(currentUserRole) && !selectedSurvey.getCreator().equals(currentLoggedInUsername)) {
+        if ("Survey Creator".equals(currentUserRole) && !isCreatedByCurrentUser(selectedSurvey)) {
             showAlert(AlertType.ERROR, "Permission Denied", "You can only edit surveys that you have created.");
             return;
         }
@@ -248,7 +371,7 @@ public class SurveyController {
     }
 
     private void handleDeleteSurvey() {
-        Survey selectedSurvey = surveyTable.getSelectionModel().getSelectedItem();
+        SurveyRow selectedSurvey = surveyTable.getSelectionModel().getSelectedItem();
 
         if (selectedSurvey == null) {
             showAlert(AlertType.WARNING, "No Selection", "Please select a survey from the table to delete.");
@@ -256,7 +379,7 @@ public class SurveyController {
         }
 
         // --- Access Control Check for Delete ---
-        if ("Survey Creator".equals(currentUserRole) && !selectedSurvey.getCreator().equals(currentLoggedInUsername)) {
+        if ("Survey Creator".equals(currentUserRole) && !isCreatedByCurrentUser(selectedSurvey)) {
             showAlert(AlertType.ERROR, "Permission Denied", "You can only delete surveys that you have created.");
             return;
         }
@@ -269,7 +392,7 @@ public class SurveyController {
         Optional<ButtonType> result = confirmAlert.showAndWait();
 
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            if (deleteSurveyFromMongo(selectedSurvey.getName())) {
+            if (deleteSurveyFromMongo(selectedSurvey.getId(), selectedSurvey.getName())) {
                 refreshTable();
                 System.out.println("SUCCESS: Survey deleted: " + selectedSurvey.getName());
             } else {
@@ -280,7 +403,7 @@ public class SurveyController {
 
     // The handleManageQuestions should also check permission
     private void handleManageQuestions() {
-        Survey selectedSurvey = surveyTable.getSelectionModel().getSelectedItem();
+        SurveyRow selectedSurvey = surveyTable.getSelectionModel().getSelectedItem();
 
         if (selectedSurvey == null) {
             showAlert(AlertType.WARNING, "No Selection", "Please select a survey to manage its questions.");
@@ -288,7 +411,7 @@ public class SurveyController {
         }
 
         // --- Access Control Check for Question Management ---
-        if ("Survey Creator".equals(currentUserRole) && !selectedSurvey.getCreator().equals(currentLoggedInUsername)) {
+        if ("Survey Creator".equals(currentUserRole) && !isCreatedByCurrentUser(selectedSurvey)) {
             showAlert(AlertType.ERROR, "Permission Denied", "You can only manage questions for surveys that you have created.");
             return;
         }
@@ -296,28 +419,59 @@ public class SurveyController {
         loadQuestionBuilderModal(selectedSurvey);
     }
 
+    /**
+     * Opens the bulk import dialog (CSV / JSONL) for the selected survey. Same permissions as question management.
+     */
+    private void handleImportResponses() {
+        SurveyRow selectedSurvey = surveyTable.getSelectionModel().getSelectedItem();
+
+        if (selectedSurvey == null) {
+            showAlert(AlertType.WARNING, "No Selection", "Please select a survey to import responses into.");
+            return;
+        }
+
+        if ("Survey Creator".equals(currentUserRole) && !isCreatedByCurrentUser(selectedSurvey)) {
+            showAlert(AlertType.ERROR, "Permission Denied", "You can only import responses into surveys that you have created.");
+            return;
+        }
+
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/fsm/import-responses-view.fxml"));
+            Parent root = loader.load();
+
+            ImportResponsesController importController = loader.getController();
+            importController.initData(selectedSurvey.getId(), selectedSurvey.getName(), currentLoggedInUsername);
+
+            Stage stage = new Stage();
+            stage.setTitle("Import Responses: " + selectedSurvey.getName());
+            stage.initModality(Modality.APPLICATION_MODAL);
+
+            stage.setScene(new Scene(root));
+            stage.showAndWait();
+
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("Error loading Import Responses dialog: " + e.getMessage());
+        }
+    }
+
 
     /**
-     * Executes the MongoDB delete operation.
+     * Executes the MongoDB delete operation, matched on the survey's _id.
+     * Its responses are removed in the background (CascadeDeleteJob); progress shows under the table.
      */
-    private boolean deleteSurveyFromMongo(String surveyName) {
+    private boolean deleteSurveyFromMongo(String surveyId, String surveyName) {
         // PERFORMANCE FIX: Use the Singleton instance to get the shared database connection
         MongoDatabase db = MongoManager.getInstance().getDatabase();
         if (db == null) {
             return false; // Connection failed
         }
 
-        try {
-            MongoCollection<Document> collection = db.getCollection("surveys");
-            collection.deleteOne(Filters.eq("name", surveyName));
-            return true;
-        } catch (MongoException e) {
-            System.err.println("MongoDB Delete Error: " + e.getMessage());
-            return false;
-        }
+        // NOT_FOUND means someone else already deleted it, which is what the user wanted
+        return SurveyRepository.delete(db, new ObjectId(surveyId), surveyName) != SurveyRepository.WriteResult.FAILED;
     }
 
-    private void loadQuestionBuilderModal(Survey survey) {
+    private void loadQuestionBuilderModal(SurveyRow survey) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/fsm/question-builder-view.fxml"));
             Parent root = loader.load();
@@ -341,7 +495,12 @@ public class SurveyController {
         }
     }
 
+    /**
+     * Called after this client edits a survey. With live updates on, the change arrives through the
+     * change stream, so the whole table is only re-queried when streams are unavailable.
+     */
     public void refreshTable() {
+        if (ChangeStreamService.getInstance().isActive()) return;
         loadSurveyData();
     }
 
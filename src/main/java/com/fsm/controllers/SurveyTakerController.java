@@ -1,9 +1,13 @@
 package com.fsm.controllers;
 
-import com.fsm.database.MongoManager;
-import com.mongodb.client.MongoCollection;
-import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.model.Filters;
+import com.fsm.database.QueryScope;
+import com.fsm.database.SurveyDefinitionCache;
+import com.fsm.database.SurveyListingQueries;
+import com.fsm.database.ResponseSubmissionQueue;
+import com.fsm.model.Answer;
+import com.fsm.model.Question;
+import com.fsm.model.Survey;
+import com.fsm.model.codec.ResponseFormat;
 import org.bson.Document;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -12,6 +16,7 @@ import javafx.scene.layout.VBox;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -19,19 +24,20 @@ import java.util.Map;
 import com.mongodb.MongoException;
 import org.bson.types.ObjectId;
 
-public class SurveyTakerController {
+public class SurveyTakerController implements RefreshableView {
 
     @FXML private Label lblUsername;
     @FXML private ComboBox<SurveyItem> cmbSurveySelector;
     @FXML private ScrollPane questionScrollPane;
     @FXML private VBox questionsContainer;
     @FXML private Button btnSubmit;
+    @FXML private Label lblSubmitStatus;
 
     // Key: Question ID, Value: The JavaFX control (TextField, ToggleGroup, CheckBox list)
     private final Map<String, Object> responseControls = new HashMap<>();
 
     // Store the question list from the currently loaded survey to check for mandatory status
-    private List<Document> currentQuestionsMetadata = new ArrayList<>();
+    private List<Question> currentQuestionsMetadata = new ArrayList<>();
 
     private String currentUserRole;
     private String currentUsername;
@@ -44,20 +50,26 @@ public class SurveyTakerController {
         public String toString() { return name; }
     }
 
+    // Background queries owned by this view
+    private final QueryScope queryScope = new QueryScope();
+
     @FXML
     public void initialize() {
         loadActiveSurveys();
 
         cmbSurveySelector.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal != null) {
-                // When a new survey is selected, load its questions
+                // When a new survey is selected, load its questions (Submit is enabled once they arrive)
                 loadSurveyQuestions(newVal.id);
-                btnSubmit.setDisable(false);
             } else {
+                queryScope.cancel("questions");
                 questionsContainer.getChildren().clear();
                 btnSubmit.setDisable(true);
             }
         });
+
+        // Cancel any pending background query once this view is navigated away from
+        queryScope.bindTo(questionsContainer);
     }
 
     /**
@@ -72,119 +84,137 @@ public class SurveyTakerController {
     }
 
     private void loadActiveSurveys() {
-        MongoDatabase db = MongoManager.getInstance().getDatabase();
-        if (db == null) return;
-
-        ObservableList<SurveyItem> surveys = FXCollections.observableArrayList();
-
-        try {
-            MongoCollection<Document> surveyCollection = db.getCollection("surveys");
-
-            // Filter the surveys collection to only include documents where status is "Active"
-            Document filter = new Document("status", "Active");
+        cmbSurveySelector.setPromptText("Loading surveys...");
 
-            // Iterate over the filtered results
-            for (Document doc : surveyCollection.find(filter)) {
+        queryScope.load("surveys", db -> {
+            List<SurveyItem> surveys = new ArrayList<>();
+            // Only Active surveys, and only their _id and name (not the questions)
+            for (Document doc : SurveyListingQueries.listActiveSurveyNames(db)) {
                 String id = doc.getObjectId("_id").toHexString();
                 String name = doc.getString("name");
                 surveys.add(new SurveyItem(id, name));
             }
-            cmbSurveySelector.setItems(surveys);
+            return surveys;
+        }, surveys -> {
+            cmbSurveySelector.setItems(FXCollections.observableArrayList(surveys));
+            cmbSurveySelector.setPromptText("Choose a survey to begin");
+        }, error -> {
+            System.err.println("Error loading surveys: " + error.getMessage());
+            cmbSurveySelector.setPromptText("Could not load surveys");
+        });
+    }
 
-        } catch (MongoException e) {
-            System.err.println("Error loading surveys: " + e.getMessage());
+    /**
+     * Called when the cached view is shown again. The active survey list is reloaded only if no survey
+     * is selected: replacing the list would clear the selection and throw away answers being entered.
+     */
+    @Override
+    public void refresh() {
+        if (cmbSurveySelector.getSelectionModel().getSelectedItem() == null) {
+            loadActiveSurveys();
         }
     }
 
     private void loadSurveyQuestions(String surveyId) {
-        questionsContainer.getChildren().clear();
+        questionsContainer.getChildren().setAll(QueryScope.loadingPlaceholder("Loading questions..."));
         responseControls.clear();
         currentQuestionsMetadata.clear(); // Clear old metadata
+        btnSubmit.setDisable(true);
+
+        queryScope.load("questions", db -> {
+            // Shared definition cache: re-selecting a survey does not fetch it again
+            Survey survey = SurveyDefinitionCache.get(db, surveyId);
+            return survey != null ? survey.questions() : List.<Question>of();
+        }, questions -> {
+            questionsContainer.getChildren().clear();
+            renderQuestions(questions);
+            btnSubmit.setDisable(false);
+        }, error -> {
+            questionsContainer.getChildren().setAll(new Label("Could not load the survey questions."));
+            if (error instanceof MongoException) {
+                System.err.println("Error loading survey questions: " + error.getMessage());
+            } else {
+                System.err.println("General error loading survey questions: " + error.getMessage());
+                error.printStackTrace();
+            }
+        });
+    }
 
-        MongoDatabase db = MongoManager.getInstance().getDatabase();
-        if (db == null) return;
-
+    /**
+     * Builds the input controls for the loaded questions. Runs on the FX thread.
+     */
+    private void renderQuestions(List<Question> questions) {
         try {
-            MongoCollection<Document> surveyCollection = db.getCollection("surveys");
-            Document surveyDoc = surveyCollection.find(Filters.eq("_id", new ObjectId(surveyId))).first();
-
-            if (surveyDoc != null) {
-                List<Document> questions = surveyDoc.getList("questions", Document.class, new ArrayList<>());
-                currentQuestionsMetadata.addAll(questions); // Store the metadata
-
-                for (int i = 0; i < questions.size(); i++) {
-                    Document q = questions.get(i);
-                    String questionId = q.getString("id");
-                    String type = q.getString("type").toUpperCase();
-                    String text = q.getString("text");
-                    // Check if the question is marked as mandatory (default to false if key missing)
-                    boolean isMandatory = q.getBoolean("isMandatory", false);
-
-                    VBox questionBox = new VBox(5);
-
-                    String mandatoryMark = isMandatory ? " (*)" : "";
-                    Label questionLabel = new Label((i + 1) + ". " + text + mandatoryMark);
-                    questionLabel.setStyle("-fx-font-weight: bold; -fx-padding: 5 0 0 0;");
-                    questionBox.getChildren().add(questionLabel);
-
-                    // Dynamically create the appropriate JavaFX control based on normalized type
-                    switch (type) {
-                        case "TEXT_INPUT":
-                        case "TEXT":
-                            TextField textField = new TextField();
-                            textField.setPromptText("Enter response here...");
-                            questionBox.getChildren().add(textField);
-                            responseControls.put(questionId, textField);
-                            break;
-
-                        case "SINGLE_CHOICE":
-                        case "RADIO":
-                            ToggleGroup group = new ToggleGroup();
-                            VBox radioOptions = new VBox(3);
-                            List<String> radioList = q.getList("options", String.class, new ArrayList<>());
-                            for (String option : radioList) {
-                                RadioButton radio = new RadioButton(option);
-                                radio.setToggleGroup(group);
-                                radioOptions.getChildren().add(radio);
-                            }
-                            questionBox.getChildren().add(radioOptions);
-                            responseControls.put(questionId, group);
-                            break;
-
-                        case "MULTI_CHOICE":
-                        case "CHECKBOX":
-                            VBox checkboxOptions = new VBox(3);
-                            List<String> checkboxList = q.getList("options", String.class, new ArrayList<>());
-                            List<CheckBox> checkBoxes = new ArrayList<>();
-                            for (String option : checkboxList) {
-                                CheckBox cb = new CheckBox(option);
-                                checkboxOptions.getChildren().add(cb);
-                                checkBoxes.add(cb);
-                            }
-                            questionBox.getChildren().add(checkboxOptions);
-                            responseControls.put(questionId, checkBoxes);
-                            break;
-
-                        case "RATING":
-                            Label ratingNote = new Label("Enter a rating (e.g., 1-5 or 1-10):");
-                            TextField ratingField = new TextField();
-                            ratingField.setMaxWidth(150);
-                            questionBox.getChildren().addAll(ratingNote, ratingField);
-                            responseControls.put(questionId, ratingField);
-                            break;
-
-                        default:
-                            System.err.println("WARNING: Unrecognized question type: " + q.getString("type") + " for question ID: " + questionId);
-                            Label errorLabel = new Label("--- ERROR: Unrecognized question type: " + q.getString("type") + " ---");
-                            questionBox.getChildren().add(errorLabel);
-                            break;
-                    }
-
-                    questionsContainer.getChildren().add(questionBox);
+            currentQuestionsMetadata.addAll(questions); // Store the metadata
+
+            for (int i = 0; i < questions.size(); i++) {
+                Question q = questions.get(i);
+                String questionId = q.id();
+                String type = q.type() != null ? q.type().toUpperCase() : "";
+                String text = q.text();
+                // Check if the question is marked as mandatory (the codec defaults a missing key to false)
+                boolean isMandatory = q.mandatory();
+
+                VBox questionBox = new VBox(5);
+
+                String mandatoryMark = isMandatory ? " (*)" : "";
+                Label questionLabel = new Label((i + 1) + ". " + text + mandatoryMark);
+                questionLabel.setStyle("-fx-font-weight: bold; -fx-padding: 5 0 0 0;");
+                questionBox.getChildren().add(questionLabel);
+
+                // Dynamically create the appropriate JavaFX control based on normalized type
+                switch (type) {
+                    case "TEXT_INPUT":
+                    case "TEXT":
+                        TextField textField = new TextField();
+                        textField.setPromptText("Enter response here...");
+                        questionBox.getChildren().add(textField);
+                        responseControls.put(questionId, textField);
+                        break;
+
+                    case "SINGLE_CHOICE":
+                    case "RADIO":
+                        ToggleGroup group = new ToggleGroup();
+                        VBox radioOptions = new VBox(3);
+                        for (String option : q.options()) {
+                            RadioButton radio = new RadioButton(option);
+                            radio.setToggleGroup(group);
+                            radioOptions.getChildren().add(radio);
+                        }
+                        questionBox.getChildren().add(radioOptions);
+                        responseControls.put(questionId, group);
+                        break;
+
+                    case "MULTI_CHOICE":
+                    case "CHECKBOX":
+                        VBox checkboxOptions = new VBox(3);
+                        List<CheckBox> checkBoxes = new ArrayList<>();
+                        for (String option : q.options()) {
+                            CheckBox cb = new CheckBox(option);
+                            checkboxOptions.getChildren().add(cb);
+                            checkBoxes.add(cb);
+                        }
+                        questionBox.getChildren().add(checkboxOptions);
+                        responseControls.put(questionId, checkBoxes);
+                        break;
+
+                    case "RATING":
+                        Label ratingNote = new Label("Enter a rating (e.g., 1-5 or 1-10):");
+                        TextField ratingField = new TextField();
+                        ratingField.setMaxWidth(150);
+                        questionBox.getChildren().addAll(ratingNote, ratingField);
+                        responseControls.put(questionId, ratingField);
+                        break;
+
+                    default:
+                        System.err.println("WARNING: Unrecognized question type: " + q.type() + " for question ID: " + questionId);
+                        Label errorLabel = new Label("--- ERROR: Unrecognized question type: " + q.type() + " ---");
+                        questionBox.getChildren().add(errorLabel);
+                        break;
                 }
+
+                questionsContainer.getChildren().add(questionBox);
             }
-        } catch (MongoException e) {
-            System.err.println("Error loading survey questions: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("General error loading survey questions: " + e.getMessage());
             e.printStackTrace();
@@ -222,14 +252,14 @@ public class SurveyTakerController {
             return;
         }
 
-        List<Document> responses = new ArrayList<>();
+        List<Answer> responses = new ArrayList<>();
         List<String> missingAnswers = new ArrayList<>();
 
         // Loop through the stored question metadata to check for mandatory status
-        for (Document qMetadata : currentQuestionsMetadata) {
-            String questionId = qMetadata.getString("id");
-            String questionText = qMetadata.getString("text");
-            boolean isMandatory = qMetadata.getBoolean("isMandatory", false);
+        for (Question qMetadata : currentQuestionsMetadata) {
+            String questionId = qMetadata.id();
+            String questionText = qMetadata.text();
+            boolean isMandatory = qMetadata.mandatory();
 
             Object control = responseControls.get(questionId);
             Object answer = null;
@@ -266,20 +296,18 @@ public class SurveyTakerController {
                 missingAnswers.add(questionText);
             }
 
-            // 3. Collect the response for submission (even if empty, unless validation fails)
-            // Ensure answer is properly formatted for MongoDB (empty string or empty list)
-            if (answer == null) {
-                // If it was a mandatory field, it's already caught above. If optional, store empty string.
-                answer = "";
-            } else if (answer instanceof List && ((List)answer).isEmpty()) {
-                // Keep empty list if it was a list type
-                answer = new ArrayList<String>();
+            // 3. Collect the response for submission. Unanswered optional questions are collected
+            // too, but left out of the stored document (v2 responses are sparse).
+            if (answer instanceof List) {
+                // Typed copy: the option labels collected above
+                List<String> choices = new ArrayList<>();
+                for (Object choice : (List<?>) answer) {
+                    choices.add(String.valueOf(choice));
+                }
+                responses.add(Answer.ofChoices(questionId, choices));
+            } else {
+                responses.add(Answer.ofText(questionId, answer != null ? answer.toString() : ""));
             }
-
-            responses.add(new Document()
-                    .append("question_id", questionId)
-                    .append("answer", answer)
-            );
         }
 
         // --- FINAL VALIDATION CHECK ---
@@ -299,33 +327,33 @@ public class SurveyTakerController {
         }
     }
 
-    private void saveResponse(String surveyId, List<Document> responses) {
-        MongoDatabase db = MongoManager.getInstance().getDatabase();
-
-        if (db == null) {
-            showAlert("FATAL ERROR", "Database connection failed. Check MongoManager.", AlertType.ERROR);
-            return;
-        }
-
+    /**
+     * Queues the response in the local write-behind journal. The data-entry user only waits for the
+     * local fsync; the ResponseSubmissionQueue sends it to MongoDB in the background.
+     */
+    private void saveResponse(String surveyId, List<Answer> responses) {
         try {
-            MongoCollection<Document> responseCollection = db.getCollection("responses");
-
+            // Compact v2 format: sparse answers, int ratings, options as dictionary indexes
             Document responseDoc = new Document()
                     .append("survey_id", new ObjectId(surveyId))
                     // Use the dynamically set currentUsername
                     .append("user_id", this.currentUsername)
                     .append("timestamp", new java.util.Date())
-                    .append("answers", responses);
+                    .append(ResponseFormat.VERSION_FIELD, ResponseFormat.V2)
+                    .append(ResponseFormat.ANSWERS_FIELD, ResponseFormat.encodeAnswers(responses, currentQuestionsMetadata));
 
-            responseCollection.insertOne(responseDoc);
+            ResponseSubmissionQueue queue = ResponseSubmissionQueue.getInstance();
+            queue.submit(responseDoc);
 
-            showAlert("Success", "Survey response saved successfully! Form is now reset for the next entry.", AlertType.INFORMATION);
+            int waiting = queue.pendingCount();
+            lblSubmitStatus.setText("✅ Response saved at " + java.time.LocalTime.now().withNano(0)
+                    + (waiting > 0 ? "  (" + waiting + " waiting to sync)" : "") + ". Form is reset for the next entry.");
 
             resetForm();
 
-        } catch (MongoException e) {
-            System.err.println("MongoDB Error saving survey response: " + e.getMessage());
-            showAlert("Database Error", "Failed to save response due to a database error: " + e.getMessage(), AlertType.ERROR);
+        } catch (IOException e) {
+            System.err.println("Error journaling survey response: " + e.getMessage());
+            showAlert("Save Error", "Failed to save the response locally: " + e.getMessage(), AlertType.ERROR);
         } catch (Exception e) {
             System.err.println("General Error saving survey response: " + e.getMessage());
             showAlert("General Error", "Failed to save response. See console for details.", AlertType.ERROR);
@@ -4,12 +4,18 @@ import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.MongoException;
 import org.bson.Document;
+import com.fsm.database.AsyncDataService;
 import com.fsm.database.MongoManager;
+import com.fsm.database.QueryScope;
+import com.fsm.database.SurveyListingQueries;
+import com.fsm.database.UserProvisioning;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.layout.VBox;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -20,15 +26,22 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import javafx.scene.control.TextArea;
+import javafx.stage.FileChooser;
 
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ButtonType;
 import com.mongodb.client.model.Filters;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 
-public class UserController {
+public class UserController implements RefreshableView {
 
     public static class User {
         private String username;
@@ -52,9 +65,13 @@ public class UserController {
     @FXML private Button btnAddUser;
     @FXML private Button btnEditUser;
     @FXML private Button btnDeleteUser;
+    @FXML private Button btnImportUsers;
 
     private final ObservableList<User> masterData = FXCollections.observableArrayList();
 
+    // Background queries owned by this view
+    private final QueryScope queryScope = new QueryScope();
+
     private String currentUserRole;
     private String currentLoggedInUsername;
 
@@ -83,6 +100,7 @@ public class UserController {
             btnAddUser.setDisable(true);
             btnEditUser.setDisable(true);
             btnDeleteUser.setDisable(true);
+            btnImportUsers.setDisable(true);
 
             System.out.println("User view: Modification buttons disabled for role: " + currentUserRole);
         }
@@ -92,41 +110,53 @@ public class UserController {
     public void initialize() {
         colUsername.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getUsername()));
         colRole.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getRole()));
+
+        // Cancel any pending background query once this view is navigated away from
+        queryScope.bindTo(userTable);
     }
 
     public void refreshTable() {
         loadUserData();
     }
 
+    /**
+     * Called when the cached view is shown again: reloads the user list in the background.
+     */
+    @Override
+    public void refresh() {
+        loadUserData();
+    }
+
     /**
      * FIX: Loads user data using the efficient Singleton database connection.
+     * The query runs in the background; the table shows a loading state until it returns.
      */
     private void loadUserData() {
-        masterData.clear();
-        // PERFORMANCE FIX: Use the Singleton instance to get the shared database connection
-        MongoDatabase db = MongoManager.getInstance().getDatabase();
+        // Current rows stay visible until the new ones arrive (the placeholder shows only while empty)
         userTable.setItems(masterData);
+        userTable.setPlaceholder(QueryScope.loadingPlaceholder("Loading users..."));
 
-        if (db == null) {
-            System.err.println("Database connection failed. Cannot load user data.");
-            return;
-        }
-
-        try {
-            MongoCollection<Document> userCollection = db.getCollection("users");
-
-            for (Document doc : userCollection.find()) {
+        queryScope.load("users", db -> {
+            List<User> rows = new ArrayList<>();
+            // Only username and role; password hashes are never loaded into the list
+            for (Document doc : SurveyListingQueries.listUsers(db)) {
                 String username = doc.getString("username");
                 String role = doc.getString("role");
 
-                masterData.add(new User(username, role));
+                rows.add(new User(username, role));
             }
-
-        } catch (MongoException e) {
-            System.err.println("Error loading user data from MongoDB: " + e.getMessage());
-        } catch (Exception e) {
-            System.err.println("General error loading user data: " + e.getMessage());
-        }
+            return rows;
+        }, rows -> {
+            masterData.setAll(rows);
+            userTable.setPlaceholder(new Label("No users found."));
+        }, error -> {
+            if (error instanceof MongoException) {
+                System.err.println("Error loading user data from MongoDB: " + error.getMessage());
+            } else {
+                System.err.println("General error loading user data: " + error.getMessage());
+            }
+            userTable.setPlaceholder(new Label("Could not load users. Check the database connection."));
+        });
     }
 
     // --- Button Handlers (MUST BE @FXML ANNOTATED) ---
@@ -162,6 +192,73 @@ public class UserController {
         }
     }
 
+    /**
+     * Handles the Import Users button action: creates every user of a CSV file (username,password[,role])
+     * in one batch. Runs in the background; BCrypt makes this take a while for large teams.
+     */
+    @FXML
+    private void handleImportUsers() {
+        if (!"Administrator".equals(currentUserRole)) {
+            showAlert(AlertType.ERROR, "Access Denied", "Only Administrators can add users.");
+            return;
+        }
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Import Users (username,password,role)");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files (*.csv)", "*.csv"));
+        File file = fileChooser.showOpenDialog(btnImportUsers.getScene().getWindow());
+        if (file == null) return;
+
+        btnImportUsers.setDisable(true);
+        btnImportUsers.setText("Importing...");
+
+        // Not through queryScope: leaving the screen would cancel the callback (and could interrupt the
+        // inserts halfway), losing the summary and leaving the button stuck on "Importing...".
+        // The import always runs to the end; the cached view picks up the result when shown again.
+        AsyncDataService.supply(db -> {
+            try {
+                return UserProvisioning.provisionFromCsv(db, file.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((result, error) -> Platform.runLater(() -> {
+            resetImportButton();
+            if (error != null) {
+                Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+                System.err.println("Error importing users: " + cause.getMessage());
+                showAlert(AlertType.ERROR, "Import Failed", "Could not import the users: " + cause.getMessage());
+                return;
+            }
+            refreshTable();
+            showProvisioningResult(result);
+        }));
+    }
+
+    private void resetImportButton() {
+        btnImportUsers.setDisable(false);
+        btnImportUsers.setText("Import Users...");
+    }
+
+    /**
+     * Summary alert; the rejected rows (if any) are listed in the expandable details.
+     */
+    private void showProvisioningResult(UserProvisioning.Result result) {
+        Alert alert = new Alert(result.getRejected().isEmpty() ? AlertType.INFORMATION : AlertType.WARNING);
+        alert.setTitle("Import Users");
+        alert.setHeaderText(null);
+        alert.setContentText(result.getCreated() + " users created, " + result.getRejected().size()
+                + " rows rejected (" + result.getElapsedMs() + " ms).");
+
+        if (!result.getRejected().isEmpty()) {
+            TextArea details = new TextArea(String.join("\n", result.getRejected()));
+            details.setEditable(false);
+            details.setWrapText(true);
+            alert.getDialogPane().setExpandableContent(details);
+            alert.getDialogPane().setExpanded(true);
+        }
+        alert.showAndWait();
+    }
+
     /**
      * Handles the Edit User button action.
      */
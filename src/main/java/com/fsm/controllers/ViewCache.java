@@ -0,0 +1,92 @@
+package com.fsm.controllers;
+
+import javafx.scene.Parent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps parsed dashboard views and their controllers for one login session, keyed by FXML path,
+ * so switching back to a screen does not re-parse the FXML or rebuild the controller.
+ *
+ * The least recently shown view is dropped once more than -Dfsm.viewCache.size views are cached
+ * (default 5, 0 disables caching). A cache belongs to one user and role; MainDashboardController
+ * creates a new one for every login and clears it on logout.
+ */
+public class ViewCache {
+
+    // -----------------------------------------------------------
+    // Nested Model Class: A parsed view and its controller
+    // -----------------------------------------------------------
+    public static class CachedView {
+        private final Parent view;
+        private final Object controller;
+
+        public CachedView(Parent view, Object controller) {
+            this.view = view;
+            this.controller = controller;
+        }
+
+        public Parent getView() { return view; }
+        public Object getController() { return controller; }
+    }
+    // -----------------------------------------------------------
+
+    private final String username;
+    private final String role;
+    private final int maxSize;
+
+    // Access-ordered: iteration starts at the least recently used view
+    private final Map<String, CachedView> views;
+
+    public ViewCache(String username, String role) {
+        this(username, role, Integer.getInteger("fsm.viewCache.size", 5));
+    }
+
+    public ViewCache(String username, String role, int maxSize) {
+        this.username = username;
+        this.role = role;
+        this.maxSize = Math.max(0, maxSize);
+        this.views = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedView> eldest) {
+                if (size() > ViewCache.this.maxSize) {
+                    System.out.println("ViewCache: Evicting " + eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return The cached view for this FXML path (marking it as most recently used), or null.
+     */
+    public CachedView get(String fxmlPath) {
+        return views.get(fxmlPath);
+    }
+
+    public void put(String fxmlPath, CachedView view) {
+        if (maxSize == 0) return;
+        views.put(fxmlPath, view);
+    }
+
+    /**
+     * Drops one view, so the next visit builds it from scratch.
+     */
+    public void invalidate(String fxmlPath) {
+        views.remove(fxmlPath);
+    }
+
+    public void clear() {
+        views.clear();
+    }
+
+    /**
+     * @return true if this cache was built for the given user and role.
+     */
+    public boolean belongsTo(String username, String role) {
+        return Objects.equals(this.username, username) && Objects.equals(this.role, role);
+    }
+}
@@ -0,0 +1,77 @@
+package com.fsm.database;
+
+import com.mongodb.client.MongoDatabase;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Runs blocking MongoDB work off the JavaFX Application Thread.
+ * Every query gets its own virtual thread, so a slow link only parks that thread
+ * instead of freezing the UI. Results come back as CompletableFutures;
+ * see QueryScope for marshalling them back onto the FX thread.
+ */
+public class AsyncDataService {
+
+    // Virtual threads are cheap enough to spawn one per query and block freely on driver I/O
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private AsyncDataService() {
+        // Static helper class, no instances.
+    }
+
+    /**
+     * Executes a database query on a virtual thread.
+     * Cancelling the returned future interrupts the worker, which aborts the
+     * in-progress driver call (it surfaces as a MongoInterruptedException inside the worker).
+     *
+     * @param query The work to run against the shared MongoDatabase.
+     * @return A future completed with the query result, or exceptionally if the query failed
+     *         or the database connection is unavailable.
+     */
+    public static <T> CompletableFuture<T> supply(Function<MongoDatabase, T> query) {
+        return supply(query, false);
+    }
+
+    /**
+     * Same as supply(), but the query runs against the report database handle
+     * (configured report read preference, e.g. secondaries). Use for read-only report work.
+     */
+    public static <T> CompletableFuture<T> supplyReport(Function<MongoDatabase, T> query) {
+        return supply(query, true);
+    }
+
+    private static <T> CompletableFuture<T> supply(Function<MongoDatabase, T> query, boolean report) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // Attribute the query's commands to the screen that asked for it (see MongoMetrics)
+        String screen = MongoMetrics.getInstance().getCurrentScreen();
+
+        Future<?> worker = EXECUTOR.submit(() -> {
+            MongoMetrics.tagThreadScreen(screen);
+            try {
+                MongoManager manager = MongoManager.getInstance();
+                MongoDatabase db = report ? manager.getReportDatabase() : manager.getDatabase();
+                if (db == null) {
+                    throw new IllegalStateException("Database connection failed. Check MongoManager.");
+                }
+                result.complete(query.apply(db));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                MongoMetrics.clearThreadScreen();
+            }
+        });
+
+        // Propagate cancellation to the worker thread
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                worker.cancel(true);
+            }
+        });
+
+        return result;
+    }
+}
@@ -0,0 +1,197 @@
+package com.fsm.database;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
+import io.github.cdimascio.dotenv.Dotenv;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Login pipeline: the user lookup and the BCrypt check run on a small, bounded pool of
+ * worker threads and the result comes back as a CompletableFuture, so the FX thread never waits on them.
+ *
+ * BCrypt is deliberately slow and CPU-bound, so the pool is capped (-Dfsm.auth.threads, default up to 4)
+ * and its queue is bounded; attempts beyond that are rejected instead of piling up.
+ * The cost factor comes from -Dfsm.bcrypt.cost or BCRYPT_COST in .env (default 10, BCrypt's own default).
+ * When a user logs in with a hash of a different cost, the hash is upgraded in the background.
+ */
+public class AuthService {
+
+    public static final int DEFAULT_COST = 10;
+    private static final int QUEUE_CAPACITY = 32;
+
+    private static final int BCRYPT_COST = loadCost();
+
+    // Compared against when the user does not exist, so "unknown user" takes as long as "wrong password"
+    private static final String DUMMY_HASH = BCrypt.hashpw("not-a-real-password", BCrypt.gensalt(BCRYPT_COST));
+
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private AuthService() {
+        // Static helper class, no instances.
+    }
+
+    /**
+     * The BCrypt cost factor used for new hashes (log2 of the number of rounds).
+     */
+    public static int getBcryptCost() {
+        return BCRYPT_COST;
+    }
+
+    /**
+     * Authenticates a user off the caller's thread.
+     *
+     * @return A future completed with the user Document on success, or null for invalid credentials.
+     *         It completes exceptionally if the database is unavailable or too many logins are in progress.
+     */
+    public static CompletableFuture<Document> authenticateAsync(String username, String password, String role) {
+        CompletableFuture<Document> result = new CompletableFuture<>();
+        try {
+            EXECUTOR.execute(() -> {
+                try {
+                    Document user = authenticate(username, password, role);
+                    result.complete(user);
+                    // After the caller already has its answer: upgrade the stored hash if its cost is outdated
+                    if (user != null) {
+                        rehashIfNeeded(user, password);
+                    }
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IllegalStateException("Too many login attempts in progress. Please try again."));
+        }
+        return result;
+    }
+
+    /**
+     * Synchronous login check: finds the user by username AND role, then verifies the password.
+     * Blocks for the length of a BCrypt check; call it from a worker thread, never the FX thread.
+     *
+     * @return The user Document, or null if the credentials or role do not match.
+     * @throws IllegalStateException if the database connection is unavailable.
+     */
+    public static Document authenticate(String username, String password, String role) {
+        MongoDatabase db = MongoManager.getInstance().getDatabase();
+        if (db == null) {
+            throw new IllegalStateException("Database connection failed. Check MongoManager.");
+        }
+
+        MongoCollection<Document> userCollection = db.getCollection("users");
+
+        // STEP 1: Find user by combined criteria: username AND role
+        Bson filter = Filters.and(
+                Filters.eq("username", username),
+                Filters.eq("role", role)
+        );
+        Document userDoc = userCollection.find(filter).first();
+
+        // STEP 2: Compare the plain password with the stored hash (or a dummy one, to keep timing uniform)
+        String storedHash = userDoc != null ? userDoc.getString("password") : null;
+        boolean matches = MongoManager.checkPassword(password, storedHash != null ? storedHash : DUMMY_HASH);
+
+        if (userDoc != null && matches) {
+            System.out.println("✅ Login Successful for user: " + username + " with role: " + role);
+            return userDoc;
+        }
+
+        System.out.println("❌ Login Failed: Invalid credentials or role for user: " + username);
+        return null;
+    }
+
+    /**
+     * Re-hashes the password at the configured cost if the stored hash uses a different one.
+     * The update only applies if the stored hash is still the one we verified (no lost concurrent change).
+     */
+    private static void rehashIfNeeded(Document userDoc, String password) {
+        String storedHash = userDoc.getString("password");
+        int storedCost = costOf(storedHash);
+        if (storedCost == BCRYPT_COST) return;
+
+        try {
+            MongoDatabase db = MongoManager.getInstance().getDatabase();
+            if (db == null) return;
+
+            String newHash = MongoManager.hashPassword(password);
+            UpdateResult update = db.getCollection("users").updateOne(
+                    Filters.and(Filters.eq("_id", userDoc.get("_id")), Filters.eq("password", storedHash)),
+                    Updates.set("password", newHash));
+
+            if (update.getModifiedCount() > 0) {
+                System.out.println("✅ AuthService: Upgraded password hash for " + userDoc.getString("username")
+                        + " from cost " + storedCost + " to " + BCRYPT_COST + ".");
+            }
+        } catch (Exception e) {
+            // Not fatal: the old hash still works, we'll try again on the next login
+            System.err.println("⚠️ AuthService: Could not upgrade password hash: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the cost from a BCrypt hash ("$2a$10$..."), or -1 if it is not a BCrypt hash.
+     */
+    static int costOf(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$') return -1;
+        try {
+            int costStart = hash.indexOf('$', 1) + 1;
+            return Integer.parseInt(hash.substring(costStart, costStart + 2));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    // --- Setup ---
+
+    private static int loadCost() {
+        String value = System.getProperty("fsm.bcrypt.cost");
+        if (value == null) {
+            try {
+                value = Dotenv.configure().ignoreIfMissing().load().get("BCRYPT_COST");
+            } catch (Exception e) {
+                value = null;
+            }
+        }
+        if (value == null || value.isBlank()) return DEFAULT_COST;
+
+        try {
+            int cost = Integer.parseInt(value.trim());
+            if (cost < 4 || cost > 31) {
+                System.out.println("⚠️ WARNING: BCRYPT_COST must be between 4 and 31, got " + cost + ". Using " + DEFAULT_COST + ".");
+                return DEFAULT_COST;
+            }
+            return cost;
+        } catch (NumberFormatException e) {
+            System.out.println("⚠️ WARNING: BCRYPT_COST must be a number, got '" + value + "'. Using " + DEFAULT_COST + ".");
+            return DEFAULT_COST;
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        int threads = Integer.getInteger("fsm.auth.threads", Math.min(4, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger counter = new AtomicInteger();
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "auth-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        // Idle workers go away between logins
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,378 @@
+package com.fsm.database;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Background removal of the responses of deleted surveys.
+ *
+ * Deleting a survey records a job in 'maintenance_jobs' before the survey document goes away:
+ *   { _id: "cascade-delete:&lt;survey hex&gt;", type, survey_id, survey_name, last_id, deleted, total,
+ *     status: "pending" | "done" | "cancelled", lease_until, created_at, updated_at }
+ * A single worker thread then deletes the survey's responses in _id order, one bounded deleteMany
+ * per batch (an _id range found through the survey_id_id index), and saves 'last_id' after every batch.
+ * A job interrupted by closing the app continues from its checkpoint on the next start, in this client
+ * or any other. A short lease keeps two clients from working on the same job at once.
+ * A job whose survey still exists (the delete failed after the job was recorded) is cancelled, by
+ * SurveyRepository.delete right away or by the worker, which checks before removing anything.
+ *
+ * Throttling: after each batch the worker sleeps at least -Dfsm.cascade.pauseMs (default 200) and at
+ * least as long as the batch took, so it never uses more than about half of the time it is awake.
+ * Batch size is -Dfsm.cascade.batchSize (default 500).
+ */
+public class CascadeDeleteJob {
+
+    private static CascadeDeleteJob instance;
+
+    public static final String COLLECTION = "maintenance_jobs";
+    private static final String TYPE = "cascade_delete_responses";
+
+    private static final int BATCH_SIZE = Math.max(1, Integer.getInteger("fsm.cascade.batchSize", 500));
+    private static final long PAUSE_MS = Math.max(0, Long.getLong("fsm.cascade.pauseMs", 200));
+    private static final long LEASE_MS = 60_000;
+    private static final long IDLE_POLL_MS = 30_000;
+
+    // -----------------------------------------------------------
+    // Nested Model Class: Progress of one job, for the UI
+    // -----------------------------------------------------------
+    public static class Progress {
+        private final String surveyId;
+        private final String surveyName;
+        private final long deleted;
+        private final long total;      // Estimate from the response counter; may be 0 if unknown
+        private final boolean done;
+
+        Progress(String surveyId, String surveyName, long deleted, long total, boolean done) {
+            this.surveyId = surveyId;
+            this.surveyName = surveyName;
+            this.deleted = deleted;
+            this.total = total;
+            this.done = done;
+        }
+
+        public String getSurveyId() { return surveyId; }
+        public String getSurveyName() { return surveyName; }
+        public long getDeleted() { return deleted; }
+        public long getTotal() { return total; }
+        public boolean isDone() { return done; }
+
+        /**
+         * @return 0..1, or -1 when the total is unknown.
+         */
+        public double getFraction() {
+            if (done) return 1;
+            return total > 0 ? Math.min(1, (double) deleted / total) : -1;
+        }
+
+        @Override
+        public String toString() {
+            if (done) return "Removed " + deleted + " responses of '" + surveyName + "'";
+            return "Removing responses of '" + surveyName + "': " + deleted + (total > 0 ? " / " + total : "");
+        }
+    }
+    // -----------------------------------------------------------
+
+    private final Object wakeLock = new Object();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean stopping = false;
+
+    // Latest progress per survey (jobs of this process), published to subscribers once per frame
+    private final Map<String, Progress> progress = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final List<Consumer<List<Progress>>> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean publishScheduled = new AtomicBoolean();
+
+    private CascadeDeleteJob() {
+        // Singleton
+    }
+
+    public static synchronized CascadeDeleteJob getInstance() {
+        if (instance == null) {
+            instance = new CascadeDeleteJob();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts the worker, which first resumes any unfinished jobs. Called once at application startup.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) return;
+        Thread worker = new Thread(this::workLoop, "cascade-delete");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Lets the current batch finish and stops the worker. The checkpoint is already saved,
+     * so the job continues on the next start.
+     */
+    public void shutdown() {
+        stopping = true;
+        wake();
+    }
+
+    /**
+     * Records a cascade delete for the survey. Call BEFORE deleting the survey document, so a crash in
+     * between leaves a job (whose survey is gone) rather than orphaned responses.
+     */
+    public void schedule(MongoDatabase db, ObjectId surveyId, String surveyName) {
+        Map<String, Integer> counts = ResponseCounterStore.loadCounts(db, List.of(surveyId));
+        long total = counts.getOrDefault(surveyId.toHexString(), 0);
+        Date now = new Date();
+
+        db.getCollection(COLLECTION).updateOne(
+                Filters.eq("_id", jobId(surveyId)),
+                Updates.combine(
+                        Updates.setOnInsert("type", TYPE),
+                        Updates.setOnInsert("survey_id", surveyId),
+                        Updates.setOnInsert("deleted", 0L),
+                        Updates.setOnInsert("created_at", now),
+                        Updates.setOnInsert("lease_until", new Date(0)),
+                        Updates.set("survey_name", surveyName),
+                        Updates.set("total", total),
+                        Updates.set("status", "pending"),
+                        Updates.set("updated_at", now)),
+                new UpdateOptions().upsert(true));
+
+        publish(new Progress(surveyId.toHexString(), surveyName, 0, total, false));
+        System.out.println("✅ CascadeDeleteJob: Scheduled removal of ~" + total + " responses of '" + surveyName + "'.");
+    }
+
+    /**
+     * Withdraws the job of a survey that was not deleted after all (the delete failed after schedule()).
+     * Only a pending job is cancelled; scheduling the survey again re-arms it.
+     */
+    public void cancel(MongoDatabase db, ObjectId surveyId, String surveyName) {
+        db.getCollection(COLLECTION).updateOne(
+                Filters.and(Filters.eq("_id", jobId(surveyId)), Filters.eq("status", "pending")),
+                Updates.combine(
+                        Updates.set("status", "cancelled"),
+                        Updates.set("lease_until", new Date(0)),
+                        Updates.set("updated_at", new Date())));
+        progress.remove(surveyId.toHexString());
+        scheduleDrain();
+        System.out.println("⚠️ CascadeDeleteJob: Cancelled removal of the responses of '" + surveyName + "' (the survey still exists).");
+    }
+
+    /**
+     * Wakes the worker after schedule() and the survey delete, instead of waiting for the next poll.
+     */
+    public void wake() {
+        synchronized (wakeLock) {
+            wakeLock.notifyAll();
+        }
+    }
+
+    /**
+     * Receives the progress of every job run by this client, at most once per frame, on the FX thread,
+     * while the node is part of a scene.
+     */
+    public void bindProgress(Node node, Consumer<List<Progress>> onProgress) {
+        Runnable[] unsubscribe = new Runnable[1];
+        Runnable subscribe = () -> {
+            subscribers.add(onProgress);
+            unsubscribe[0] = () -> subscribers.remove(onProgress);
+            onProgress.accept(snapshot());
+        };
+        if (node.getScene() != null) subscribe.run();
+        node.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null && unsubscribe[0] == null) {
+                subscribe.run();
+            } else if (newScene == null && unsubscribe[0] != null) {
+                unsubscribe[0].run();
+                unsubscribe[0] = null;
+            }
+        });
+    }
+
+    // --- Worker ---
+
+    private void workLoop() {
+        while (!stopping) {
+            boolean worked = false;
+            try {
+                MongoDatabase db = MongoManager.getInstance().getDatabase();
+                if (db == null) {
+                    System.err.println("❌ CascadeDeleteJob: No database connection, cascade deletes are paused.");
+                    return;
+                }
+                Document job = claimNextJob(db);
+                if (job != null) {
+                    run(db, job);
+                    worked = true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("❌ CascadeDeleteJob: " + e.getMessage());
+            }
+
+            if (!worked && !stopping) {
+                synchronized (wakeLock) {
+                    try {
+                        wakeLock.wait(IDLE_POLL_MS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest pending job whose lease has expired, and leases it to this client.
+     */
+    private Document claimNextJob(MongoDatabase db) {
+        Date now = new Date();
+        return db.getCollection(COLLECTION).findOneAndUpdate(
+                Filters.and(Filters.eq("type", TYPE), Filters.eq("status", "pending"), Filters.lt("lease_until", now)),
+                Updates.set("lease_until", new Date(now.getTime() + LEASE_MS)),
+                new FindOneAndUpdateOptions().sort(Sorts.ascending("created_at")).returnDocument(ReturnDocument.AFTER));
+    }
+
+    private void run(MongoDatabase db, Document job) throws InterruptedException {
+        MongoCollection<Document> responses = db.getCollection("responses");
+        MongoCollection<Document> jobs = db.getCollection(COLLECTION);
+
+        String id = job.getString("_id");
+        ObjectId surveyId = job.getObjectId("survey_id");
+        String surveyName = job.getString("survey_name");
+        ObjectId lastId = job.getObjectId("last_id");
+        long deleted = job.get("deleted", Number.class) != null ? job.get("deleted", Number.class).longValue() : 0;
+        long total = job.get("total", Number.class) != null ? job.get("total", Number.class).longValue() : 0;
+
+        // Never remove the responses of a live survey: the delete may have failed after schedule()
+        if (db.getCollection("surveys").countDocuments(Filters.eq("_id", surveyId), new CountOptions().limit(1)) > 0) {
+            Date updatedAt = job.getDate("updated_at");
+            if (updatedAt != null && System.currentTimeMillis() - updatedAt.getTime() < LEASE_MS) {
+                // Just scheduled, the delete may still be on its way: look again once the lease runs out
+                return;
+            }
+            cancel(db, surveyId, surveyName);
+            return;
+        }
+
+        if (lastId != null) {
+            System.out.println("✅ CascadeDeleteJob: Resuming '" + surveyName + "' after " + deleted + " deleted responses.");
+        }
+        publish(new Progress(surveyId.toHexString(), surveyName, deleted, total, false));
+
+        while (!stopping) {
+            long batchStart = System.nanoTime();
+
+            // The next batch's _id range, read from the survey_id_id index (no documents fetched)
+            Bson scope = (lastId != null)
+                    ? Filters.and(Filters.eq("survey_id", surveyId), Filters.gt("_id", lastId))
+                    : Filters.eq("survey_id", surveyId);
+            List<ObjectId> ids = new ArrayList<>(BATCH_SIZE);
+            for (Document doc : responses.find(scope)
+                    .projection(Projections.include("_id"))
+                    .sort(Sorts.ascending("_id"))
+                    .limit(BATCH_SIZE)
+                    .batchSize(BATCH_SIZE)) {
+                ids.add(doc.getObjectId("_id"));
+            }
+
+            if (ids.isEmpty()) {
+                // Responses still queued by a data-entry client may arrive after the checkpoint passed them
+                if (responses.countDocuments(Filters.eq("survey_id", surveyId), new CountOptions().limit(1)) > 0) {
+                    lastId = null;
+                    continue;
+                }
+                finish(db, id, surveyId, surveyName, deleted);
+                return;
+            }
+
+            ObjectId batchEnd = ids.get(ids.size() - 1);
+            Bson range = Filters.and(Filters.eq("survey_id", surveyId),
+                    Filters.gte("_id", ids.get(0)), Filters.lte("_id", batchEnd));
+            long removed = responses.deleteMany(range).getDeletedCount();
+
+            deleted += removed;
+            lastId = batchEnd;
+            jobs.updateOne(Filters.eq("_id", id), Updates.combine(
+                    Updates.set("last_id", lastId),
+                    Updates.set("deleted", deleted),
+                    Updates.set("updated_at", new Date()),
+                    Updates.set("lease_until", new Date(System.currentTimeMillis() + LEASE_MS))));
+            publish(new Progress(surveyId.toHexString(), surveyName, deleted, Math.max(total, deleted), false));
+
+            // Throttle: stay idle at least as long as the batch took, so foreground queries keep their latency
+            long elapsedMs = (System.nanoTime() - batchStart) / 1_000_000;
+            Thread.sleep(Math.max(PAUSE_MS, elapsedMs));
+        }
+        // Stopping: release the lease so the next start (here or elsewhere) picks the job up right away
+        jobs.updateOne(Filters.eq("_id", id), Updates.set("lease_until", new Date(0)));
+    }
+
+    private void finish(MongoDatabase db, String id, ObjectId surveyId, String surveyName, long deleted) {
+        ResponseCounterStore.remove(db, surveyId);
+        db.getCollection(COLLECTION).updateOne(Filters.eq("_id", id), Updates.combine(
+                Updates.set("status", "done"),
+                Updates.set("deleted", deleted),
+                Updates.set("updated_at", new Date())));
+        publish(new Progress(surveyId.toHexString(), surveyName, deleted, deleted, true));
+        System.out.println("✅ CascadeDeleteJob: Removed " + deleted + " responses of deleted survey '" + surveyName + "'.");
+    }
+
+    // --- Progress publishing ---
+
+    private void publish(Progress update) {
+        progress.put(update.getSurveyId(), update);
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (subscribers.isEmpty()) return;
+        if (publishScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::drain);
+        }
+    }
+
+    private void drain() {
+        publishScheduled.set(false);
+        List<Progress> current = snapshot();
+        for (Consumer<List<Progress>> subscriber : subscribers) {
+            try {
+                subscriber.accept(current);
+            } catch (Exception e) {
+                System.err.println("❌ CascadeDeleteJob: Progress subscriber failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private List<Progress> snapshot() {
+        synchronized (progress) {
+            return Collections.unmodifiableList(new ArrayList<>(progress.values()));
+        }
+    }
+
+    private static String jobId(ObjectId surveyId) {
+        return "cascade-delete:" + surveyId.toHexString();
+    }
+}
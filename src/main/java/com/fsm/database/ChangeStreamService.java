@@ -0,0 +1,424 @@
+package com.fsm.database;
+
+import com.fsm.model.Survey;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoInterruptedException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Pushes changes to 'surveys' and 'responses' to the open screens, so tables can apply
+ * row-level updates instead of re-querying and rebuilding everything.
+ *
+ * One daemon thread per collection keeps a change stream open. Events are queued and handed to
+ * subscribers on the FX thread in batches: however many events arrive between two frames,
+ * subscribers get one call. After a network error the stream is reopened from the last resume token,
+ * which is also saved under ~/.fsm (or -Dfsm.journal.dir), so a restart picks up where it left off.
+ *
+ * Change streams need a replica set or sharded cluster. On a standalone server the service logs
+ * a warning and stays inactive; screens then keep refreshing the way they did before.
+ */
+public class ChangeStreamService {
+
+    private static final ChangeStreamService INSTANCE = new ChangeStreamService();
+
+    public static ChangeStreamService getInstance() {
+        return INSTANCE;
+    }
+
+    // Server error codes
+    private static final int NOT_A_REPLICA_SET = 40573;
+    private static final int CHANGE_STREAM_FATAL = 280;
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final long TOKEN_SAVE_INTERVAL_MS = 2_000;
+
+    // -----------------------------------------------------------
+    // Nested Model Class: One change to a survey document
+    // -----------------------------------------------------------
+    public static class SurveyChange {
+        public enum Type { UPSERT, DELETE, RESYNC }
+
+        private final Type type;
+        private final String id;           // Hex _id (null for RESYNC)
+        private final Survey survey;       // Full survey for UPSERT, null otherwise
+
+        SurveyChange(Type type, String id, Survey survey) {
+            this.type = type;
+            this.id = id;
+            this.survey = survey;
+        }
+
+        public Type getType() { return type; }
+        public String getId() { return id; }
+        public Survey getSurvey() { return survey; }
+    }
+
+    // -----------------------------------------------------------
+    // Nested Model Class: Surveys whose response totals changed in one batch
+    // -----------------------------------------------------------
+    public static class ResponseChanges {
+        private final Set<String> surveyIds;
+        private final boolean unknownSurveys;
+
+        ResponseChanges(Set<String> surveyIds, boolean unknownSurveys) {
+            this.surveyIds = surveyIds;
+            this.unknownSurveys = unknownSurveys;
+        }
+
+        /** Hex ids of the surveys that received new responses. */
+        public Set<String> getSurveyIds() { return surveyIds; }
+
+        /** True if the stream had to restart, so any survey may have changed. */
+        public boolean isUnknownSurveys() { return unknownSurveys; }
+    }
+    // -----------------------------------------------------------
+
+    /**
+     * Handle returned by subscribe(); close it to stop receiving batches.
+     */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final Watcher<SurveyChange> surveys = new Watcher<>("surveys");
+    private final Watcher<ResponseChanges> responses = new Watcher<>("responses");
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private ChangeStreamService() {
+        // Singleton
+    }
+
+    /**
+     * @return true while both streams are open, i.e. screens will be told about every change.
+     *         False before the first subscription, on standalone servers, and while reconnecting.
+     */
+    public boolean isActive() {
+        return surveys.connected && responses.connected;
+    }
+
+    /**
+     * Receives survey inserts/updates/deletes, batched per frame, on the FX thread.
+     */
+    public Subscription subscribeSurveys(Consumer<List<SurveyChange>> onBatch) {
+        return surveys.subscribe(onBatch);
+    }
+
+    /**
+     * Receives the surveys whose response totals changed, batched per frame, on the FX thread.
+     */
+    public Subscription subscribeResponses(Consumer<List<ResponseChanges>> onBatch) {
+        return responses.subscribe(onBatch);
+    }
+
+    /**
+     * Subscribes while the node is part of a scene, and unsubscribes when it is removed
+     * (e.g. the dashboard switched to another screen). Pairs with QueryScope.bindTo.
+     */
+    public void bindSurveys(Node node, Consumer<List<SurveyChange>> onBatch) {
+        bind(node, () -> subscribeSurveys(onBatch));
+    }
+
+    public void bindResponses(Node node, Consumer<List<ResponseChanges>> onBatch) {
+        bind(node, () -> subscribeResponses(onBatch));
+    }
+
+    private void bind(Node node, Supplier<Subscription> subscriber) {
+        Subscription[] current = new Subscription[1];
+        if (node.getScene() != null) current[0] = subscriber.get();
+        node.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null && current[0] == null) {
+                current[0] = subscriber.get();
+            } else if (newScene == null && current[0] != null) {
+                current[0].close();
+                current[0] = null;
+            }
+        });
+    }
+
+    // --- Watcher threads ---
+
+    private void ensureStarted() {
+        if (!started.compareAndSet(false, true)) return;
+        startThread("surveys", this::watchSurveys);
+        startThread("responses", this::watchResponses);
+    }
+
+    private void startThread(String collection, Runnable body) {
+        Thread thread = new Thread(body, "change-stream-" + collection);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watchSurveys() {
+        // Full documents are decoded straight into Survey records by the model codec
+        watch(surveys, Survey.class, Collections.emptyList(), FullDocument.UPDATE_LOOKUP, change -> {
+            switch (change.getOperationType()) {
+                case INSERT:
+                case UPDATE:
+                case REPLACE:
+                    invalidateDefinition(change.getDocumentKey());
+                    Survey survey = change.getFullDocument();
+                    // null if the document was deleted before the update lookup ran; the delete event follows
+                    if (survey != null && survey.id() != null) {
+                        surveys.publish(new SurveyChange(SurveyChange.Type.UPSERT, survey.idHex(), survey));
+                    }
+                    break;
+                case DELETE:
+                    invalidateDefinition(change.getDocumentKey());
+                    String id = idOf(change.getDocumentKey());
+                    if (id != null) surveys.publish(new SurveyChange(SurveyChange.Type.DELETE, id, null));
+                    break;
+                default:
+                    break;
+            }
+        }, () -> surveys.publish(new SurveyChange(SurveyChange.Type.RESYNC, null, null)));
+    }
+
+    private void watchResponses() {
+        // Only inserts change the totals of listed surveys; ship just the survey_id, not whole responses.
+        // Responses are only deleted by CascadeDeleteJob, for surveys that are already gone from every list,
+        // and one event per deleted response would trigger a full recount every frame while it runs.
+        List<Bson> pipeline = Arrays.asList(
+                Aggregates.match(Filters.eq("operationType", "insert")),
+                Aggregates.project(Projections.include("operationType", "documentKey", "ns", "fullDocument.survey_id"))
+        );
+        watch(responses, Document.class, pipeline, FullDocument.DEFAULT, change -> {
+            switch (change.getOperationType()) {
+                case INSERT:
+                    Document doc = change.getFullDocument();
+                    Object surveyId = doc != null ? doc.get("survey_id") : null;
+                    if (surveyId instanceof ObjectId) {
+                        responses.publish(new ResponseChanges(Collections.singleton(((ObjectId) surveyId).toHexString()), false));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }, () -> responses.publish(new ResponseChanges(Collections.emptySet(), true)));
+    }
+
+    /**
+     * Keeps one change stream open until the process exits, reopening it after errors.
+     *
+     * @param documentClass What the full document of each event is decoded into.
+     * @param onChange Called on the watcher thread for each event.
+     * @param onResync Called when events may have been missed (history lost, stream invalidated),
+     *                 so subscribers know to reload.
+     */
+    private <T> void watch(Watcher<?> watcher, Class<T> documentClass, List<Bson> pipeline, FullDocument fullDocument,
+                           Consumer<ChangeStreamDocument<T>> onChange, Runnable onResync) {
+        long backoffMs = 500;
+        BsonDocument token = watcher.loadToken();
+
+        while (true) {
+            MongoDatabase db = MongoManager.getInstance().getDatabase();
+            if (db == null) {
+                System.err.println("❌ ChangeStreamService: No database connection, live updates are off.");
+                return;
+            }
+
+            ChangeStreamIterable<T> stream = db.getCollection(watcher.collection, documentClass)
+                    .watch(pipeline)
+                    .fullDocument(fullDocument)
+                    .maxAwaitTime(1, TimeUnit.SECONDS);
+            if (token != null) {
+                stream = stream.resumeAfter(token);
+            }
+
+            try (MongoChangeStreamCursor<ChangeStreamDocument<T>> cursor = stream.cursor()) {
+                System.out.println("✅ ChangeStreamService: Watching " + watcher.collection + (token != null ? " (resumed)" : "") + ".");
+                watcher.connected = true;
+                backoffMs = 500;
+
+                while (true) {
+                    ChangeStreamDocument<T> change = cursor.tryNext();
+                    if (change != null) {
+                        if ("invalidate".equals(change.getOperationTypeString())) {
+                            // Collection dropped/renamed: the stream is over, start a fresh one
+                            token = null;
+                            watcher.saveToken(null);
+                            onResync.run();
+                            break;
+                        }
+                        onChange.accept(change);
+                    }
+                    // Advances even without events (post-batch resume token), so resuming skips idle history
+                    BsonDocument latest = cursor.getResumeToken();
+                    if (latest != null) {
+                        token = latest;
+                        watcher.maybeSaveToken(latest);
+                    }
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == NOT_A_REPLICA_SET) {
+                    System.out.println("⚠️ ChangeStreamService: Server is not a replica set; live updates are off.");
+                    watcher.connected = false;
+                    return;
+                }
+                if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST || e.getErrorCode() == CHANGE_STREAM_FATAL) {
+                    System.out.println("⚠️ ChangeStreamService: Cannot resume " + watcher.collection + " (" + e.getErrorMessage() + "). Starting fresh.");
+                    token = null;
+                    watcher.saveToken(null);
+                    onResync.run();
+                    continue;
+                }
+                System.err.println("❌ ChangeStreamService: " + watcher.collection + " stream failed: " + e.getErrorMessage());
+            } catch (MongoInterruptedException e) {
+                return;
+            } catch (MongoException e) {
+                System.err.println("❌ ChangeStreamService: " + watcher.collection + " stream lost: " + e.getMessage());
+            }
+
+            watcher.connected = false;
+
+            // Reconnect with exponential backoff; events in between are replayed from the resume token
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    /**
+     * Another client changed a survey: drop our cached definition right away instead of waiting for validation.
+     */
+    private static void invalidateDefinition(BsonDocument documentKey) {
+        String id = idOf(documentKey);
+        if (id != null) SurveyDefinitionCache.invalidate(id);
+    }
+
+    private static String idOf(BsonDocument documentKey) {
+        if (documentKey == null) return null;
+        BsonValue id = documentKey.get("_id");
+        return id != null && id.isObjectId() ? id.asObjectId().getValue().toHexString() : null;
+    }
+
+    // -----------------------------------------------------------
+    // Per-collection subscriber list, event queue and resume token file
+    // -----------------------------------------------------------
+    private final class Watcher<E> {
+        final String collection;
+        final Path tokenPath;
+
+        private final List<Consumer<List<E>>> subscribers = new CopyOnWriteArrayList<>();
+        private final ConcurrentLinkedQueue<E> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
+        private long lastTokenSave = 0;
+        volatile boolean connected = false;
+
+        Watcher(String collection) {
+            this.collection = collection;
+            String dir = System.getProperty("fsm.journal.dir",
+                    Paths.get(System.getProperty("user.home"), ".fsm").toString());
+            this.tokenPath = Paths.get(dir, "change-stream-" + collection + ".token");
+        }
+
+        Subscription subscribe(Consumer<List<E>> onBatch) {
+            subscribers.add(onBatch);
+            ensureStarted();
+            return () -> subscribers.remove(onBatch);
+        }
+
+        /**
+         * Queues an event; schedules one drain on the FX thread for everything queued until it runs.
+         */
+        void publish(E event) {
+            if (subscribers.isEmpty()) return;
+            pending.add(event);
+            if (drainScheduled.compareAndSet(false, true)) {
+                Platform.runLater(this::drain);
+            }
+        }
+
+        private void drain() {
+            drainScheduled.set(false);
+            List<E> batch = new ArrayList<>();
+            E event;
+            while ((event = pending.poll()) != null) {
+                batch.add(event);
+            }
+            if (batch.isEmpty()) return;
+
+            List<E> readOnly = Collections.unmodifiableList(batch);
+            for (Consumer<List<E>> subscriber : subscribers) {
+                try {
+                    subscriber.accept(readOnly);
+                } catch (Exception e) {
+                    System.err.println("❌ ChangeStreamService: Subscriber failed on " + collection + " batch: " + e.getMessage());
+                }
+            }
+        }
+
+        BsonDocument loadToken() {
+            try {
+                if (Files.exists(tokenPath)) {
+                    return BsonDocument.parse(Files.readString(tokenPath, StandardCharsets.UTF_8));
+                }
+            } catch (Exception e) {
+                System.err.println("⚠️ ChangeStreamService: Ignoring unreadable resume token " + tokenPath + ": " + e.getMessage());
+            }
+            return null;
+        }
+
+        void maybeSaveToken(BsonDocument token) {
+            long now = System.currentTimeMillis();
+            if (now - lastTokenSave < TOKEN_SAVE_INTERVAL_MS) return;
+            lastTokenSave = now;
+            saveToken(token);
+        }
+
+        void saveToken(BsonDocument token) {
+            try {
+                if (token == null) {
+                    Files.deleteIfExists(tokenPath);
+                    return;
+                }
+                Files.createDirectories(tokenPath.getParent());
+                Path tmp = tokenPath.resolveSibling(tokenPath.getFileName() + ".tmp");
+                Files.writeString(tmp, token.toJson(), StandardCharsets.UTF_8);
+                Files.move(tmp, tokenPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                System.err.println("⚠️ ChangeStreamService: Could not save resume token: " + e.getMessage());
+            }
+        }
+    }
+}
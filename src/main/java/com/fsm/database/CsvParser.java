@@ -0,0 +1,64 @@
+package com.fsm.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 reader for the import features: quoted cells, doubled quotes, CRLF or LF line ends.
+ */
+final class CsvParser {
+
+    private CsvParser() {
+        // Static helper class, no instances.
+    }
+
+    /**
+     * @return Index of the '\n' that ends the record starting at 'from' (or text.length()).
+     *         Line breaks inside quoted cells do not end a record.
+     */
+    static int recordEnd(String text, int from) {
+        boolean inQuotes = false;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') inQuotes = !inQuotes;
+            else if (c == '\n' && !inQuotes) return i;
+        }
+        return text.length();
+    }
+
+    /**
+     * Splits one record (without its trailing '\n') into cells.
+     */
+    static List<String> parseRecord(String record) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean inQuotes = false;
+        int length = record.length();
+        if (length > 0 && record.charAt(length - 1) == '\r') length--;
+
+        for (int i = 0; i < length; i++) {
+            char c = record.charAt(i);
+            if (inQuotes) {
+                if (c == '"') {
+                    if (i + 1 < length && record.charAt(i + 1) == '"') {
+                        cell.append('"');
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+}
@@ -0,0 +1,260 @@
+package com.fsm.database;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.CollationStrength;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Declares the indexes the application's hot queries depend on and makes sure they exist.
+ * In diagnostic mode it also runs explain() on each hot query and fails loudly
+ * if any of them would fall back to a full collection scan (COLLSCAN).
+ */
+public class IndexManager {
+
+    /**
+     * Case-insensitive comparison (strength 2 ignores case but not accents).
+     * Queries must pass this same collation to be able to use the indexes declared with it.
+     */
+    public static final Collation CASE_INSENSITIVE = Collation.builder()
+            .locale("en")
+            .collationStrength(CollationStrength.SECONDARY)
+            .build();
+
+    // -----------------------------------------------------------
+    // Nested Model Class: One required index
+    // -----------------------------------------------------------
+    public static class IndexSpec {
+        final String collection;
+        final Bson keys;
+        final IndexOptions options;
+
+        public IndexSpec(String collection, Bson keys, IndexOptions options) {
+            this.collection = collection;
+            this.keys = keys;
+            this.options = options;
+        }
+
+        @Override
+        public String toString() {
+            return collection + "." + options.getName();
+        }
+    }
+    // -----------------------------------------------------------
+
+    /**
+     * Every index the application needs. Names are fixed so the specs can be compared and migrated later.
+     */
+    public static final List<IndexSpec> REQUIRED_INDEXES = Arrays.asList(
+            // Exact lookups: login, profile updates
+            new IndexSpec("users", new Document("username", 1),
+                    new IndexOptions().name("username_1")),
+            // Case-insensitive uniqueness: 'Admin' and 'admin' cannot both exist
+            new IndexSpec("users", new Document("username", 1),
+                    new IndexOptions().name("username_ci").unique(true).collation(CASE_INSENSITIVE)),
+            new IndexSpec("users", new Document("role", 1),
+                    new IndexOptions().name("role_1")),
+            // Survey names are unique ignoring case (SurveyRepository duplicate-name guard)
+            new IndexSpec("surveys", new Document("name", 1),
+                    new IndexOptions().name("name_ci").unique(true).collation(CASE_INSENSITIVE)),
+            // Report RBAC filter: creator matched case-insensitively
+            new IndexSpec("surveys", new Document("creator", 1),
+                    new IndexOptions().name("creator_ci").collation(CASE_INSENSITIVE)),
+            new IndexSpec("surveys", new Document("status", 1),
+                    new IndexOptions().name("status_1")),
+            // Per-survey lookups, keyset paging and export order on (timestamp, _id);
+            // also bounds and covers the timestamp range of the trend reports
+            new IndexSpec("responses", new Document("survey_id", 1).append("timestamp", 1).append("_id", 1),
+                    new IndexOptions().name("survey_id_timestamp_id")),
+            // Cascade delete: a deleted survey's responses in _id batches (CascadeDeleteJob)
+            new IndexSpec("responses", new Document("survey_id", 1).append("_id", 1),
+                    new IndexOptions().name("survey_id_id"))
+    );
+
+    /**
+     * Indexes from earlier versions that are no longer used, as collection -> index name.
+     * name_ci is created after name_1 is dropped; if existing surveys share a name (ignoring case) its build
+     * fails with 11000 and is logged, and SurveyRepository's check still rejects new duplicates.
+     * survey_id_answers_question_id indexed the v1 'answers.question_id'. The chart queries now match
+     * either format with an $or whose v2 branch ('a.&lt;id&gt;' exists) no index can serve, so they run
+     * on the survey_id prefix of survey_id_timestamp_id and the old index only cost writes.
+     */
+    private static final Map<String, List<String>> LEGACY_INDEXES = Map.of(
+            "surveys", List.of("creator_1", "name_1"),
+            "responses", List.of("survey_id_answers_question_id")
+    );
+
+    private IndexManager() {
+        // Static helper class, no instances.
+    }
+
+    /**
+     * Creates any missing index. Existing indexes are left untouched (createIndex is idempotent).
+     * A failure on one index is logged and does not stop the others.
+     */
+    public static void ensureIndexes(MongoDatabase db) {
+        dropLegacyIndexes(db);
+
+        int created = 0;
+        for (IndexSpec spec : REQUIRED_INDEXES) {
+            try {
+                db.getCollection(spec.collection).createIndex(spec.keys, spec.options);
+                created++;
+            } catch (MongoCommandException e) {
+                // e.g. 85/86: an index with the same name/keys but different options already exists,
+                // 11000: existing documents violate a unique index
+                System.err.println("❌ IndexManager: Could not ensure index " + spec + " (code " + e.getErrorCode() + "): " + e.getErrorMessage());
+            } catch (Exception e) {
+                System.err.println("❌ IndexManager: Could not ensure index " + spec + ": " + e.getMessage());
+            }
+        }
+        System.out.println("✅ IndexManager: " + created + "/" + REQUIRED_INDEXES.size() + " required indexes are in place.");
+    }
+
+    /**
+     * Migration: drops indexes that were superseded (see LEGACY_INDEXES).
+     * Existing documents need no rewrite, the collation index is built over the stored values as they are.
+     */
+    private static void dropLegacyIndexes(MongoDatabase db) {
+        for (Map.Entry<String, List<String>> legacy : LEGACY_INDEXES.entrySet()) {
+            MongoCollection<Document> collection = db.getCollection(legacy.getKey());
+            try {
+                for (Document index : collection.listIndexes()) {
+                    String name = index.getString("name");
+                    if (legacy.getValue().contains(name)) {
+                        collection.dropIndex(name);
+                        System.out.println("✅ IndexManager: Dropped legacy index " + legacy.getKey() + "." + name);
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("❌ IndexManager: Could not migrate legacy indexes on " + legacy.getKey() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs explain() on every hot query and throws if any winning plan contains a COLLSCAN stage.
+     *
+     * @throws IllegalStateException listing the queries that would scan a whole collection.
+     */
+    public static void verifyQueryPlans(MongoDatabase db) {
+        List<String> scans = new ArrayList<>();
+
+        for (Map.Entry<String, Function<MongoDatabase, Document>> query : hotQueries().entrySet()) {
+            Document plan = query.getValue().apply(db);
+            boolean collscan = winningPlanUsesCollScan(plan);
+            System.out.println((collscan ? "❌ COLLSCAN  " : "✅ IXSCAN    ") + query.getKey());
+            if (collscan) {
+                scans.add(query.getKey());
+            }
+        }
+
+        if (!scans.isEmpty()) {
+            throw new IllegalStateException("Query plan verification failed. These queries fall back to COLLSCAN: " + scans);
+        }
+        System.out.println("✅ IndexManager: All " + hotQueries().size() + " hot queries use an index.");
+    }
+
+    /**
+     * The queries run on every screen, with representative filter values, keyed by a readable label.
+     */
+    private static Map<String, Function<MongoDatabase, Document>> hotQueries() {
+        ObjectId sampleSurvey = new ObjectId();
+        Map<String, Function<MongoDatabase, Document>> queries = new LinkedHashMap<>();
+
+        queries.put("users by username+role (login)", db -> users(db)
+                .find(Filters.and(Filters.eq("username", "sample"), Filters.eq("role", "Administrator"))).explain());
+        queries.put("users by username (profile)", db -> users(db)
+                .find(Filters.eq("username", "sample")).explain());
+        queries.put("users by role (admin count)", db -> users(db)
+                .find(Filters.eq("role", "Administrator")).explain());
+        queries.put("surveys by name, case-insensitive (duplicate check)", db -> surveys(db)
+                .find(Filters.eq("name", "sample")).collation(CASE_INSENSITIVE).explain());
+        queries.put("users by username, case-insensitive (duplicate check)", db -> users(db)
+                .find(Filters.eq("username", "sample")).collation(CASE_INSENSITIVE).explain());
+        // Surveys and Reports screens: SurveyListingQueries.listSurveys, a $match with the same collation
+        queries.put("surveys by creator, case-insensitive (survey listing)", db -> surveys(db)
+                .aggregate(Arrays.asList(new Document("$match", new Document("creator", "sample"))))
+                .collation(CASE_INSENSITIVE).explain());
+        queries.put("surveys by status (data entry)", db -> surveys(db)
+                .find(Filters.eq("status", "Active")).explain());
+        queries.put("responses by survey_id (paging)", db -> responses(db)
+                .find(Filters.eq("survey_id", sampleSurvey)).sort(Sorts.ascending("timestamp", "_id")).explain());
+        queries.put("responses by survey_id in _id order (cascade delete)", db -> responses(db)
+                .find(Filters.and(Filters.eq("survey_id", sampleSurvey), Filters.gt("_id", new ObjectId(new Date(0)))))
+                .sort(Sorts.ascending("_id")).explain());
+        // Charts, rating and text stats: ReportQueryEngine's $match for one answered question, either format
+        queries.put("responses by survey_id, answered question (charts)", db -> responses(db)
+                .aggregate(Arrays.asList(new Document("$match", new Document("survey_id", sampleSurvey)
+                        .append("$or", ReportQueryEngine.answeredFilter("Q1"))))).explain());
+        queries.put("responses by survey_id+timestamp range (trends)", db -> responses(db)
+                .aggregate(Arrays.asList(new Document("$match", new Document("survey_id", sampleSurvey)
+                        .append("timestamp", new Document("$gte", new Date(0)).append("$lt", new Date())))))
+                .explain());
+
+        return queries;
+    }
+
+    private static MongoCollection<Document> users(MongoDatabase db) {
+        return db.getCollection("users");
+    }
+
+    private static MongoCollection<Document> surveys(MongoDatabase db) {
+        return db.getCollection("surveys");
+    }
+
+    private static MongoCollection<Document> responses(MongoDatabase db) {
+        return db.getCollection("responses");
+    }
+
+    /**
+     * Searches every 'winningPlan' in an explain output (find or aggregate) for a COLLSCAN stage.
+     */
+    private static boolean winningPlanUsesCollScan(Object node) {
+        if (node instanceof Document) {
+            Document doc = (Document) node;
+            for (Map.Entry<String, Object> entry : doc.entrySet()) {
+                if ("winningPlan".equals(entry.getKey())) {
+                    if (containsStage(entry.getValue(), "COLLSCAN")) return true;
+                } else if (!"rejectedPlans".equals(entry.getKey()) && winningPlanUsesCollScan(entry.getValue())) {
+                    return true;
+                }
+            }
+        } else if (node instanceof List) {
+            for (Object item : (List<?>) node) {
+                if (winningPlanUsesCollScan(item)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsStage(Object node, String stage) {
+        if (node instanceof Document) {
+            Document doc = (Document) node;
+            if (stage.equals(doc.get("stage"))) return true;
+            for (Object value : doc.values()) {
+                if (containsStage(value, stage)) return true;
+            }
+        } else if (node instanceof List) {
+            for (Object item : (List<?>) node) {
+                if (containsStage(item, stage)) return true;
+            }
+        }
+        return false;
+    }
+}
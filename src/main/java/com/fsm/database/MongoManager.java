@@ -1,10 +1,16 @@
 package com.fsm.database;
 
+import com.fsm.model.codec.ModelCodecProvider;
+import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.CountOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.result.UpdateResult;
 import org.bson.Document;
 import org.mindrot.jbcrypt.BCrypt;
@@ -21,6 +27,14 @@ public class MongoManager {
     // 2. The Singleton MongoClient
     private final MongoClient mongoClient;
     private final MongoDatabase database;
+    // Same database, but reads go where MONGO_REPORT_READ_PREFERENCE says (e.g. secondaries)
+    private final MongoDatabase reportDatabase;
+
+    /**
+     * Collation used for every case-insensitive username/creator comparison.
+     * Queries must pass it explicitly so they hit the collation indexes declared in IndexManager.
+     */
+    public static final Collation CASE_INSENSITIVE = IndexManager.CASE_INSENSITIVE;
 
     // Will hold the name of the database loaded from .env
     private static String databaseName;
@@ -32,6 +46,7 @@ public class MongoManager {
     private MongoManager() {
         MongoClient client = null;
         MongoDatabase db = null;
+        MongoDatabase reportDb = null;
         String connectionString = null;
 
         try {
@@ -52,23 +67,41 @@ public class MongoManager {
 
             databaseName = dbName; // Set static field for logging/reference
 
+            // Pool, timeouts, compression and read preference come from .env / system properties
+            MongoSettingsConfig config = MongoSettingsConfig.load(dotenv);
+            MongoMetrics metrics = MongoMetrics.getInstance();
+            MongoClientSettings settings = MongoClientSettings.builder(config.toClientSettings(connectionString))
+                    // Latency and pool instrumentation (Help > Diagnostics)
+                    .addCommandListener(metrics)
+                    .applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(metrics))
+                    // Typed codecs so surveys decode straight into com.fsm.model records
+                    // (responses add a per-survey codec, see ModelCodecProvider.forResponses)
+                    .codecRegistry(ModelCodecProvider.withDefaults(MongoClientSettings.getDefaultCodecRegistry()))
+                    .build();
+            config.logEffectiveSettings(settings);
+
             // Establish the single connection pool instance
-            client = MongoClients.create(connectionString);
+            client = MongoClients.create(settings);
             db = client.getDatabase(databaseName);
+            reportDb = db.withReadPreference(config.getReportReadPreference());
+            metrics.startPeriodicLog();
             System.out.println("✅ MongoManager: Singleton MongoClient initialized successfully for DB: " + databaseName);
 
         } catch (IllegalStateException e) {
             System.err.println("❌ " + e.getMessage());
             client = null;
             db = null;
+            reportDb = null;
         } catch (Exception e) {
             System.err.println("❌ ERROR: Failed to initialize Singleton MongoDB client with URI: " + (connectionString != null ? connectionString : "N/A") + " - " + e.getMessage());
             e.printStackTrace();
             client = null;
             db = null;
+            reportDb = null;
         }
         this.mongoClient = client;
         this.database = db;
+        this.reportDatabase = reportDb;
     }
 
     /**
@@ -91,6 +124,44 @@ public class MongoManager {
         return this.database;
     }
 
+    /**
+     * Returns the database handle for read-heavy report and export queries.
+     * It shares the connection pool with getDatabase() but uses the configured report read preference,
+     * so reports can be served by secondaries. Never write through this handle.
+     * @return The report MongoDatabase, or null if connection failed during initialization.
+     */
+    public MongoDatabase getReportDatabase() {
+        return this.reportDatabase;
+    }
+
+    /**
+     * Ensures the required indexes exist (see IndexManager).
+     * Normally this runs on a background thread so the login screen is not held up.
+     * With diagnostic mode on (-Dfsm.diagnostics.queryPlans=true or FSM_QUERY_DIAGNOSTICS=true in .env)
+     * it runs synchronously and then verifies every hot query plan, throwing if one falls back to COLLSCAN.
+     */
+    public void bootstrapIndexes() {
+        if (this.database == null) return;
+
+        if (isQueryPlanDiagnosticsEnabled()) {
+            System.out.println("🔍 MongoManager: Query plan diagnostics enabled.");
+            IndexManager.ensureIndexes(this.database);
+            IndexManager.verifyQueryPlans(this.database);
+            return;
+        }
+
+        Thread.ofVirtual().name("index-bootstrap").start(() -> IndexManager.ensureIndexes(this.database));
+    }
+
+    private static boolean isQueryPlanDiagnosticsEnabled() {
+        if (Boolean.getBoolean("fsm.diagnostics.queryPlans")) return true;
+        try {
+            return Boolean.parseBoolean(Dotenv.configure().ignoreIfMissing().load().get("FSM_QUERY_DIAGNOSTICS", "false"));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
 
     // The following helper methods must now use getDatabase() instead of connect().
 
@@ -101,8 +172,8 @@ public class MongoManager {
      */
     public static String hashPassword(String password) {
         if (password == null) return null;
-        // Generate a salt and hash the password in one step
-        return BCrypt.hashpw(password, BCrypt.gensalt());
+        // Generate a salt (at the configured cost, see AuthService) and hash the password in one step
+        return BCrypt.hashpw(password, BCrypt.gensalt(AuthService.getBcryptCost()));
     }
 
     /**
@@ -156,6 +227,15 @@ public class MongoManager {
         try {
             MongoCollection<Document> userCollection = db.getCollection("users");
 
+            // Reject names that differ from another user's only by case (the username_ci index would too)
+            Bson sameNameOtherUser = Filters.and(
+                    Filters.eq("username", newUsername),
+                    Filters.ne("username", oldUsername));
+            if (userCollection.countDocuments(sameNameOtherUser, new CountOptions().collation(CASE_INSENSITIVE).limit(1)) > 0) {
+                System.out.println("❌ Username update failed: '" + newUsername + "' is already taken.");
+                return false;
+            }
+
             // Find user by old username
             Document filter = new Document("username", oldUsername);
             // Update the username field
@@ -164,12 +244,25 @@ public class MongoManager {
             UpdateResult result = userCollection.updateOne(filter, update);
 
             if (result.getModifiedCount() > 0) {
-                System.out.println("✅ Username update successful for: " + oldUsername + " -> " + newUsername);
+                // Keep the user's surveys attached to them (reports filter on creator)
+                UpdateResult surveys = db.getCollection("surveys").updateMany(
+                        Filters.eq("creator", oldUsername),
+                        new Document("$set", new Document("creator", newUsername)),
+                        new UpdateOptions().collation(CASE_INSENSITIVE));
+                System.out.println("✅ Username update successful for: " + oldUsername + " -> " + newUsername
+                        + " (" + surveys.getModifiedCount() + " surveys re-assigned)");
                 return true;
             } else {
                 System.out.println("❌ Username update failed: User not found or no change.");
                 return false;
             }
+        } catch (MongoWriteException e) {
+            if (e.getError().getCode() == 11000) {
+                System.out.println("❌ Username update failed: '" + newUsername + "' is already taken.");
+            } else {
+                System.err.println("Database update error (Username): " + e.getMessage());
+            }
+            return false;
         } catch (Exception e) {
             System.err.println("Database update error (Username): " + e.getMessage());
             return false;
@@ -220,39 +313,9 @@ public class MongoManager {
      * @return A Document representing the user if login is successful, or null otherwise.
      */
     public static Document authenticateUser(String username, String password, String role) {
-        // Updated to use the Singleton pattern
-        MongoDatabase db = MongoManager.getInstance().getDatabase();
-
-        if (db == null) {
-            return null;
-        }
-
         try {
-            MongoCollection<Document> userCollection = db.getCollection("users");
-
-            // STEP 1: Find user by combined criteria: username AND role
-            Bson filter = Filters.and(
-                    Filters.eq("username", username),
-                    Filters.eq("role", role)
-            );
-
-            Document userDoc = userCollection.find(filter).first();
-
-            if (userDoc != null) {
-                String storedHashedPassword = userDoc.getString("password");
-
-                // STEP 2: Use BCrypt.checkpw to safely compare the plain password
-                // with the stored hash.
-                if (BCrypt.checkpw(password, storedHashedPassword)) {
-                    System.out.println("✅ Login Successful for user: " + username + " with role: " + role);
-                    return userDoc; // Authentication successful
-                }
-            }
-
-            // If user is null (no user found with that username AND role) or password verification failed:
-            System.out.println("❌ Login Failed: Invalid credentials or role for user: " + username);
-            return null;
-
+            // Blocking variant; the login screen uses AuthService.authenticateAsync instead
+            return AuthService.authenticate(username, password, role);
         } catch (Exception e) {
             System.err.println("Database query error during authentication: " + e.getMessage());
             return null;
@@ -0,0 +1,333 @@
+package com.fsm.database;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Driver instrumentation: registered on the MongoClient as both a CommandListener and a ConnectionPoolListener.
+ *
+ * It keeps a latency histogram per (command, collection), the connection checkout wait times,
+ * pool gauges, and the number/time of commands issued per screen. The numbers are shown in the
+ * Help > Diagnostics panel and dumped to the log every fsm.metrics.logIntervalSec seconds (default 300, 0 = off).
+ */
+public class MongoMetrics implements CommandListener, ConnectionPoolListener {
+
+    private static final MongoMetrics INSTANCE = new MongoMetrics();
+
+    public static MongoMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    // -----------------------------------------------------------
+    // Nested Model Class: Stats for one command on one collection
+    // -----------------------------------------------------------
+    public static class CommandStats {
+        private final String commandName;
+        private final String collection;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder failures = new LongAdder();
+
+        CommandStats(String commandName, String collection) {
+            this.commandName = commandName;
+            this.collection = collection;
+        }
+
+        public String getCommandName() { return commandName; }
+        public String getCollection() { return collection; }
+        public LatencyHistogram getLatency() { return latency; }
+        public long getFailures() { return failures.sum(); }
+    }
+
+    // -----------------------------------------------------------
+    // Nested Model Class: Database work attributed to one screen
+    // -----------------------------------------------------------
+    public static class ScreenStats {
+        private final String screen;
+        private final LongAdder commands = new LongAdder();
+        private final LongAdder totalMicros = new LongAdder();
+
+        ScreenStats(String screen) {
+            this.screen = screen;
+        }
+
+        public String getScreen() { return screen; }
+        public long getCommands() { return commands.sum(); }
+        public long getTotalMicros() { return totalMicros.sum(); }
+    }
+    // -----------------------------------------------------------
+
+    /** What we remember between a command's started and succeeded/failed events. */
+    private static final class InFlightCommand {
+        final CommandStats stats;
+        final ScreenStats screen;
+
+        InFlightCommand(CommandStats stats, ScreenStats screen) {
+            this.stats = stats;
+            this.screen = screen;
+        }
+    }
+
+    // Screen tag for the current thread (set by AsyncDataService for the duration of a query)
+    private static final ThreadLocal<String> THREAD_SCREEN = new ThreadLocal<>();
+
+    private final Map<String, CommandStats> commandStats = new ConcurrentHashMap<>();
+    private final Map<String, ScreenStats> screenStats = new ConcurrentHashMap<>();
+    private final Map<Integer, InFlightCommand> inFlight = new ConcurrentHashMap<>();
+
+    // Pool
+    private final LatencyHistogram checkoutWait = new LatencyHistogram();
+    private final LongAdder checkoutFailures = new LongAdder();
+    private final AtomicInteger poolMaxSize = new AtomicInteger();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger checkedOutConnections = new AtomicInteger();
+    private final AtomicInteger waitingForConnection = new AtomicInteger();
+
+    // The screen the user is currently looking at (set by MainDashboardController)
+    private volatile String currentScreen = "Login";
+
+    private ScheduledExecutorService logScheduler;
+
+    private MongoMetrics() {
+        // Singleton
+    }
+
+    // --- Screen attribution ---
+
+    /**
+     * Records which screen is in front. Queries started from now on are attributed to it.
+     */
+    public void setCurrentScreen(String screen) {
+        this.currentScreen = screen;
+    }
+
+    public String getCurrentScreen() {
+        return currentScreen;
+    }
+
+    /**
+     * Tags every command the current thread issues with a screen, until clearThreadScreen() is called.
+     */
+    public static void tagThreadScreen(String screen) {
+        THREAD_SCREEN.set(screen);
+    }
+
+    public static void clearThreadScreen() {
+        THREAD_SCREEN.remove();
+    }
+
+    private String screenForCurrentThread() {
+        String screen = THREAD_SCREEN.get();
+        if (screen != null) return screen;
+        // Untagged work: background threads by name (response-flusher, index-bootstrap...), else the visible screen
+        String threadName = Thread.currentThread().getName();
+        return (threadName == null || threadName.isEmpty() || "JavaFX Application Thread".equals(threadName))
+                ? currentScreen : threadName;
+    }
+
+    // --- CommandListener ---
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String commandName = event.getCommandName();
+        String collection = collectionOf(commandName, event.getCommand());
+
+        CommandStats stats = commandStats.computeIfAbsent(commandName + "|" + collection,
+                key -> new CommandStats(commandName, collection));
+        ScreenStats screen = screenStats.computeIfAbsent(screenForCurrentThread(), ScreenStats::new);
+        inFlight.put(event.getRequestId(), new InFlightCommand(stats, screen));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        finish(event.getRequestId(), event.getElapsedTime(TimeUnit.MICROSECONDS), false);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        finish(event.getRequestId(), event.getElapsedTime(TimeUnit.MICROSECONDS), true);
+    }
+
+    private void finish(int requestId, long micros, boolean failed) {
+        InFlightCommand command = inFlight.remove(requestId);
+        if (command == null) return; // Started before metrics were registered
+
+        command.stats.latency.record(micros);
+        if (failed) command.stats.failures.increment();
+        command.screen.commands.increment();
+        command.screen.totalMicros.add(micros);
+    }
+
+    /**
+     * The target collection: the value of the command's first field (e.g. {find: "users"}),
+     * or the 'collection' field of a getMore. Database-level commands report "-".
+     */
+    private static String collectionOf(String commandName, BsonDocument command) {
+        if ("getMore".equals(commandName)) {
+            BsonValue collection = command.get("collection");
+            return collection != null && collection.isString() ? collection.asString().getValue() : "-";
+        }
+        BsonValue first = command.get(commandName);
+        return first != null && first.isString() ? first.asString().getValue() : "-";
+    }
+
+    // --- ConnectionPoolListener ---
+
+    @Override
+    public void connectionPoolCreated(ConnectionPoolCreatedEvent event) {
+        // One pool per server; the sum is the total the app can open
+        poolMaxSize.addAndGet(event.getSettings().getMaxSize());
+    }
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        openConnections.incrementAndGet();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        openConnections.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        waitingForConnection.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        waitingForConnection.decrementAndGet();
+        checkedOutConnections.incrementAndGet();
+        checkoutWait.record(event.getElapsedTime(TimeUnit.MICROSECONDS));
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        waitingForConnection.decrementAndGet();
+        checkoutFailures.increment();
+        checkoutWait.record(event.getElapsedTime(TimeUnit.MICROSECONDS));
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedOutConnections.decrementAndGet();
+    }
+
+    // --- Read access for the diagnostics panel ---
+
+    /**
+     * All command stats, busiest (by total time) first.
+     */
+    public List<CommandStats> getCommandStats() {
+        List<CommandStats> list = new ArrayList<>(commandStats.values());
+        list.sort(Comparator.comparingLong((CommandStats s) -> s.latency.getTotalMicros()).reversed());
+        return list;
+    }
+
+    /**
+     * All screen stats, busiest (by total time) first.
+     */
+    public List<ScreenStats> getScreenStats() {
+        List<ScreenStats> list = new ArrayList<>(screenStats.values());
+        list.sort(Comparator.comparingLong(ScreenStats::getTotalMicros).reversed());
+        return list;
+    }
+
+    public LatencyHistogram getCheckoutWait() { return checkoutWait; }
+    public long getCheckoutFailures() { return checkoutFailures.sum(); }
+    public int getPoolMaxSize() { return poolMaxSize.get(); }
+    public int getOpenConnections() { return openConnections.get(); }
+    public int getCheckedOutConnections() { return checkedOutConnections.get(); }
+    public int getWaitingForConnection() { return Math.max(0, waitingForConnection.get()); }
+
+    /**
+     * Clears the command, screen and checkout histograms. Pool gauges are live values and are kept.
+     */
+    public void reset() {
+        commandStats.clear();
+        screenStats.clear();
+        checkoutWait.reset();
+        checkoutFailures.reset();
+    }
+
+    // --- Periodic log dump ---
+
+    /**
+     * Starts the periodic log dump (interval from -Dfsm.metrics.logIntervalSec, default 300 s, 0 disables).
+     */
+    public synchronized void startPeriodicLog() {
+        long interval = Long.getLong("fsm.metrics.logIntervalSec", 300);
+        if (interval <= 0 || logScheduler != null) return;
+
+        logScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mongo-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logScheduler.scheduleAtFixedRate(this::logSummary, interval, interval, TimeUnit.SECONDS);
+        System.out.println("✅ MongoMetrics: Logging driver metrics every " + interval + " s.");
+    }
+
+    /**
+     * Prints the pool state, the 10 most expensive commands and the per-screen totals.
+     */
+    public void logSummary() {
+        List<CommandStats> commands = getCommandStats();
+        if (commands.isEmpty()) return;
+
+        StringBuilder out = new StringBuilder("📊 MongoMetrics summary\n");
+        out.append(String.format("   Pool: %d open, %d in use, %d waiting (max %d) | checkout wait p50 %s, p99 %s, max %s, %d failed%n",
+                getOpenConnections(), getCheckedOutConnections(), getWaitingForConnection(), getPoolMaxSize(),
+                formatMicros(checkoutWait.getValueAtPercentile(50)), formatMicros(checkoutWait.getValueAtPercentile(99)),
+                formatMicros(checkoutWait.getMaxMicros()), getCheckoutFailures()));
+
+        out.append(String.format("   %-16s %-18s %8s %6s %9s %9s %9s %9s %10s%n",
+                "command", "collection", "count", "fail", "p50", "p95", "p99", "max", "total"));
+        for (CommandStats stats : commands.subList(0, Math.min(10, commands.size()))) {
+            LatencyHistogram h = stats.latency;
+            out.append(String.format("   %-16s %-18s %8d %6d %9s %9s %9s %9s %10s%n",
+                    stats.commandName, stats.collection, h.getCount(), stats.getFailures(),
+                    formatMicros(h.getValueAtPercentile(50)), formatMicros(h.getValueAtPercentile(95)),
+                    formatMicros(h.getValueAtPercentile(99)), formatMicros(h.getMaxMicros()),
+                    formatMicros(h.getTotalMicros())));
+        }
+
+        out.append("   By screen:");
+        for (ScreenStats screen : getScreenStats()) {
+            out.append(" ").append(screen.screen).append("=").append(screen.getCommands())
+                    .append(" cmds/").append(formatMicros(screen.getTotalMicros()));
+        }
+        System.out.println(out);
+    }
+
+    /**
+     * Formats microseconds for humans: 850µs, 12.4ms, 3.21s.
+     */
+    public static String formatMicros(long micros) {
+        if (micros < 1_000) return micros + "µs";
+        if (micros < 1_000_000) return String.format("%.1fms", micros / 1_000.0);
+        return String.format("%.2fs", micros / 1_000_000.0);
+    }
+}
@@ -0,0 +1,211 @@
+package com.fsm.database;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
+import com.mongodb.connection.ConnectionPoolSettings;
+import com.mongodb.connection.SocketSettings;
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typed view of the driver tuning options, used by MongoManager to build MongoClientSettings.
+ *
+ * Every option is read from a system property first (e.g. -Dfsm.mongo.pool.maxSize=50),
+ * then from the .env file (e.g. MONGO_POOL_MAX_SIZE=50). Options that are set in neither place
+ * keep whatever the connection string or the driver default says.
+ *
+ * | Option                  | System property                    | .env key                          |
+ * |-------------------------|------------------------------------|-----------------------------------|
+ * | Pool min size           | fsm.mongo.pool.minSize             | MONGO_POOL_MIN_SIZE               |
+ * | Pool max size           | fsm.mongo.pool.maxSize             | MONGO_POOL_MAX_SIZE               |
+ * | Pool max idle (ms)      | fsm.mongo.pool.maxIdleMs           | MONGO_POOL_MAX_IDLE_MS            |
+ * | Wait queue timeout (ms) | fsm.mongo.pool.maxWaitMs           | MONGO_POOL_MAX_WAIT_MS            |
+ * | Connect timeout (ms)    | fsm.mongo.connectTimeoutMs         | MONGO_CONNECT_TIMEOUT_MS          |
+ * | Socket read timeout (ms)| fsm.mongo.socketTimeoutMs          | MONGO_SOCKET_TIMEOUT_MS           |
+ * | Server selection (ms)   | fsm.mongo.serverSelectionTimeoutMs | MONGO_SERVER_SELECTION_TIMEOUT_MS |
+ * | Wire compression        | fsm.mongo.compressors              | MONGO_COMPRESSORS (zstd,snappy,zlib) |
+ * | Report read preference  | fsm.mongo.reportReadPreference     | MONGO_REPORT_READ_PREFERENCE      |
+ */
+public class MongoSettingsConfig {
+
+    final Integer poolMinSize;
+    final Integer poolMaxSize;
+    final Long poolMaxIdleMs;
+    final Long poolMaxWaitMs;
+    final Integer connectTimeoutMs;
+    final Integer socketTimeoutMs;
+    final Long serverSelectionTimeoutMs;
+    final List<String> compressors;
+    final ReadPreference reportReadPreference;
+
+    private MongoSettingsConfig(Dotenv dotenv) {
+        this.poolMinSize = readInt(dotenv, "fsm.mongo.pool.minSize", "MONGO_POOL_MIN_SIZE");
+        this.poolMaxSize = readInt(dotenv, "fsm.mongo.pool.maxSize", "MONGO_POOL_MAX_SIZE");
+        this.poolMaxIdleMs = readLong(dotenv, "fsm.mongo.pool.maxIdleMs", "MONGO_POOL_MAX_IDLE_MS");
+        this.poolMaxWaitMs = readLong(dotenv, "fsm.mongo.pool.maxWaitMs", "MONGO_POOL_MAX_WAIT_MS");
+        this.connectTimeoutMs = readInt(dotenv, "fsm.mongo.connectTimeoutMs", "MONGO_CONNECT_TIMEOUT_MS");
+        this.socketTimeoutMs = readInt(dotenv, "fsm.mongo.socketTimeoutMs", "MONGO_SOCKET_TIMEOUT_MS");
+        this.serverSelectionTimeoutMs = readLong(dotenv, "fsm.mongo.serverSelectionTimeoutMs", "MONGO_SERVER_SELECTION_TIMEOUT_MS");
+
+        String compressorList = read(dotenv, "fsm.mongo.compressors", "MONGO_COMPRESSORS");
+        this.compressors = new ArrayList<>();
+        if (compressorList != null) {
+            for (String name : compressorList.split(",")) {
+                if (!name.isBlank()) compressors.add(name.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+
+        String readPref = read(dotenv, "fsm.mongo.reportReadPreference", "MONGO_REPORT_READ_PREFERENCE");
+        ReadPreference parsed = ReadPreference.primary();
+        if (readPref != null) {
+            try {
+                parsed = ReadPreference.valueOf(readPref.trim());
+            } catch (IllegalArgumentException e) {
+                System.out.println("⚠️ WARNING: Unknown report read preference '" + readPref + "'. Using primary.");
+            }
+        }
+        this.reportReadPreference = parsed;
+    }
+
+    /**
+     * Reads the configuration from system properties and the given .env file.
+     */
+    public static MongoSettingsConfig load(Dotenv dotenv) {
+        return new MongoSettingsConfig(dotenv);
+    }
+
+    /**
+     * Read preference for report and export queries. Point it at secondaries
+     * (e.g. secondaryPreferred) to keep heavy aggregations off the primary of a replica set.
+     */
+    public ReadPreference getReportReadPreference() {
+        return reportReadPreference;
+    }
+
+    /**
+     * Builds the client settings: the connection string first, then every option set here on top of it.
+     */
+    public MongoClientSettings toClientSettings(String connectionString) {
+        MongoClientSettings.Builder builder = MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(connectionString));
+
+        builder.applyToConnectionPoolSettings((ConnectionPoolSettings.Builder pool) -> {
+            if (poolMinSize != null) pool.minSize(poolMinSize);
+            if (poolMaxSize != null) pool.maxSize(poolMaxSize);
+            if (poolMaxIdleMs != null) pool.maxConnectionIdleTime(poolMaxIdleMs, TimeUnit.MILLISECONDS);
+            if (poolMaxWaitMs != null) pool.maxWaitTime(poolMaxWaitMs, TimeUnit.MILLISECONDS);
+        });
+        builder.applyToSocketSettings((SocketSettings.Builder socket) -> {
+            if (connectTimeoutMs != null) socket.connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS);
+            if (socketTimeoutMs != null) socket.readTimeout(socketTimeoutMs, TimeUnit.MILLISECONDS);
+        });
+        builder.applyToClusterSettings(cluster -> {
+            if (serverSelectionTimeoutMs != null) cluster.serverSelectionTimeout(serverSelectionTimeoutMs, TimeUnit.MILLISECONDS);
+        });
+
+        if (!compressors.isEmpty()) {
+            builder.compressorList(resolveCompressors());
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Turns the configured names into driver compressors, in order of preference.
+     * zstd and snappy need their native libraries (zstd-jni, snappy-java, runtime dependencies in pom.xml);
+     * if a packaged build leaves them out the compressor is skipped with a warning instead of failing every connection.
+     */
+    private List<MongoCompressor> resolveCompressors() {
+        List<MongoCompressor> resolved = new ArrayList<>();
+        for (String name : compressors) {
+            switch (name) {
+                case "zstd":
+                    if (isClassPresent("com.github.luben.zstd.Zstd")) {
+                        resolved.add(MongoCompressor.createZstdCompressor());
+                    } else {
+                        System.out.println("⚠️ WARNING: zstd compression requested but zstd-jni is not on the classpath. Skipping.");
+                    }
+                    break;
+                case "snappy":
+                    if (isClassPresent("org.xerial.snappy.Snappy")) {
+                        resolved.add(MongoCompressor.createSnappyCompressor());
+                    } else {
+                        System.out.println("⚠️ WARNING: snappy compression requested but snappy-java is not on the classpath. Skipping.");
+                    }
+                    break;
+                case "zlib":
+                    // Built into the JDK, always available
+                    resolved.add(MongoCompressor.createZlibCompressor());
+                    break;
+                default:
+                    System.out.println("⚠️ WARNING: Unknown compressor '" + name + "'. Skipping.");
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Prints the settings the client will actually use (after connection string, config and driver defaults).
+     */
+    public void logEffectiveSettings(MongoClientSettings settings) {
+        ConnectionPoolSettings pool = settings.getConnectionPoolSettings();
+        SocketSettings socket = settings.getSocketSettings();
+
+        List<String> compressorNames = new ArrayList<>();
+        for (MongoCompressor compressor : settings.getCompressorList()) {
+            compressorNames.add(compressor.getName());
+        }
+
+        System.out.println("⚙️ MongoManager: Effective driver settings:");
+        System.out.println("   Pool size:              " + pool.getMinSize() + " - " + pool.getMaxSize());
+        System.out.println("   Pool max idle:          " + pool.getMaxConnectionIdleTime(TimeUnit.MILLISECONDS) + " ms (0 = unlimited)");
+        System.out.println("   Wait queue timeout:     " + pool.getMaxWaitTime(TimeUnit.MILLISECONDS) + " ms");
+        System.out.println("   Connect timeout:        " + socket.getConnectTimeout(TimeUnit.MILLISECONDS) + " ms");
+        System.out.println("   Socket read timeout:    " + socket.getReadTimeout(TimeUnit.MILLISECONDS) + " ms (0 = none)");
+        System.out.println("   Server selection:       " + settings.getClusterSettings().getServerSelectionTimeout(TimeUnit.MILLISECONDS) + " ms");
+        System.out.println("   Compression:            " + (compressorNames.isEmpty() ? "none" : String.join(", ", compressorNames)));
+        System.out.println("   Read preference:        " + settings.getReadPreference().getName()
+                + " (reports: " + reportReadPreference.getName() + ")");
+    }
+
+    // --- Helpers ---
+
+    private static String read(Dotenv dotenv, String property, String envKey) {
+        String value = System.getProperty(property);
+        if ((value == null || value.isBlank()) && dotenv != null) {
+            value = dotenv.get(envKey);
+        }
+        return (value == null || value.isBlank()) ? null : value.trim();
+    }
+
+    private static Integer readInt(Dotenv dotenv, String property, String envKey) {
+        Long value = readLong(dotenv, property, envKey);
+        return value == null ? null : Math.toIntExact(value);
+    }
+
+    private static Long readLong(Dotenv dotenv, String property, String envKey) {
+        String value = read(dotenv, property, envKey);
+        if (value == null) return null;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.out.println("⚠️ WARNING: " + envKey + " must be a number, got '" + value + "'. Ignoring.");
+            return null;
+        }
+    }
+
+    private static boolean isClassPresent(String className) {
+        try {
+            Class.forName(className, false, MongoSettingsConfig.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
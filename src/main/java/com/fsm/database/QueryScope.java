@@ -0,0 +1,128 @@
+package com.fsm.database;
+
+import com.mongodb.client.MongoDatabase;
+import javafx.application.Platform;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.layout.VBox;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Tracks the in-flight background queries of one controller.
+ * Results and errors are delivered on the JavaFX Application Thread, and every
+ * pending query is cancelled when the bound view is removed from the scene
+ * (i.e. the user navigated away), so late results never touch a dead view.
+ */
+public class QueryScope {
+
+    // Key: logical load name (e.g. "surveys", "chart"). A new load with the same key cancels the old one.
+    private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Cancels all pending queries as soon as the given node leaves its scene.
+     * The scope stays usable afterwards, so a view that is shown again can load again.
+     */
+    public void bindTo(Node node) {
+        node.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (oldScene != null && newScene == null) {
+                cancelAll();
+            }
+        });
+    }
+
+    /**
+     * Runs a query off the FX thread and hands the result back on the FX thread.
+     *
+     * @param key Name of this load. Starting a load with a key that is still running cancels the previous one.
+     * @param query The blocking database work.
+     * @param onSuccess Called on the FX thread with the result (skipped if the load was cancelled).
+     * @param onError Called on the FX thread with the root cause if the query failed.
+     */
+    public <T> CompletableFuture<T> load(String key, Function<MongoDatabase, T> query,
+                                         Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        return track(key, AsyncDataService.supply(query), onSuccess, onError);
+    }
+
+    /**
+     * Like load(), but for read-only report queries: runs against MongoManager.getReportDatabase().
+     */
+    public <T> CompletableFuture<T> loadReport(String key, Function<MongoDatabase, T> query,
+                                               Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        return track(key, AsyncDataService.supplyReport(query), onSuccess, onError);
+    }
+
+    private <T> CompletableFuture<T> track(String key, CompletableFuture<T> future,
+                                           Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        CompletableFuture<?> previous = inFlight.put(key, future);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+
+        future.whenComplete((result, error) -> {
+            inFlight.remove(key, future);
+            if (future.isCancelled() || error instanceof CancellationException) {
+                return;
+            }
+            Platform.runLater(() -> {
+                // Re-check: the view may have been closed while this was queued
+                if (future.isCancelled()) return;
+                if (error != null) {
+                    onError.accept(unwrap(error));
+                } else {
+                    onSuccess.accept(result);
+                }
+            });
+        });
+
+        return future;
+    }
+
+    /**
+     * Cancels one pending load, if any.
+     */
+    public void cancel(String key) {
+        CompletableFuture<?> future = inFlight.remove(key);
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Cancels every pending load of this scope.
+     */
+    public void cancelAll() {
+        inFlight.values().forEach(f -> f.cancel(true));
+        inFlight.clear();
+    }
+
+    /**
+     * @return true while the load with the given key is still running.
+     */
+    public boolean isLoading(String key) {
+        return inFlight.containsKey(key);
+    }
+
+    /**
+     * Builds the loading state shown in tables and containers while a query runs.
+     */
+    public static Node loadingPlaceholder(String message) {
+        ProgressIndicator indicator = new ProgressIndicator();
+        indicator.setMaxSize(40, 40);
+        VBox box = new VBox(10, indicator, new Label(message));
+        box.setAlignment(Pos.CENTER);
+        return box;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,570 @@
+package com.fsm.database;
+
+import com.fsm.analytics.TextAnswerAnalyzer;
+import com.fsm.model.Question;
+import com.fsm.model.Survey;
+import com.fsm.model.codec.ResponseFormat;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Server-side aggregation queries for the Reports screen.
+ * Instead of downloading every response and walking its 'answers' list on the client,
+ * the work is pushed into MongoDB and only the per-option counts come back over the wire.
+ */
+public class ReportQueryEngine {
+
+    /** Rating histograms with more distinct values than this are not returned (no percentiles then). */
+    public static final int MAX_HISTOGRAM_VALUES = 1000;
+
+    private static final int TEXT_BATCH_SIZE = 2000;
+
+    /** Upper bound on the buckets of one trend query, so an hourly range cannot produce a huge chart. */
+    public static final int MAX_TREND_BUCKETS = 2000;
+
+    // -----------------------------------------------------------
+    // Nested Model Class: Bucket size of a time-trend report
+    // -----------------------------------------------------------
+    public enum TrendUnit {
+        HOUR("Hourly", "hour", ChronoUnit.HOURS),
+        DAY("Daily", "day", ChronoUnit.DAYS),
+        WEEK("Weekly", "week", ChronoUnit.WEEKS);
+
+        private final String label;
+        private final String mongoUnit;
+        private final ChronoUnit step;
+
+        TrendUnit(String label, String mongoUnit, ChronoUnit step) {
+            this.label = label;
+            this.mongoUnit = mongoUnit;
+            this.step = step;
+        }
+
+        /**
+         * Start of the bucket containing 'time', with the same rules as $dateTrunc
+         * (local time zone, weeks start on Monday).
+         */
+        public ZonedDateTime truncate(ZonedDateTime time) {
+            switch (this) {
+                case HOUR: return time.truncatedTo(ChronoUnit.HOURS);
+                case DAY: return time.truncatedTo(ChronoUnit.DAYS);
+                default: return time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            }
+        }
+
+        public ZonedDateTime next(ZonedDateTime bucket) {
+            return bucket.plus(1, step);
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+    // -----------------------------------------------------------
+
+    // -----------------------------------------------------------
+    // Nested Model Class: Contingency table of two questions
+    // -----------------------------------------------------------
+    public static class CrossTab {
+        private final List<String> rowLabels;
+        private final List<String> columnLabels;
+        private final int[][] counts;
+        private final int[] rowTotals;
+        private final int[] columnTotals;
+        private final int maxCount;
+
+        CrossTab(List<String> rowLabels, List<String> columnLabels, int[][] counts) {
+            this.rowLabels = rowLabels;
+            this.columnLabels = columnLabels;
+            this.counts = counts;
+            this.rowTotals = new int[rowLabels.size()];
+            this.columnTotals = new int[columnLabels.size()];
+            int max = 0;
+            for (int r = 0; r < rowLabels.size(); r++) {
+                for (int c = 0; c < columnLabels.size(); c++) {
+                    rowTotals[r] += counts[r][c];
+                    columnTotals[c] += counts[r][c];
+                    max = Math.max(max, counts[r][c]);
+                }
+            }
+            this.maxCount = max;
+        }
+
+        public List<String> getRowLabels() { return rowLabels; }
+        public List<String> getColumnLabels() { return columnLabels; }
+        public int getCount(int row, int column) { return counts[row][column]; }
+        public int getRowTotal(int row) { return rowTotals[row]; }
+        public int getColumnTotal(int column) { return columnTotals[column]; }
+        /** Largest single cell, the top of the heatmap's color scale. */
+        public int getMaxCount() { return maxCount; }
+        public boolean isEmpty() { return maxCount == 0; }
+    }
+    // -----------------------------------------------------------
+
+    // -----------------------------------------------------------
+    // Nested Model Class: Descriptive statistics of a RATING question
+    // -----------------------------------------------------------
+    public static class RatingStats {
+        private final long count;
+        private final double mean;
+        private final double standardDeviation;
+        private final double min;
+        private final double max;
+        private final double[] histogramValues; // Ascending distinct ratings, or null if there were too many
+        private final long[] histogramCounts;
+
+        RatingStats(long count, double mean, double standardDeviation, double min, double max,
+                    double[] histogramValues, long[] histogramCounts) {
+            this.count = count;
+            this.mean = mean;
+            this.standardDeviation = standardDeviation;
+            this.min = min;
+            this.max = max;
+            this.histogramValues = histogramValues;
+            this.histogramCounts = histogramCounts;
+        }
+
+        public long getCount() { return count; }
+        public double getMean() { return mean; }
+        /** Population standard deviation (every response is counted, not a sample). */
+        public double getStandardDeviation() { return standardDeviation; }
+        public double getVariance() { return standardDeviation * standardDeviation; }
+        public double getMin() { return min; }
+        public double getMax() { return max; }
+        public boolean hasPercentiles() { return histogramValues != null && count > 0; }
+
+        /**
+         * Nearest-rank percentile, exact: read off the cumulative histogram.
+         * @param p Between 0 and 1 (0.5 is the median).
+         * @return NaN if the ratings had too many distinct values for a histogram.
+         */
+        public double getPercentile(double p) {
+            if (!hasPercentiles()) return Double.NaN;
+            long rank = Math.max(1, (long) Math.ceil(p * count));
+            long seen = 0;
+            for (int i = 0; i < histogramValues.length; i++) {
+                seen += histogramCounts[i];
+                if (seen >= rank) return histogramValues[i];
+            }
+            return max;
+        }
+    }
+    // -----------------------------------------------------------
+
+    private ReportQueryEngine() {
+        // Static helper class, no instances.
+    }
+
+    /**
+     * Counts how many times each answer value was given for one question of a survey.
+     * MULTI_CHOICE answers are stored as real BSON arrays, so each selected option is
+     * unwound on the server and counted individually. Empty answers are skipped.
+     * Both response formats are counted (see ResponseFormat); v2 option indexes are grouped on the
+     * server and only translated to their labels here.
+     *
+     * @param surveyId The hex string of the survey's ObjectId.
+     * @param questionId The question ID inside the survey (e.g. "Q3").
+     * @return Answer value -> count, ordered by count descending. Empty if the DB is unavailable.
+     */
+    public static Map<String, Integer> countAnswersByOption(String surveyId, String questionId) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+
+        MongoDatabase db = MongoManager.getInstance().getReportDatabase();
+        if (db == null) return counts;
+
+        MongoCollection<Document> responseCollection = db.getCollection("responses");
+        Survey survey = SurveyDefinitionCache.get(db, surveyId);
+        Question question = survey != null ? ResponseFormat.byId(survey.questions()).get(questionId) : null;
+
+        for (Document doc : responseCollection.aggregate(buildAnswerCountPipeline(new ObjectId(surveyId), questionId))) {
+            Object value = doc.get("_id");
+            Number count = doc.get("count", Number.class);
+            if (value != null && count != null) {
+                // The same option may arrive twice: as a v1 label and as a v2 index
+                counts.merge(labelOf(value, question), count.intValue(), Integer::sum);
+            }
+        }
+
+        // Re-sort: merging labels and indexes can change the order
+        List<Map.Entry<String, Integer>> sorted = new ArrayList<>(counts.entrySet());
+        sorted.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        Map<String, Integer> ordered = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : sorted) {
+            ordered.put(entry.getKey(), entry.getValue());
+        }
+        return ordered;
+    }
+
+    /**
+     * Counts a survey's responses per hour, day or week between 'from' (inclusive) and 'to' (exclusive).
+     * The range goes into the leading $match, so with the survey_id_timestamp_id index the server only
+     * scans the index keys inside the range; the $group needs nothing but 'timestamp', which is in the
+     * index too, so no response document is fetched. Buckets are cut by $dateTrunc (MongoDB 5.0+) in the
+     * local time zone.
+     *
+     * @return Bucket start -> response count, in time order, with empty buckets filled in as 0.
+     * @throws IllegalArgumentException If the range spans more than {@link #MAX_TREND_BUCKETS} buckets.
+     */
+    public static Map<Date, Integer> countResponsesOverTime(MongoDatabase db, ObjectId surveyId, TrendUnit unit,
+                                                            Instant from, Instant to) {
+        ZoneId zone = ZoneId.systemDefault();
+        List<Date> buckets = bucketsBetween(unit, from, to, zone);
+
+        List<Bson> pipeline = Arrays.asList(
+                new Document("$match", rangeFilter(surveyId, from, to)),
+                new Document("$group", new Document("_id", dateTrunc(unit, zone))
+                        .append("count", new Document("$sum", 1)))
+        );
+
+        Map<Date, Integer> counts = new LinkedHashMap<>();
+        for (Date bucket : buckets) counts.put(bucket, 0);
+        for (Document doc : db.getCollection("responses").aggregate(pipeline)) {
+            counts.merge(doc.getDate("_id"), doc.get("count", Number.class).intValue(), Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Per-option answer counts of one question, per hour, day or week (same range and index as
+     * {@link #countResponsesOverTime}). Reads both response formats and reports option labels.
+     *
+     * @return Option label -> (bucket start -> count). Every option has every bucket, 0 when empty.
+     *         Options are ordered by their total count, descending.
+     * @throws IllegalArgumentException If the range spans more than {@link #MAX_TREND_BUCKETS} buckets.
+     */
+    public static Map<String, Map<Date, Integer>> countOptionsOverTime(MongoDatabase db, ObjectId surveyId,
+                                                                       String questionId, TrendUnit unit,
+                                                                       Instant from, Instant to) {
+        ZoneId zone = ZoneId.systemDefault();
+        List<Date> buckets = bucketsBetween(unit, from, to, zone);
+        Survey survey = SurveyDefinitionCache.get(db, surveyId);
+        Question question = survey != null ? ResponseFormat.byId(survey.questions()).get(questionId) : null;
+
+        List<Bson> pipeline = Arrays.asList(
+                new Document("$match", rangeFilter(surveyId, from, to).append("$or", answeredFilter(questionId))),
+                new Document("$project", new Document("_id", 0)
+                        .append("bucket", dateTrunc(unit, zone))
+                        .append("value", answerValue(questionId))),
+                new Document("$unwind", "$value"),
+                new Document("$match", new Document("value", new Document("$nin", Arrays.asList(null, "")))),
+                new Document("$group", new Document("_id", new Document("bucket", "$bucket").append("value", "$value"))
+                        .append("count", new Document("$sum", 1)))
+        );
+
+        Map<String, Map<Date, Integer>> series = new HashMap<>();
+        Map<String, Integer> totals = new HashMap<>();
+        for (Document doc : db.getCollection("responses").aggregate(pipeline)) {
+            Document key = doc.get("_id", Document.class);
+            Object value = key.get("value");
+            if (value == null) continue;
+            String label = labelOf(value, question);
+            int count = doc.get("count", Number.class).intValue();
+            series.computeIfAbsent(label, l -> {
+                Map<Date, Integer> empty = new LinkedHashMap<>();
+                for (Date bucket : buckets) empty.put(bucket, 0);
+                return empty;
+            }).merge(key.getDate("bucket"), count, Integer::sum);
+            totals.merge(label, count, Integer::sum);
+        }
+
+        List<String> labels = new ArrayList<>(series.keySet());
+        labels.sort((a, b) -> Integer.compare(totals.get(b), totals.get(a)));
+        Map<String, Map<Date, Integer>> ordered = new LinkedHashMap<>();
+        for (String label : labels) ordered.put(label, series.get(label));
+        return ordered;
+    }
+
+    /**
+     * Builds the contingency table of two questions of a survey in one aggregation: each response
+     * that answered both contributes one count to the cell (row answer, column answer). MULTI_CHOICE
+     * answers are unwound on both sides, so a response choosing two options counts once in each of
+     * their rows (or columns); row and column totals can therefore exceed the number of responses.
+     * Only the non-empty cells come back from the server. Reads both response formats.
+     *
+     * Rows and columns follow the question's option order for choice questions, ascending values for
+     * ratings, and descending totals otherwise; answers no longer among the options come last.
+     */
+    public static CrossTab crossTabulate(MongoDatabase db, ObjectId surveyId, String rowQuestionId,
+                                         String columnQuestionId) {
+        Survey survey = SurveyDefinitionCache.get(db, surveyId);
+        Map<String, Question> questions = survey != null ? ResponseFormat.byId(survey.questions()) : Map.of();
+        Question rowQuestion = questions.get(rowQuestionId);
+        Question columnQuestion = questions.get(columnQuestionId);
+
+        List<Bson> pipeline = Arrays.asList(
+                // Both questions must be present, in either format; survey_id leads for the index
+                new Document("$match", new Document("survey_id", surveyId)
+                        .append("$and", Arrays.asList(
+                                new Document("$or", answeredFilter(rowQuestionId)),
+                                new Document("$or", answeredFilter(columnQuestionId))))),
+                new Document("$project", new Document("_id", 0)
+                        .append("row", answerValue(rowQuestionId))
+                        .append("column", answerValue(columnQuestionId))),
+                // One document per (row option, column option) pair of each response
+                new Document("$unwind", "$row"),
+                new Document("$unwind", "$column"),
+                new Document("$match", new Document("row", new Document("$nin", Arrays.asList(null, "")))
+                        .append("column", new Document("$nin", Arrays.asList(null, "")))),
+                new Document("$group", new Document("_id", new Document("row", "$row").append("column", "$column"))
+                        .append("count", new Document("$sum", 1)))
+        );
+
+        // Cells keyed by labels: v1 labels and v2 indexes of the same option merge here
+        Map<String, Map<String, Integer>> cells = new HashMap<>();
+        Map<String, Integer> rowTotals = new HashMap<>();
+        Map<String, Integer> columnTotals = new HashMap<>();
+        for (Document doc : db.getCollection("responses").aggregate(pipeline)) {
+            Document key = doc.get("_id", Document.class);
+            String row = labelOf(key.get("row"), rowQuestion);
+            String column = labelOf(key.get("column"), columnQuestion);
+            int count = doc.get("count", Number.class).intValue();
+            cells.computeIfAbsent(row, r -> new HashMap<>()).merge(column, count, Integer::sum);
+            rowTotals.merge(row, count, Integer::sum);
+            columnTotals.merge(column, count, Integer::sum);
+        }
+
+        List<String> rowLabels = orderLabels(rowTotals, rowQuestion);
+        List<String> columnLabels = orderLabels(columnTotals, columnQuestion);
+        int[][] counts = new int[rowLabels.size()][columnLabels.size()];
+        for (int r = 0; r < rowLabels.size(); r++) {
+            Map<String, Integer> rowCells = cells.get(rowLabels.get(r));
+            for (int c = 0; c < columnLabels.size(); c++) {
+                counts[r][c] = rowCells.getOrDefault(columnLabels.get(c), 0);
+            }
+        }
+        return new CrossTab(rowLabels, columnLabels, counts);
+    }
+
+    /**
+     * Axis order of a cross-tab: option order, then numeric for ratings, then by total.
+     */
+    private static List<String> orderLabels(Map<String, Integer> totals, Question question) {
+        List<String> ordered = new ArrayList<>();
+        if (question != null && (question.isSingleChoice() || question.isMultiChoice())) {
+            for (String option : question.options()) {
+                if (totals.containsKey(option)) ordered.add(option);
+            }
+        }
+
+        List<String> rest = new ArrayList<>(totals.keySet());
+        rest.removeAll(ordered);
+        if (question != null && question.isRating()) {
+            rest.sort(Comparator.comparing(ReportQueryEngine::numericOrNull, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(Comparator.naturalOrder()));
+        } else {
+            rest.sort(Comparator.comparing((String label) -> totals.get(label)).reversed()
+                    .thenComparing(Comparator.naturalOrder()));
+        }
+        ordered.addAll(rest);
+        return ordered;
+    }
+
+    private static Double numericOrNull(String label) {
+        try {
+            return Double.parseDouble(label.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Count, mean, standard deviation, min/max and percentiles of a numeric (RATING) question, in one
+     * aggregation. The answers are converted to numbers on the server (v1 stores "4", v2 stores 4;
+     * non-numeric values are skipped), then a $facet runs two $groups over the same stream:
+     *  - the accumulators $sum/$avg/$stdDevPop/$min/$max, which keep constant state per query;
+     *  - a value -> count histogram, from which percentiles are read exactly on the client.
+     * A rating scale has a handful of distinct values, so the histogram stays tiny whatever the number
+     * of responses; it is capped at {@link #MAX_HISTOGRAM_VALUES} entries all the same.
+     *
+     * @return The statistics, with a count of 0 if no response has a numeric answer.
+     */
+    public static RatingStats computeRatingStats(MongoDatabase db, ObjectId surveyId, String questionId) {
+        List<Bson> pipeline = Arrays.asList(
+                new Document("$match", new Document("survey_id", surveyId)
+                        .append("$or", answeredFilter(questionId))),
+                new Document("$project", new Document("_id", 0)
+                        .append("value", new Document("$convert", new Document("input", answerValue(questionId))
+                                .append("to", "double")
+                                .append("onError", null)
+                                .append("onNull", null)))),
+                new Document("$match", new Document("value", new Document("$ne", null))),
+                new Document("$facet", new Document()
+                        .append("stats", Arrays.asList(
+                                new Document("$group", new Document("_id", null)
+                                        .append("count", new Document("$sum", 1))
+                                        .append("mean", new Document("$avg", "$value"))
+                                        .append("stdDev", new Document("$stdDevPop", "$value"))
+                                        .append("min", new Document("$min", "$value"))
+                                        .append("max", new Document("$max", "$value")))))
+                        .append("histogram", Arrays.asList(
+                                new Document("$group", new Document("_id", "$value")
+                                        .append("count", new Document("$sum", 1))),
+                                new Document("$sort", new Document("_id", 1)),
+                                // One more than allowed, to tell "exactly at the cap" from "over it"
+                                new Document("$limit", MAX_HISTOGRAM_VALUES + 1))))
+        );
+
+        Document result = db.getCollection("responses").aggregate(pipeline).first();
+        List<Document> stats = result != null ? result.getList("stats", Document.class) : List.of();
+        if (stats.isEmpty()) {
+            return new RatingStats(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN, null, null);
+        }
+
+        Document summary = stats.get(0);
+        List<Document> histogram = result.getList("histogram", Document.class);
+        double[] values = null;
+        long[] counts = null;
+        if (histogram.size() <= MAX_HISTOGRAM_VALUES) {
+            values = new double[histogram.size()];
+            counts = new long[histogram.size()];
+            for (int i = 0; i < histogram.size(); i++) {
+                values[i] = histogram.get(i).get("_id", Number.class).doubleValue();
+                counts[i] = histogram.get(i).get("count", Number.class).longValue();
+            }
+        }
+
+        return new RatingStats(
+                summary.get("count", Number.class).longValue(),
+                summary.get("mean", Number.class).doubleValue(),
+                summary.get("stdDev", Number.class).doubleValue(),
+                summary.get("min", Number.class).doubleValue(),
+                summary.get("max", Number.class).doubleValue(),
+                values, counts);
+    }
+
+    /**
+     * Summarizes the free-text answers of one question: approximate distinct answers and words, and the
+     * most frequent ones (see TextAnswerAnalyzer). The server only filters and projects, sending each
+     * answer's text and nothing else; the sketches are fed straight from the cursor, one batch at a
+     * time, so client memory stays fixed whatever the number of responses.
+     *
+     * @param topK Number of answers and words to rank.
+     */
+    public static TextAnswerAnalyzer.Result analyzeTextAnswers(MongoDatabase db, ObjectId surveyId,
+                                                                String questionId, int topK) {
+        List<Bson> pipeline = Arrays.asList(
+                new Document("$match", new Document("survey_id", surveyId)
+                        .append("$or", answeredFilter(questionId))),
+                new Document("$project", new Document("_id", 0)
+                        .append("value", answerValue(questionId))),
+                new Document("$match", new Document("value", new Document("$type", "string").append("$ne", "")))
+        );
+
+        TextAnswerAnalyzer analyzer = new TextAnswerAnalyzer(topK);
+        for (Document doc : db.getCollection("responses").aggregate(pipeline).batchSize(TEXT_BATCH_SIZE)) {
+            analyzer.add(doc.getString("value"));
+        }
+        return analyzer.result();
+    }
+
+    /**
+     * Equality on survey_id, then the timestamp range: the prefix of the survey_id_timestamp_id index.
+     */
+    private static Document rangeFilter(ObjectId surveyId, Instant from, Instant to) {
+        return new Document("survey_id", surveyId)
+                .append("timestamp", new Document("$gte", Date.from(from)).append("$lt", Date.from(to)));
+    }
+
+    private static Document dateTrunc(TrendUnit unit, ZoneId zone) {
+        Document args = new Document("date", "$timestamp")
+                .append("unit", unit.mongoUnit)
+                .append("timezone", zone.getId());
+        if (unit == TrendUnit.WEEK) args.append("startOfWeek", "monday");
+        return new Document("$dateTrunc", args);
+    }
+
+    /**
+     * Every bucket start from the one containing 'from' up to 'to', computed locally so that periods
+     * without responses still show on the chart.
+     */
+    private static List<Date> bucketsBetween(TrendUnit unit, Instant from, Instant to, ZoneId zone) {
+        if (!from.isBefore(to)) throw new IllegalArgumentException("The start of the range must be before its end.");
+
+        List<Date> buckets = new ArrayList<>();
+        ZonedDateTime end = to.atZone(zone);
+        for (ZonedDateTime bucket = unit.truncate(from.atZone(zone)); bucket.isBefore(end); bucket = unit.next(bucket)) {
+            if (buckets.size() == MAX_TREND_BUCKETS) {
+                throw new IllegalArgumentException("The range has more than " + MAX_TREND_BUCKETS + " "
+                        + unit.mongoUnit + "s. Choose a shorter range or a larger bucket.");
+            }
+            buckets.add(Date.from(bucket.toInstant()));
+        }
+        return buckets;
+    }
+
+    /**
+     * The label to report for a grouped value: v2 option indexes are looked up in the question's
+     * dictionary, anything else (v1 labels, ratings, text) is used as-is.
+     */
+    private static String labelOf(Object value, Question question) {
+        if (value instanceof Integer && question != null && (question.isSingleChoice() || question.isMultiChoice())) {
+            return ResponseFormat.decodeValue(question.id(), value, question).text();
+        }
+        return value.toString();
+    }
+
+    /**
+     * Builds the $match/$unwind/$group pipeline behind {@link #countAnswersByOption}.
+     * The leading $match filters on survey_id and on the question being present in either format, so
+     * responses that never answered the question are dropped before any unwinding.
+     */
+    private static List<Bson> buildAnswerCountPipeline(ObjectId surveyId, String questionId) {
+        return Arrays.asList(
+                new Document("$match", new Document("survey_id", surveyId)
+                        .append("$or", answeredFilter(questionId))),
+                // Keep only this question's value, from whichever format the document uses
+                new Document("$project", new Document("_id", 0)
+                        .append("value", answerValue(questionId))),
+                // Arrays (MULTI_CHOICE) expand to one document per option; scalars pass through unchanged
+                new Document("$unwind", "$value"),
+                new Document("$match", new Document("value", new Document("$nin", Arrays.asList(null, "")))),
+                new Document("$group", new Document("_id", "$value")
+                        .append("count", new Document("$sum", 1))),
+                new Document("$sort", new Document("count", -1))
+        );
+    }
+
+    /**
+     * $or branches matching responses that contain the question, in either storage format.
+     */
+    static List<Document> answeredFilter(String questionId) {
+        return Arrays.asList(
+                new Document("answers.question_id", questionId),
+                new Document(ResponseFormat.ANSWERS_FIELD + "." + questionId, new Document("$exists", true)));
+    }
+
+    /**
+     * Expression for the stored value of one question: v2 'a.&lt;id&gt;', or the 'answer' of the matching
+     * element of the v1 answers array.
+     */
+    private static Document answerValue(String questionId) {
+        Document legacyAnswer = new Document("$arrayElemAt", Arrays.asList(
+                new Document("$map", new Document("input", new Document("$filter", new Document("input", "$answers")
+                        .append("cond", new Document("$eq", Arrays.asList("$$this.question_id", questionId)))))
+                        .append("in", "$$this.answer")),
+                0));
+        return new Document("$cond", Arrays.asList(
+                new Document("$eq", Arrays.asList("$" + ResponseFormat.VERSION_FIELD, ResponseFormat.V2)),
+                "$" + ResponseFormat.ANSWERS_FIELD + "." + questionId,
+                legacyAnswer));
+    }
+}
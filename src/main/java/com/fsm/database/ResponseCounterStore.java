@@ -0,0 +1,111 @@
+package com.fsm.database;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Materialized per-survey response counts kept in the 'survey_stats' collection:
+ *   { _id: survey ObjectId, response_count: long, updated_at: Date }
+ * Counts are incremented whenever responses are saved, so the Reports screen reads them with a
+ * single _id lookup instead of running a $group over the whole 'responses' collection.
+ */
+public class ResponseCounterStore {
+
+    public static final String COLLECTION = "survey_stats";
+
+    // Set once the counters are known to exist (checked on first read per process)
+    private static volatile boolean initialized = false;
+
+    private ResponseCounterStore() {
+        // Static helper class, no instances.
+    }
+
+    /**
+     * Adds the given number of new responses to each survey's counter (creating counters as needed).
+     *
+     * @param deltas Survey ObjectId -> number of responses just inserted for it.
+     */
+    public static void increment(MongoDatabase db, Map<ObjectId, Integer> deltas) {
+        if (deltas.isEmpty()) return;
+
+        List<WriteModel<Document>> updates = new ArrayList<>(deltas.size());
+        Date now = new Date();
+        deltas.forEach((surveyId, delta) -> updates.add(new UpdateOneModel<>(
+                Filters.eq("_id", surveyId),
+                Updates.combine(Updates.inc("response_count", (long) delta), Updates.set("updated_at", now)),
+                new UpdateOptions().upsert(true))));
+
+        db.getCollection(COLLECTION).bulkWrite(updates, new BulkWriteOptions().ordered(false));
+    }
+
+    /**
+     * Drops the counter of a survey whose responses were removed (see CascadeDeleteJob).
+     */
+    public static void remove(MongoDatabase db, ObjectId surveyId) {
+        db.getCollection(COLLECTION).deleteOne(Filters.eq("_id", surveyId));
+    }
+
+    /**
+     * Reads the counters of the given surveys with one indexed ($in on _id) query.
+     *
+     * @return Survey hex id -> response count. Surveys without a counter are absent (zero responses).
+     */
+    public static Map<String, Integer> loadCounts(MongoDatabase db, Collection<ObjectId> surveyIds) {
+        Map<String, Integer> counts = new HashMap<>();
+        if (surveyIds.isEmpty()) return counts;
+        ensureInitialized(db);
+
+        for (Document doc : db.getCollection(COLLECTION).find(Filters.in("_id", surveyIds))) {
+            Number count = doc.get("response_count", Number.class);
+            if (count != null) {
+                counts.put(doc.getObjectId("_id").toHexString(), count.intValue());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Builds the counters the first time they are needed on a database that already has responses
+     * (e.g. right after upgrading), so existing surveys do not show zero.
+     */
+    private static synchronized void ensureInitialized(MongoDatabase db) {
+        if (initialized) return;
+        if (db.getCollection(COLLECTION).estimatedDocumentCount() == 0
+                && db.getCollection("responses").estimatedDocumentCount() > 0) {
+            rebuild(db);
+        }
+        initialized = true;
+    }
+
+    /**
+     * Recomputes every counter from the 'responses' collection and atomically replaces 'survey_stats'.
+     * Use after bulk imports or manual edits. Responses saved while the rebuild runs may be missed,
+     * so run it when submissions are quiet.
+     */
+    public static void rebuild(MongoDatabase db) {
+        // $out writes, so never let a report handle route this to a secondary
+        db.withReadPreference(ReadPreference.primary()).getCollection("responses").aggregate(Arrays.asList(
+                new Document("$group", new Document("_id", "$survey_id")
+                        .append("response_count", new Document("$sum", 1L))),
+                new Document("$addFields", new Document("updated_at", "$$NOW")),
+                new Document("$out", COLLECTION)
+        )).toCollection();
+        System.out.println("✅ ResponseCounterStore: survey_stats rebuilt from responses.");
+    }
+}
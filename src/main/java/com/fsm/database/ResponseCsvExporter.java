@@ -0,0 +1,328 @@
+package com.fsm.database;
+
+import com.fsm.model.Answer;
+import com.fsm.model.Question;
+import com.fsm.model.Survey;
+import com.fsm.model.codec.ResponseFormat;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Streams the responses of a survey straight from the MongoDB cursor into a CSV file.
+ * Each response is read as raw BSON and transcoded field by field into a reusable line buffer,
+ * which is encoded into a large direct ByteBuffer and written through a FileChannel.
+ * Memory use is constant no matter how many responses the survey has.
+ * Both response formats are read (see ResponseFormat); v2 option indexes are written as their labels.
+ */
+public class ResponseCsvExporter {
+
+    /**
+     * Receives progress updates from the export thread (not the FX thread).
+     */
+    public interface ProgressListener {
+        void onProgress(long rowsWritten, long totalRows);
+    }
+
+    public static final int DEFAULT_BATCH_SIZE = Integer.getInteger("fsm.export.batchSize", 1000);
+    public static final int DEFAULT_BUFFER_BYTES = Integer.getInteger("fsm.export.bufferBytes", 1 << 20);
+
+    // Name of the column that holds the submission date instead of a question ID
+    public static final String TIMESTAMP_COLUMN = "Timestamp";
+
+    private final int batchSize;
+    private final int bufferBytes;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    public ResponseCsvExporter() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_BUFFER_BYTES);
+    }
+
+    /**
+     * @param batchSize Number of documents fetched from the server per cursor round trip.
+     * @param bufferBytes Size of the direct output buffer flushed to the file channel.
+     */
+    public ResponseCsvExporter(int batchSize, int bufferBytes) {
+        this.batchSize = batchSize;
+        this.bufferBytes = bufferBytes;
+    }
+
+    /**
+     * Requests the running export to stop. The partial file is deleted.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * Exports every response matching the filter, ordered by submission date.
+     *
+     * @param db The database to read from.
+     * @param filter Selects the responses to export (e.g. survey_id plus an optional date range).
+     * @param columnKeys Column order: TIMESTAMP_COLUMN or a question ID per column.
+     * @param headers Header text per column, same order as columnKeys.
+     * @param target The CSV file to write (overwritten).
+     * @param listener Progress callback, invoked once per cursor batch.
+     * @return The number of data rows written, or -1 if the export was cancelled.
+     */
+    public long export(MongoDatabase db, Bson filter, List<String> columnKeys, List<String> headers,
+                       Path target, ProgressListener listener) throws IOException {
+        long total = db.getCollection("responses").countDocuments(filter);
+
+        // Question ID -> column index, so answers can be placed without searching
+        Map<String, Integer> columnIndex = new HashMap<>();
+        for (int i = 0; i < columnKeys.size(); i++) {
+            columnIndex.put(columnKeys.get(i), i);
+        }
+        Integer timestampIndex = columnIndex.get(TIMESTAMP_COLUMN);
+
+        // Question dictionaries per survey, for v2 option indexes
+        Map<ObjectId, Map<String, Question>> dictionaries = new HashMap<>();
+
+        String[] cells = new String[columnKeys.size()];
+        StringBuilder line = new StringBuilder(256);
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        ByteBuffer out = ByteBuffer.allocateDirect(bufferBytes);
+        long rows = 0;
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             MongoCursor<RawBsonDocument> cursor = db.getCollection("responses", RawBsonDocument.class)
+                     .find(filter)
+                     .projection(Projections.include("survey_id", "timestamp", ResponseFormat.LEGACY_ANSWERS_FIELD,
+                             ResponseFormat.ANSWERS_FIELD))
+                     .sort(Sorts.ascending("timestamp", "_id"))
+                     .batchSize(batchSize)
+                     .iterator()) {
+
+            // --- Header row ---
+            for (int i = 0; i < headers.size(); i++) {
+                if (i > 0) line.append(',');
+                appendQuoted(line, headers.get(i));
+            }
+            line.append('\n');
+            write(line, encoder, out, channel);
+
+            // --- Data rows ---
+            while (cursor.hasNext()) {
+                if (cancelled.get() || Thread.currentThread().isInterrupted()) {
+                    cancelled.set(true);
+                    break;
+                }
+
+                Arrays.fill(cells, "");
+                transcode(cursor.next(), cells, columnIndex, timestampIndex,
+                        surveyId -> dictionaries.computeIfAbsent(surveyId, id -> {
+                            Survey survey = SurveyDefinitionCache.get(db, id);
+                            return survey != null ? ResponseFormat.byId(survey.questions()) : Map.of();
+                        }));
+
+                line.setLength(0);
+                for (int i = 0; i < cells.length; i++) {
+                    if (i > 0) line.append(',');
+                    appendQuoted(line, cells[i]);
+                }
+                line.append('\n');
+                write(line, encoder, out, channel);
+
+                rows++;
+                if (rows % batchSize == 0 && listener != null) {
+                    listener.onProgress(rows, total);
+                }
+            }
+
+            flush(out, channel);
+            channel.force(false);
+        }
+
+        if (cancelled.get()) {
+            Files.deleteIfExists(target);
+            return -1;
+        }
+
+        if (listener != null) {
+            listener.onProgress(rows, total);
+        }
+        return rows;
+    }
+
+    /**
+     * Reads one raw response document and fills the matching cells, without building a Document map.
+     */
+    private static void transcode(RawBsonDocument raw, String[] cells, Map<String, Integer> columnIndex, Integer timestampIndex,
+                                  Function<ObjectId, Map<String, Question>> dictionaries) {
+        try (BsonReader reader = raw.asBsonReader()) {
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                String name = reader.readName();
+                if ("timestamp".equals(name) && reader.getCurrentBsonType() == BsonType.DATE_TIME) {
+                    String value = new Date(reader.readDateTime()).toString();
+                    if (timestampIndex != null) cells[timestampIndex] = value;
+                } else if (ResponseFormat.LEGACY_ANSWERS_FIELD.equals(name) && reader.getCurrentBsonType() == BsonType.ARRAY) {
+                    readAnswers(reader, cells, columnIndex);
+                } else if (ResponseFormat.ANSWERS_FIELD.equals(name) && reader.getCurrentBsonType() == BsonType.DOCUMENT) {
+                    BsonValue surveyId = raw.get("survey_id");
+                    Map<String, Question> questions = (surveyId != null && surveyId.isObjectId())
+                            ? dictionaries.apply(surveyId.asObjectId().getValue()) : Map.of();
+                    readCompactAnswers(reader, cells, columnIndex, questions);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+        }
+    }
+
+    private static void readAnswers(BsonReader reader, String[] cells, Map<String, Integer> columnIndex) {
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (reader.getCurrentBsonType() != BsonType.DOCUMENT) {
+                reader.skipValue();
+                continue;
+            }
+
+            String questionId = null;
+            String answer = null;
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                String name = reader.readName();
+                if ("question_id".equals(name) && reader.getCurrentBsonType() == BsonType.STRING) {
+                    questionId = reader.readString();
+                } else if ("answer".equals(name)) {
+                    answer = readValueAsText(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+
+            Integer index = questionId != null ? columnIndex.get(questionId) : null;
+            if (index != null && answer != null) {
+                cells[index] = answer;
+            }
+        }
+        reader.readEndArray();
+    }
+
+    /**
+     * Reads a v2 'a' sub-document: { questionId: value }, options as dictionary indexes.
+     */
+    private static void readCompactAnswers(BsonReader reader, String[] cells, Map<String, Integer> columnIndex,
+                                           Map<String, Question> questions) {
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String questionId = reader.readName();
+            Integer index = columnIndex.get(questionId);
+            if (index == null) {
+                reader.skipValue();
+                continue;
+            }
+            Answer answer = ResponseFormat.decodeValue(questionId, ResponseFormat.readValue(reader), questions.get(questionId));
+            cells[index] = answer.isMultiChoice() ? String.join(", ", answer.choices()) : answer.text();
+        }
+        reader.readEndDocument();
+    }
+
+    /**
+     * Converts the current BSON value to its CSV text. Arrays (MULTI_CHOICE) are joined with ", ".
+     */
+    private static String readValueAsText(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case STRING:
+                return reader.readString();
+            case INT32:
+                return String.valueOf(reader.readInt32());
+            case INT64:
+                return String.valueOf(reader.readInt64());
+            case DOUBLE:
+                return String.valueOf(reader.readDouble());
+            case BOOLEAN:
+                return String.valueOf(reader.readBoolean());
+            case DATE_TIME:
+                return new Date(reader.readDateTime()).toString();
+            case NULL:
+                reader.readNull();
+                return "";
+            case ARRAY: {
+                StringBuilder joined = new StringBuilder();
+                reader.readStartArray();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    String item = readValueAsText(reader);
+                    if (item.isEmpty()) continue;
+                    if (joined.length() > 0) joined.append(", ");
+                    joined.append(item);
+                }
+                reader.readEndArray();
+                return joined.toString();
+            }
+            default:
+                reader.skipValue();
+                return "";
+        }
+    }
+
+    private static void appendQuoted(StringBuilder line, String value) {
+        // Enclose in quotes and escape embedded quotes by doubling them
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') line.append('"');
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    /**
+     * Encodes the line into the output buffer, flushing the buffer to the channel whenever it fills up.
+     */
+    private static void write(CharSequence text, CharsetEncoder encoder, ByteBuffer out, FileChannel channel) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        while (true) {
+            CoderResult result = encoder.encode(chars, out, false);
+            if (result.isOverflow()) {
+                flush(out, channel);
+            } else if (result.isUnderflow()) {
+                return;
+            } else {
+                result.throwException();
+            }
+        }
+    }
+
+    private static void flush(ByteBuffer out, FileChannel channel) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+}
@@ -0,0 +1,314 @@
+package com.fsm.database;
+
+import com.fsm.model.Question;
+import com.fsm.model.Response;
+import com.fsm.model.Survey;
+import com.fsm.model.codec.ModelCodecProvider;
+import com.fsm.model.codec.ResponseFormat;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Converts stored responses from the original answer format to the compact v2 format (see ResponseFormat).
+ *
+ * The responses are split into _id ranges once, recorded in 'maintenance_jobs' as a plan
+ *   { _id: "response-format-v2", type, bounds: [ObjectId, ..], done, created_at }
+ * and one job per range
+ *   { _id: "response-format-v2:&lt;n&gt;", type, from, to, last_id, converted, status, lease_until, updated_at }.
+ * Several worker threads (-Dfsm.migration.threads, default 4) each lease a range, like CascadeDeleteJob,
+ * and convert it in _id order: one find of up to -Dfsm.migration.batchSize (default 500) old-format
+ * responses, one unordered bulk write of per-document updates, then the checkpoint. Each update only
+ * matches a document that is still in the old format, so a batch repeated after a crash is harmless.
+ * Ranges interrupted by closing the app resume from their checkpoint on the next start, here or in
+ * any other client. Workers pause -Dfsm.migration.pauseMs (default 100) and at least as long as the
+ * batch took between batches, so the migration yields to foreground work. Once every range is
+ * converted (or when there was nothing to convert) the plan is marked done and later starts do nothing.
+ *
+ * Readers understand both formats, so the app works normally while the migration runs. It is on by
+ * default; -Dfsm.migration.responsesV2=false turns it off.
+ */
+public class ResponseFormatMigration {
+
+    private static ResponseFormatMigration instance;
+
+    private static final String TYPE = "response_format_v2";
+    private static final String PLAN_ID = "response-format-v2";
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("fsm.migration.responsesV2", "true"));
+    private static final int THREADS = Math.max(1, Integer.getInteger("fsm.migration.threads", 4));
+    private static final int PARTITIONS = Math.max(1, Integer.getInteger("fsm.migration.partitions", 16));
+    private static final int BATCH_SIZE = Math.max(1, Integer.getInteger("fsm.migration.batchSize", 500));
+    private static final long PAUSE_MS = Math.max(0, Long.getLong("fsm.migration.pauseMs", 100));
+    private static final long LEASE_MS = 60_000;
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean reportedDone = new AtomicBoolean();
+    private volatile boolean stopping = false;
+
+    private ResponseFormatMigration() {
+        // Singleton
+    }
+
+    public static synchronized ResponseFormatMigration getInstance() {
+        if (instance == null) {
+            instance = new ResponseFormatMigration();
+        }
+        return instance;
+    }
+
+    /**
+     * Plans the migration if no client has done so yet, then starts the workers. Called once at startup.
+     */
+    public void start() {
+        if (!ENABLED || !started.compareAndSet(false, true)) return;
+        Thread planner = new Thread(() -> {
+            MongoDatabase db = MongoManager.getInstance().getDatabase();
+            if (db == null) return;
+            try {
+                List<ObjectId> bounds = plan(db);
+                if (bounds == null) return; // Nothing to migrate
+                ensureRangeJobs(db, bounds);
+                for (int i = 0; i < THREADS && !stopping; i++) {
+                    Thread worker = new Thread(() -> workLoop(db), "response-migration-" + (i + 1));
+                    worker.setDaemon(true);
+                    worker.start();
+                }
+            } catch (Exception e) {
+                System.err.println("❌ ResponseFormatMigration: " + e.getMessage());
+            }
+        }, "response-migration");
+        planner.setDaemon(true);
+        planner.start();
+    }
+
+    /**
+     * Lets the running batches finish and stops the workers; the checkpoints are already saved.
+     */
+    public void shutdown() {
+        stopping = true;
+    }
+
+    // --- Planning ---
+
+    /**
+     * @return The range bounds (from the stored plan, or a new one), or null if there is nothing to convert.
+     * A plan marked done (every range converted, or nothing to convert in the first place) ends the
+     * migration for good, so later starts skip the scan of the responses collection.
+     */
+    private List<ObjectId> plan(MongoDatabase db) {
+        MongoCollection<Document> jobs = db.getCollection(CascadeDeleteJob.COLLECTION);
+        Document existing = jobs.find(Filters.eq("_id", PLAN_ID)).first();
+        if (existing != null) {
+            return existing.getBoolean("done", false) ? null : existing.getList("bounds", ObjectId.class);
+        }
+
+        // Oldest and newest old-format response (walks the _id index from either end)
+        MongoCollection<Document> responses = db.getCollection("responses");
+        Bson legacy = Filters.ne(ResponseFormat.VERSION_FIELD, ResponseFormat.V2);
+        Document first = responses.find(legacy).projection(Projections.include("_id")).sort(Sorts.ascending("_id")).first();
+        if (first == null) {
+            try {
+                jobs.insertOne(new Document("_id", PLAN_ID)
+                        .append("type", TYPE)
+                        .append("bounds", List.of())
+                        .append("done", true)
+                        .append("created_at", new Date()));
+            } catch (MongoWriteException e) {
+                // Another client planned first; its plan covers anything written since
+                if (e.getError().getCode() != DUPLICATE_KEY) throw e;
+                return plan(db);
+            }
+            System.out.println("✅ ResponseFormatMigration: All responses already use format v2.");
+            return null;
+        }
+        Document last = responses.find(legacy).projection(Projections.include("_id")).sort(Sorts.descending("_id")).first();
+
+        // Even slices of the ObjectId creation-time range; the last range is open-ended.
+        // The first range starts at the oldest old-format _id itself, so nothing sorts before it.
+        long from = first.getObjectId("_id").getTimestamp();
+        long to = last.getObjectId("_id").getTimestamp() + 1L;
+        List<ObjectId> bounds = new ArrayList<>();
+        bounds.add(first.getObjectId("_id"));
+        for (int i = 1; i < PARTITIONS; i++) {
+            long seconds = from + (to - from) * i / PARTITIONS;
+            ObjectId bound = smallestObjectIdAt(seconds);
+            if (bound.compareTo(bounds.get(bounds.size() - 1)) > 0) bounds.add(bound);
+        }
+
+        try {
+            // One atomic insert decides the plan; a client that loses the race uses the winner's
+            jobs.insertOne(new Document("_id", PLAN_ID)
+                    .append("type", TYPE)
+                    .append("bounds", bounds)
+                    .append("created_at", new Date()));
+            System.out.println("✅ ResponseFormatMigration: Planned " + bounds.size() + " ranges of old-format responses.");
+            return bounds;
+        } catch (MongoWriteException e) {
+            if (e.getError().getCode() != DUPLICATE_KEY) throw e;
+            return jobs.find(Filters.eq("_id", PLAN_ID)).first().getList("bounds", ObjectId.class);
+        }
+    }
+
+    /**
+     * The lowest possible ObjectId created in the given second (all bytes after the timestamp zero),
+     * so a bound splits the _id order exactly at that second whatever process generated the _ids.
+     */
+    static ObjectId smallestObjectIdAt(long epochSeconds) {
+        byte[] bytes = new byte[12];
+        bytes[0] = (byte) (epochSeconds >>> 24);
+        bytes[1] = (byte) (epochSeconds >>> 16);
+        bytes[2] = (byte) (epochSeconds >>> 8);
+        bytes[3] = (byte) epochSeconds;
+        return new ObjectId(bytes);
+    }
+
+    // --- Workers ---
+
+    private void workLoop(MongoDatabase db) {
+        while (!stopping) {
+            try {
+                Document job = claimNextRange(db);
+                if (job == null) {
+                    reportIfDone(db);
+                    return; // Every range is done or leased by another worker
+                }
+                run(db, job);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("❌ ResponseFormatMigration: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Creates the per-range jobs from the plan. Idempotent, so every client may call it on start.
+     */
+    private void ensureRangeJobs(MongoDatabase db, List<ObjectId> bounds) {
+        MongoCollection<Document> jobs = db.getCollection(CascadeDeleteJob.COLLECTION);
+        Date now = new Date();
+        for (int i = 0; i < bounds.size(); i++) {
+            ObjectId to = (i + 1 < bounds.size()) ? bounds.get(i + 1) : null;
+            jobs.updateOne(Filters.eq("_id", PLAN_ID + ":" + i),
+                    Updates.combine(
+                            Updates.setOnInsert("type", TYPE),
+                            Updates.setOnInsert("from", bounds.get(i)),
+                            Updates.setOnInsert("to", to),
+                            Updates.setOnInsert("converted", 0L),
+                            Updates.setOnInsert("status", "pending"),
+                            Updates.setOnInsert("lease_until", new Date(0)),
+                            Updates.setOnInsert("updated_at", now)),
+                    new UpdateOptions().upsert(true));
+        }
+    }
+
+    private Document claimNextRange(MongoDatabase db) {
+        Date now = new Date();
+        return db.getCollection(CascadeDeleteJob.COLLECTION).findOneAndUpdate(
+                Filters.and(Filters.eq("type", TYPE), Filters.eq("status", "pending"), Filters.lt("lease_until", now)),
+                Updates.set("lease_until", new Date(now.getTime() + LEASE_MS)),
+                new FindOneAndUpdateOptions().sort(Sorts.ascending("_id")).returnDocument(ReturnDocument.AFTER));
+    }
+
+    private void run(MongoDatabase db, Document job) throws InterruptedException {
+        // Only v1 documents are read, and those need no dictionary; the v2 values are encoded below
+        MongoCollection<Response> responses = db.getCollection("responses", Response.class)
+                .withCodecRegistry(ModelCodecProvider.forResponses(db.getCodecRegistry(), List.of()));
+        MongoCollection<Document> raw = db.getCollection("responses");
+        MongoCollection<Document> jobs = db.getCollection(CascadeDeleteJob.COLLECTION);
+        Map<ObjectId, List<Question>> questionsBySurvey = new HashMap<>();
+
+        String id = job.getString("_id");
+        ObjectId from = job.getObjectId("from");
+        ObjectId to = job.getObjectId("to");
+        ObjectId lastId = job.getObjectId("last_id");
+        long converted = job.get("converted", Number.class) != null ? job.get("converted", Number.class).longValue() : 0;
+
+        while (!stopping) {
+            long batchStart = System.nanoTime();
+
+            // Next old-format responses of this range, read through the (v1-aware) ResponseCodec
+            List<Bson> scope = new ArrayList<>();
+            scope.add(lastId != null ? Filters.gt("_id", lastId) : Filters.gte("_id", from));
+            if (to != null) scope.add(Filters.lt("_id", to));
+            scope.add(Filters.ne(ResponseFormat.VERSION_FIELD, ResponseFormat.V2));
+            List<Response> batch = responses.find(Filters.and(scope))
+                    .sort(Sorts.ascending("_id"))
+                    .limit(BATCH_SIZE)
+                    .batchSize(BATCH_SIZE)
+                    .into(new ArrayList<>());
+
+            if (batch.isEmpty()) {
+                jobs.updateOne(Filters.eq("_id", id), Updates.combine(
+                        Updates.set("status", "done"),
+                        Updates.set("converted", converted),
+                        Updates.set("updated_at", new Date())));
+                System.out.println("✅ ResponseFormatMigration: Range " + id + " done (" + converted + " responses converted).");
+                return;
+            }
+
+            // $set/$unset instead of a replacement keeps any field this version does not know about
+            List<WriteModel<Document>> updates = new ArrayList<>(batch.size());
+            for (Response response : batch) {
+                List<Question> questions = questionsBySurvey.computeIfAbsent(response.surveyId(), surveyId -> {
+                    Survey survey = surveyId != null ? SurveyDefinitionCache.get(db, surveyId) : null;
+                    return survey != null ? survey.questions() : List.of();
+                });
+                updates.add(new UpdateOneModel<>(
+                        Filters.and(Filters.eq("_id", response.id()), Filters.ne(ResponseFormat.VERSION_FIELD, ResponseFormat.V2)),
+                        Updates.combine(
+                                Updates.set(ResponseFormat.VERSION_FIELD, ResponseFormat.V2),
+                                Updates.set(ResponseFormat.ANSWERS_FIELD, ResponseFormat.encodeAnswers(response.answers(), questions)),
+                                Updates.unset(ResponseFormat.LEGACY_ANSWERS_FIELD))));
+            }
+            converted += raw.bulkWrite(updates, new BulkWriteOptions().ordered(false)).getModifiedCount();
+
+            lastId = batch.get(batch.size() - 1).id();
+            jobs.updateOne(Filters.eq("_id", id), Updates.combine(
+                    Updates.set("last_id", lastId),
+                    Updates.set("converted", converted),
+                    Updates.set("updated_at", new Date()),
+                    Updates.set("lease_until", new Date(System.currentTimeMillis() + LEASE_MS))));
+
+            long elapsedMs = (System.nanoTime() - batchStart) / 1_000_000;
+            Thread.sleep(Math.max(PAUSE_MS, elapsedMs));
+        }
+        // Stopping: release the lease so the next start picks the range up right away
+        jobs.updateOne(Filters.eq("_id", id), Updates.set("lease_until", new Date(0)));
+    }
+
+    private void reportIfDone(MongoDatabase db) {
+        long pending = db.getCollection(CascadeDeleteJob.COLLECTION)
+                .countDocuments(Filters.and(Filters.eq("type", TYPE), Filters.eq("status", "pending")));
+        if (pending == 0 && reportedDone.compareAndSet(false, true)) {
+            db.getCollection(CascadeDeleteJob.COLLECTION).updateOne(Filters.eq("_id", PLAN_ID), Updates.combine(
+                    Updates.set("done", true),
+                    Updates.set("updated_at", new Date())));
+            System.out.println("✅ ResponseFormatMigration: All planned ranges are converted to format v2.");
+        }
+    }
+}
@@ -0,0 +1,763 @@
+package com.fsm.database;
+
+import com.fsm.model.Answer;
+import com.fsm.model.Question;
+import com.fsm.model.Response;
+import com.fsm.model.Survey;
+import com.fsm.model.codec.ModelCodecProvider;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk import of survey responses from a CSV or JSONL file (paper surveys, partner exports).
+ *
+ * The file is memory-mapped and cut into chunks of about -Dfsm.import.chunkBytes (default 8 MB) that
+ * end on a record boundary. For CSV the boundaries come from one quick byte scan that tracks quotes,
+ * so quoted cells may contain line breaks. JSONL records never contain a raw line break.
+ * Chunks are parsed and validated in parallel (one parser per core). Each valid row becomes a Response
+ * record (encoded by the model codec). Rows are sent in unordered insertMany batches of
+ * -Dfsm.import.batchSize (default 1000) by -Dfsm.import.writers (default 4) concurrent writers.
+ * Parsers wait when too many batches are in flight, so memory stays bounded on any file size.
+ *
+ * Columns (CSV header cells, or JSONL keys) are mapped to questions by question ID or question text
+ * (ignoring case), so a file written by the CSV export can be imported again. "Timestamp" /
+ * "Submission Date" and "user_id" / "User" are recognized as the submission date and the user.
+ * A row without a submission date is rejected unless the caller supplies a default (the import time).
+ * JSONL records may also carry the answers as {"answers": {"Q1": ..}} or as [{question_id, answer}].
+ */
+public class ResponseImporter {
+
+    /**
+     * Receives progress updates from the import threads (not the FX thread).
+     */
+    public interface ProgressListener {
+        void onProgress(long bytesParsed, long totalBytes, long rowsInserted);
+    }
+
+    public enum Format { CSV, JSONL }
+
+    public static final int DEFAULT_CHUNK_BYTES = Integer.getInteger("fsm.import.chunkBytes", 8 << 20);
+    public static final int DEFAULT_BATCH_SIZE = Integer.getInteger("fsm.import.batchSize", 1000);
+    public static final int DEFAULT_WRITERS = Integer.getInteger("fsm.import.writers", 4);
+
+    // Only this many rejected rows are kept for the report (all of them are counted)
+    private static final int MAX_REPORTED_REJECTIONS = 1000;
+    private static final int MAX_REJECTED_TEXT = 200;
+
+    private static final DateTimeFormatter DATE_TO_STRING =
+            DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US); // java.util.Date#toString, used by the CSV export
+    private static final DateTimeFormatter SPACE_SEPARATED =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss]");
+
+    // -----------------------------------------------------------
+    // Nested Model Class: One row that was not imported
+    // -----------------------------------------------------------
+    public static class Rejection {
+        private final long line;
+        private final String reason;
+        private final String text;
+
+        Rejection(long line, String reason, String text) {
+            this.line = line;
+            this.reason = reason;
+            this.text = text;
+        }
+
+        /** Line of the record in the file (a CSV record with quoted line breaks counts as one line). */
+        public long getLine() { return line; }
+        public String getReason() { return reason; }
+        public String getText() { return text; }
+
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + reason + "  |  " + text;
+        }
+    }
+
+    // -----------------------------------------------------------
+    // Nested Model Class: Outcome of an import
+    // -----------------------------------------------------------
+    public static class ImportReport {
+        private final long rowsRead;
+        private final long rowsInserted;
+        private final long rowsRejected;
+        private final long rowsFailed;
+        private final long elapsedMs;
+        private final boolean cancelled;
+        private final List<String> mappedColumns;
+        private final List<String> ignoredColumns;
+        private final List<Rejection> rejections;
+
+        ImportReport(long rowsRead, long rowsInserted, long rowsRejected, long rowsFailed, long elapsedMs, boolean cancelled,
+                     List<String> mappedColumns, List<String> ignoredColumns, List<Rejection> rejections) {
+            this.rowsRead = rowsRead;
+            this.rowsInserted = rowsInserted;
+            this.rowsRejected = rowsRejected;
+            this.rowsFailed = rowsFailed;
+            this.elapsedMs = elapsedMs;
+            this.cancelled = cancelled;
+            this.mappedColumns = mappedColumns;
+            this.ignoredColumns = ignoredColumns;
+            this.rejections = rejections;
+        }
+
+        public long getRowsRead() { return rowsRead; }
+        public long getRowsInserted() { return rowsInserted; }
+        /** Rows that failed validation. */
+        public long getRowsRejected() { return rowsRejected; }
+        /** Valid rows the database refused (see the console log). */
+        public long getRowsFailed() { return rowsFailed; }
+        public long getElapsedMs() { return elapsedMs; }
+        public boolean isCancelled() { return cancelled; }
+        public List<String> getMappedColumns() { return mappedColumns; }
+        public List<String> getIgnoredColumns() { return ignoredColumns; }
+        /** The first rejected rows in file order (at most 1000). */
+        public List<Rejection> getRejections() { return rejections; }
+
+        public double getRowsPerSecond() {
+            return elapsedMs > 0 ? rowsRead * 1000.0 / elapsedMs : rowsRead;
+        }
+
+        /**
+         * Multi-line text for the import dialog.
+         */
+        public String toDisplayText() {
+            StringBuilder text = new StringBuilder();
+            text.append(cancelled ? "Import CANCELLED\n" : "Import finished\n");
+            text.append(String.format("Rows read:      %,d%n", rowsRead));
+            text.append(String.format("Rows inserted:  %,d%n", rowsInserted));
+            text.append(String.format("Rows rejected:  %,d%n", rowsRejected));
+            if (rowsFailed > 0) text.append(String.format("Insert errors:  %,d (see console)%n", rowsFailed));
+            text.append(String.format("Time:           %.1f s  (%,.0f rows/second)%n", elapsedMs / 1000.0, getRowsPerSecond()));
+            text.append("Mapped columns: ").append(mappedColumns).append('\n');
+            if (!ignoredColumns.isEmpty()) text.append("Ignored columns: ").append(ignoredColumns).append('\n');
+            if (!rejections.isEmpty()) {
+                text.append('\n').append("Rejected lines");
+                if (rowsRejected > rejections.size()) text.append(" (first ").append(rejections.size()).append(")");
+                text.append(":\n");
+                for (Rejection rejection : rejections) {
+                    text.append(rejection).append('\n');
+                }
+            }
+            return text.toString();
+        }
+    }
+    // -----------------------------------------------------------
+
+    // Parse result of one chunk
+    private static class ChunkResult {
+        long records;
+        long lineBreaks;              // Physical line breaks in the chunk, to number the lines of later chunks
+        final List<Rejection> rejected = new ArrayList<>();
+        long rejectedCount;
+    }
+
+    // Special (non-question) columns
+    private static final int COLUMN_IGNORED = -1;
+    private static final int COLUMN_TIMESTAMP = -2;
+    private static final int COLUMN_USER = -3;
+
+    private final int chunkBytes;
+    private final int batchSize;
+    private final int writers;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    public ResponseImporter() {
+        this(DEFAULT_CHUNK_BYTES, DEFAULT_BATCH_SIZE, DEFAULT_WRITERS);
+    }
+
+    public ResponseImporter(int chunkBytes, int batchSize, int writers) {
+        this.chunkBytes = Math.max(64 * 1024, chunkBytes);
+        this.batchSize = Math.max(1, batchSize);
+        this.writers = Math.max(1, writers);
+    }
+
+    /**
+     * Requests the running import to stop. Rows already inserted stay in the database.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public static Format formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) ? Format.JSONL : Format.CSV;
+    }
+
+    /**
+     * Imports every valid row of the file as a response to the survey.
+     *
+     * @param survey The survey definition (with questions) the rows are validated against.
+     * @param defaultUser Stored as user_id when the file has no user column.
+     * @param defaultTimestamp Stored as the submission date of rows without one; null rejects those rows
+     *                         (a made-up date would silently distort the report's trends and date filters).
+     */
+    public ImportReport importFile(MongoDatabase db, Survey survey, Path file, String defaultUser, Date defaultTimestamp,
+                                   ProgressListener listener) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Format format = formatOf(file);
+        RowValidator validator = new RowValidator(survey, defaultUser, defaultTimestamp);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            // --- 1. Header (CSV) and chunk boundaries ---
+            long dataStart = 0;
+            int[] columns = null;
+            List<String> mapped = new ArrayList<>();
+            List<String> ignored = new ArrayList<>();
+            List<long[]> chunks;
+            if (format == Format.CSV) {
+                long headerEnd = findCsvRecordEnd(channel, 0, size);
+                List<String> header = CsvParser.parseRecord(readString(channel, 0, headerEnd));
+                columns = validator.mapColumns(header, mapped, ignored);
+                dataStart = Math.min(size, headerEnd + 1);
+                chunks = csvChunks(channel, dataStart, size);
+            } else {
+                chunks = lineChunks(channel, 0, size);
+                mapped.add("(per record)");
+            }
+            System.out.println("ResponseImporter: " + file.getFileName() + " (" + size + " bytes, " + chunks.size()
+                    + " chunks) into survey '" + survey.name() + "'");
+
+            // --- 2. Parse chunks in parallel, insert with a pool of writers ---
+            MongoCollection<Response> responses = db.getCollection("responses", Response.class)
+                    .withCodecRegistry(ModelCodecProvider.forResponses(db.getCodecRegistry(), survey.questions()));
+            AtomicLong inserted = new AtomicLong();
+            AtomicLong failed = new AtomicLong();
+            AtomicLong bytesParsed = new AtomicLong(dataStart);
+            Semaphore inFlight = new Semaphore(writers * 2);
+            int parsers = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+            ExecutorService parserPool = Executors.newFixedThreadPool(parsers, namedThreads("import-parser"));
+            ExecutorService writerPool = Executors.newFixedThreadPool(writers, namedThreads("import-writer"));
+            List<Future<ChunkResult>> results = new ArrayList<>(chunks.size());
+            final int[] headerColumns = columns;
+            try {
+                for (long[] chunk : chunks) {
+                    results.add(parserPool.submit(() -> {
+                        ChunkResult result = parseChunk(channel, chunk[0], chunk[1], format, headerColumns, validator,
+                                batch -> submitBatch(writerPool, inFlight, responses, batch, inserted, failed));
+                        long parsed = bytesParsed.addAndGet(chunk[1] - chunk[0]);
+                        if (listener != null) listener.onProgress(parsed, size, inserted.get());
+                        return result;
+                    }));
+                }
+
+                List<ChunkResult> chunkResults = new ArrayList<>(results.size());
+                for (Future<ChunkResult> future : results) {
+                    chunkResults.add(future.get());
+                }
+
+                // All batches handed over; wait until every writer is done
+                parserPool.shutdown();
+                writerPool.shutdown();
+                while (!writerPool.awaitTermination(1, TimeUnit.SECONDS)) {
+                    if (listener != null) listener.onProgress(bytesParsed.get(), size, inserted.get());
+                }
+
+                // --- 3. Counters and report ---
+                if (inserted.get() > 0) {
+                    try {
+                        ResponseCounterStore.increment(db, Map.of(survey.id(), (int) Math.min(Integer.MAX_VALUE, inserted.get())));
+                    } catch (Exception e) {
+                        System.err.println("⚠️ Could not update response counters (rebuild them from Reports): " + e.getMessage());
+                    }
+                }
+                if (listener != null) listener.onProgress(size, size, inserted.get());
+
+                ImportReport report = buildReport(chunkResults, format, inserted.get(), failed.get(),
+                        (System.nanoTime() - start) / 1_000_000, mapped, ignored);
+                System.out.println("✅ ResponseImporter: " + report.getRowsInserted() + " rows inserted, "
+                        + report.getRowsRejected() + " rejected, " + String.format("%.0f", report.getRowsPerSecond()) + " rows/s.");
+                return report;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) throw (IOException) cause;
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                throw new IOException(cause);
+            } finally {
+                parserPool.shutdownNow();
+                writerPool.shutdown();
+            }
+        }
+    }
+
+    // --- Chunking ---
+
+    /**
+     * Chunks of about chunkBytes that end right after a '\n' (or at the end of the file).
+     */
+    private List<long[]> lineChunks(FileChannel channel, long from, long size) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long start = from;
+        while (start < size) {
+            long end = Math.min(size, start + chunkBytes);
+            if (end < size) {
+                MappedByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, end, Math.min(size - end, 1 << 20));
+                long extra = 0;
+                while (tail.hasRemaining() && tail.get() != '\n') extra++;
+                end = Math.min(size, end + extra + 1);
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Like lineChunks, but a '\n' only ends a record outside quotes. One sequential byte scan: the quote
+     * byte cannot occur inside a multi-byte UTF-8 character, so counting it is safe.
+     */
+    private List<long[]> csvChunks(FileChannel channel, long from, long size) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long chunkStart = from;
+        boolean inQuotes = false;
+        long window = 64L << 20;
+
+        for (long offset = from; offset < size; offset += window) {
+            long length = Math.min(window, size - offset);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            for (int i = 0; i < length; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes && offset + i + 1 - chunkStart >= chunkBytes) {
+                    chunks.add(new long[]{chunkStart, offset + i + 1});
+                    chunkStart = offset + i + 1;
+                }
+            }
+        }
+        if (chunkStart < size) chunks.add(new long[]{chunkStart, size});
+        return chunks;
+    }
+
+    /**
+     * @return Position of the '\n' that ends the CSV record starting at 'from' (or size).
+     */
+    private static long findCsvRecordEnd(FileChannel channel, long from, long size) throws IOException {
+        boolean inQuotes = false;
+        long window = 1 << 20;
+        for (long offset = from; offset < size; offset += window) {
+            long length = Math.min(window, size - offset);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            for (int i = 0; i < length; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') inQuotes = !inQuotes;
+                else if (b == '\n' && !inQuotes) return offset + i;
+            }
+        }
+        return size;
+    }
+
+    private static String readString(FileChannel channel, long from, long to) throws IOException {
+        if (to <= from) return "";
+        String text = StandardCharsets.UTF_8.decode(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from)).toString();
+        return text.startsWith("﻿") ? text.substring(1) : text; // Excel writes a byte order mark
+    }
+
+    // --- Parsing ---
+
+    private interface BatchSink {
+        void accept(List<Response> batch) throws InterruptedException;
+    }
+
+    private ChunkResult parseChunk(FileChannel channel, long from, long to, Format format, int[] columns,
+                                   RowValidator validator, BatchSink sink) throws IOException, InterruptedException {
+        ChunkResult result = new ChunkResult();
+        String text = readString(channel, from, to);
+        List<Response> batch = new ArrayList<>(batchSize);
+
+        int pos = 0;
+        while (pos < text.length()) {
+            if (cancelled.get() || Thread.currentThread().isInterrupted()) break;
+
+            int end = (format == Format.CSV) ? CsvParser.recordEnd(text, pos) : lineEnd(text, pos);
+            String record = text.substring(pos, end);
+            long lineInChunk = result.lineBreaks;
+            result.lineBreaks += countLineBreaks(record) + (end < text.length() ? 1 : 0);
+            pos = end + 1;
+
+            if (record.isBlank()) continue;
+            result.records++;
+
+            String error;
+            Response response = null;
+            try {
+                RowValidator.Row row = (format == Format.CSV)
+                        ? validator.fromCsv(CsvParser.parseRecord(record), columns)
+                        : validator.fromJson(Document.parse(record));
+                error = row.error;
+                response = row.response;
+            } catch (RuntimeException e) {
+                error = "Unreadable " + format + " record (" + e.getMessage() + ")";
+            }
+
+            if (error != null) {
+                result.rejectedCount++;
+                if (result.rejected.size() < MAX_REPORTED_REJECTIONS) {
+                    String shown = record.length() > MAX_REJECTED_TEXT ? record.substring(0, MAX_REJECTED_TEXT) + "..." : record;
+                    result.rejected.add(new Rejection(lineInChunk, error, shown.replace('\n', ' ').replace("\r", "")));
+                }
+                continue;
+            }
+
+            batch.add(response);
+            if (batch.size() == batchSize) {
+                sink.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty() && !cancelled.get()) sink.accept(batch);
+        return result;
+    }
+
+    private static int lineEnd(String text, int from) {
+        int end = text.indexOf('\n', from);
+        return end < 0 ? text.length() : end;
+    }
+
+    private static int countLineBreaks(String record) {
+        int count = 0;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == '\n') count++;
+        }
+        return count;
+    }
+
+    // --- Writing ---
+
+    private void submitBatch(ExecutorService writerPool, Semaphore inFlight, MongoCollection<Response> responses,
+                             List<Response> batch, AtomicLong inserted, AtomicLong failed) throws InterruptedException {
+        inFlight.acquire(); // back-pressure: parsing waits while the writers are behind
+        try {
+            writerPool.execute(() -> {
+                try {
+                    if (cancelled.get()) return;
+                    responses.insertMany(batch, new InsertManyOptions().ordered(false));
+                    inserted.addAndGet(batch.size());
+                } catch (MongoBulkWriteException e) {
+                    // Unordered: everything except the reported rows was written
+                    int errors = e.getWriteErrors().size();
+                    inserted.addAndGet(batch.size() - errors);
+                    failed.addAndGet(errors);
+                    System.err.println("⚠️ ResponseImporter: " + errors + " rows refused by the database: "
+                            + e.getWriteErrors().get(0).getMessage());
+                } catch (Exception e) {
+                    failed.addAndGet(batch.size());
+                    System.err.println("❌ ResponseImporter: Batch insert failed: " + e.getMessage());
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    // --- Report ---
+
+    private ImportReport buildReport(List<ChunkResult> chunkResults, Format format, long inserted, long failed,
+                                     long elapsedMs, List<String> mapped, List<String> ignored) {
+        long rows = 0;
+        long rejectedCount = 0;
+        long firstLine = (format == Format.CSV) ? 2 : 1; // CSV line 1 is the header
+        List<Rejection> rejections = new ArrayList<>();
+
+        for (ChunkResult chunk : chunkResults) {
+            rows += chunk.records;
+            rejectedCount += chunk.rejectedCount;
+            for (Rejection rejection : chunk.rejected) {
+                if (rejections.size() >= MAX_REPORTED_REJECTIONS) break;
+                rejections.add(new Rejection(firstLine + rejection.getLine(), rejection.getReason(), rejection.getText()));
+            }
+            firstLine += chunk.lineBreaks;
+        }
+        rejections.sort(Comparator.comparingLong(Rejection::getLine));
+
+        return new ImportReport(rows, inserted, rejectedCount, failed, elapsedMs, cancelled.get(),
+                Collections.unmodifiableList(mapped), Collections.unmodifiableList(ignored),
+                Collections.unmodifiableList(rejections));
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // -----------------------------------------------------------
+    // Validation against the survey definition (shared by all parser threads, read-only)
+    // -----------------------------------------------------------
+    private static class RowValidator {
+
+        static class Row {
+            final Response response;
+            final String error;
+
+            Row(Response response, String error) {
+                this.response = response;
+                this.error = error;
+            }
+        }
+
+        private final Survey survey;
+        private final String defaultUser;
+        private final Date defaultTimestamp;
+        private final List<Question> questions;
+        private final Map<String, Integer> columnLookup = new HashMap<>(); // lower-case id/text -> question index
+
+        RowValidator(Survey survey, String defaultUser, Date defaultTimestamp) {
+            this.survey = survey;
+            this.defaultUser = defaultUser;
+            this.defaultTimestamp = defaultTimestamp;
+            this.questions = survey.questions();
+            for (int i = 0; i < questions.size(); i++) {
+                Question q = questions.get(i);
+                if (q.text() != null) columnLookup.putIfAbsent(q.text().trim().toLowerCase(Locale.ROOT), i);
+            }
+            // IDs win over texts that happen to look like an ID
+            for (int i = 0; i < questions.size(); i++) {
+                if (questions.get(i).id() != null) columnLookup.put(questions.get(i).id().trim().toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        int columnFor(String name) {
+            String key = name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+            switch (key) {
+                case "timestamp":
+                case "submission date":
+                    return COLUMN_TIMESTAMP;
+                case "user_id":
+                case "user":
+                    return COLUMN_USER;
+                default:
+                    Integer index = columnLookup.get(key);
+                    return index != null ? index : COLUMN_IGNORED;
+            }
+        }
+
+        int[] mapColumns(List<String> header, List<String> mapped, List<String> ignored) {
+            int[] columns = new int[header.size()];
+            for (int i = 0; i < header.size(); i++) {
+                columns[i] = columnFor(header.get(i));
+                if (columns[i] == COLUMN_IGNORED) ignored.add(header.get(i));
+                else mapped.add(header.get(i));
+            }
+            return columns;
+        }
+
+        Row fromCsv(List<String> cells, int[] columns) {
+            Object[] values = new Object[questions.size()];
+            String timestamp = null;
+            String user = null;
+            for (int i = 0; i < cells.size() && i < columns.length; i++) {
+                int column = columns[i];
+                if (column >= 0) values[column] = cells.get(i);
+                else if (column == COLUMN_TIMESTAMP) timestamp = cells.get(i);
+                else if (column == COLUMN_USER) user = cells.get(i);
+            }
+            return build(values, timestamp, user, null);
+        }
+
+        Row fromJson(Document record) {
+            Object[] raw = new Object[questions.size()];
+            String timestamp = null;
+            String user = null;
+
+            for (Map.Entry<String, Object> entry : record.entrySet()) {
+                if ("answers".equals(entry.getKey())) {
+                    Object answers = entry.getValue();
+                    if (answers instanceof Document) {
+                        for (Map.Entry<String, Object> answer : ((Document) answers).entrySet()) {
+                            int column = columnFor(answer.getKey());
+                            if (column >= 0) raw[column] = answer.getValue();
+                        }
+                    } else if (answers instanceof List) {
+                        for (Object item : (List<?>) answers) {
+                            if (!(item instanceof Document)) continue;
+                            int column = columnFor(((Document) item).getString("question_id"));
+                            if (column >= 0) raw[column] = ((Document) item).get("answer");
+                        }
+                    }
+                    continue;
+                }
+                int column = columnFor(entry.getKey());
+                if (column >= 0) raw[column] = entry.getValue();
+                else if (column == COLUMN_TIMESTAMP) timestamp = entry.getValue() != null ? entry.getValue().toString() : null;
+                else if (column == COLUMN_USER) user = entry.getValue() != null ? entry.getValue().toString() : null;
+            }
+            // A BSON date parsed from {"$date": ..} arrives as a Date already
+            Object ts = record.get("timestamp");
+            Date date = ts instanceof Date ? (Date) ts : null;
+            return build(raw, date != null ? null : timestamp, user, date);
+        }
+
+        private Row build(Object[] raw, String timestamp, String user, Date knownDate) {
+            Date submitted = knownDate;
+            if (submitted == null) {
+                if (timestamp == null || timestamp.isBlank()) {
+                    if (defaultTimestamp == null) return new Row(null, "Missing timestamp");
+                    submitted = defaultTimestamp;
+                } else {
+                    submitted = parseTimestamp(timestamp.trim());
+                    if (submitted == null) return new Row(null, "Unrecognized timestamp '" + timestamp + "'");
+                }
+            }
+
+            List<Answer> answers = new ArrayList<>(questions.size());
+            for (int i = 0; i < questions.size(); i++) {
+                Question q = questions.get(i);
+                String type = q.type() != null ? q.type().toUpperCase(Locale.ROOT) : "";
+                boolean multi = "MULTI_CHOICE".equals(type) || "CHECKBOX".equals(type);
+
+                if (multi) {
+                    List<String> choices = new ArrayList<>();
+                    for (String part : splitChoices(raw[i], q.options())) {
+                        String option = matchOption(part, q.options());
+                        if (option == null) return new Row(null, q.id() + ": '" + part + "' is not an option");
+                        choices.add(option);
+                    }
+                    if (q.mandatory() && choices.isEmpty()) return new Row(null, q.id() + " is mandatory");
+                    answers.add(Answer.ofChoices(q.id(), choices));
+                    continue;
+                }
+
+                String value = raw[i] == null ? "" : raw[i].toString().trim();
+                if (value.isEmpty()) {
+                    if (q.mandatory()) return new Row(null, q.id() + " is mandatory");
+                    answers.add(Answer.ofText(q.id(), ""));
+                    continue;
+                }
+                switch (type) {
+                    case "SINGLE_CHOICE":
+                    case "RADIO":
+                        String option = matchOption(value, q.options());
+                        if (option == null) return new Row(null, q.id() + ": '" + value + "' is not an option");
+                        value = option;
+                        break;
+                    case "RATING":
+                        try {
+                            Double.parseDouble(value);
+                        } catch (NumberFormatException e) {
+                            return new Row(null, q.id() + ": rating '" + value + "' is not a number");
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                answers.add(Answer.ofText(q.id(), value));
+            }
+
+            String userId = (user != null && !user.isBlank()) ? user.trim() : defaultUser;
+            return new Row(new Response(new ObjectId(), survey.id(), userId, submitted, answers), null);
+        }
+
+        /**
+         * Multi-choice cells: a JSON array, or text joined with ", " (as the CSV export writes) or ";".
+         * A cell that is exactly one option is kept whole, so options containing commas still work.
+         */
+        private static List<String> splitChoices(Object raw, List<String> options) {
+            List<String> parts = new ArrayList<>();
+            if (raw == null) return parts;
+            if (raw instanceof List) {
+                for (Object item : (List<?>) raw) {
+                    if (item != null && !item.toString().isBlank()) parts.add(item.toString().trim());
+                }
+                return parts;
+            }
+            String text = raw.toString().trim();
+            if (text.startsWith("[") && text.endsWith("]")) text = text.substring(1, text.length() - 1).trim();
+            if (text.isEmpty()) return parts;
+            if (matchOption(text, options) != null) {
+                parts.add(text);
+                return parts;
+            }
+            for (String part : text.split("[;,]")) {
+                if (!part.isBlank()) parts.add(part.trim());
+            }
+            return parts;
+        }
+
+        /**
+         * @return The option as defined in the survey (exact match first, then ignoring case), or null.
+         */
+        private static String matchOption(String value, List<String> options) {
+            for (String option : options) {
+                if (option.equals(value)) return option;
+            }
+            for (String option : options) {
+                if (option.equalsIgnoreCase(value)) return option;
+            }
+            return null;
+        }
+
+        private static Date parseTimestamp(String text) {
+            try {
+                return Date.from(Instant.parse(text));
+            } catch (DateTimeParseException ignored) {
+                // Try the next format
+            }
+            try {
+                return Date.from(LocalDateTime.parse(text).atZone(ZoneId.systemDefault()).toInstant());
+            } catch (DateTimeParseException ignored) {
+                // Try the next format
+            }
+            try {
+                return Date.from(LocalDateTime.parse(text, SPACE_SEPARATED).atZone(ZoneId.systemDefault()).toInstant());
+            } catch (DateTimeParseException ignored) {
+                // Try the next format
+            }
+            try {
+                return Date.from(LocalDate.parse(text).atStartOfDay(ZoneId.systemDefault()).toInstant());
+            } catch (DateTimeParseException ignored) {
+                // Try the next format
+            }
+            try {
+                return Date.from(ZonedDateTime.parse(text, DATE_TO_STRING).toInstant());
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+}
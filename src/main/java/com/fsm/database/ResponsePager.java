@@ -0,0 +1,137 @@
+package com.fsm.database;
+
+import com.fsm.model.Question;
+import com.fsm.model.Response;
+import com.fsm.model.codec.ModelCodecProvider;
+import com.fsm.model.codec.ResponseFormat;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Keyset (seek) pagination over the responses of one survey.
+ * Pages are addressed by the (timestamp, _id) key of the row at the page edge rather
+ * than by skip/offset, so fetching page 1,000 costs the same as fetching page 1.
+ * Sorting and the optional timestamp range filter are applied on the server.
+ * Responses without a timestamp (null or missing) sort before every dated one, ordered by _id;
+ * an edge row without a timestamp is passed as a null timestamp.
+ */
+public class ResponsePager {
+
+    private final ObjectId surveyId;
+    private final List<Question> questions;
+    private final Date from;        // inclusive, may be null
+    private final Date to;          // exclusive, may be null
+    private final boolean newestFirst;
+
+    /**
+     * @param surveyId The hex string of the survey's ObjectId.
+     * @param questions The survey's questions, to translate v2 option indexes back to labels.
+     * @param from Only include responses submitted at or after this instant (null = no lower bound).
+     * @param to Only include responses submitted before this instant (null = no upper bound).
+     * @param newestFirst true to page from the most recent submission backwards.
+     */
+    public ResponsePager(String surveyId, List<Question> questions, Date from, Date to, boolean newestFirst) {
+        this.surveyId = new ObjectId(surveyId);
+        this.questions = List.copyOf(questions);
+        this.from = from;
+        this.to = to;
+        this.newestFirst = newestFirst;
+    }
+
+    public boolean isNewestFirst() {
+        return newestFirst;
+    }
+
+    /**
+     * @return The filter selecting every response in this pager's range (used for counts and exports).
+     */
+    public Bson rangeFilter() {
+        List<Bson> clauses = new ArrayList<>();
+        clauses.add(Filters.eq("survey_id", surveyId));
+        if (from != null) clauses.add(Filters.gte("timestamp", from));
+        if (to != null) clauses.add(Filters.lt("timestamp", to));
+        return Filters.and(clauses);
+    }
+
+    /**
+     * Fetches the first page in display order.
+     */
+    public List<Response> fetchFirst(MongoDatabase db, int limit) {
+        return fetch(db, rangeFilter(), displaySort(), limit);
+    }
+
+    /**
+     * Fetches the rows that follow the given edge row in display order.
+     * @param timestamp The edge row's timestamp, or null if it has none.
+     */
+    public List<Response> fetchAfter(MongoDatabase db, Date timestamp, ObjectId id, int limit) {
+        Bson seek = newestFirst ? before(timestamp, id) : after(timestamp, id);
+        return fetch(db, Filters.and(rangeFilter(), seek), displaySort(), limit);
+    }
+
+    /**
+     * Fetches the rows that precede the given edge row in display order.
+     * The server walks the index backwards; the result is returned in display order.
+     * @param timestamp The edge row's timestamp, or null if it has none.
+     */
+    public List<Response> fetchBefore(MongoDatabase db, Date timestamp, ObjectId id, int limit) {
+        Bson seek = newestFirst ? after(timestamp, id) : before(timestamp, id);
+        List<Response> rows = fetch(db, Filters.and(rangeFilter(), seek), reverseSort(), limit);
+        Collections.reverse(rows);
+        return rows;
+    }
+
+    private List<Response> fetch(MongoDatabase db, Bson filter, Bson sort, int limit) {
+        // Decoded by this survey's ResponseCodec straight into Response/Answer records
+        return db.getCollection("responses", Response.class)
+                .withCodecRegistry(ModelCodecProvider.forResponses(db.getCodecRegistry(), questions))
+                .find(filter)
+                // Both answer formats are fetched
+                .projection(Projections.include("survey_id", "timestamp", ResponseFormat.LEGACY_ANSWERS_FIELD,
+                        ResponseFormat.VERSION_FIELD, ResponseFormat.ANSWERS_FIELD))
+                .sort(sort)
+                .limit(limit)
+                .batchSize(limit)
+                .into(new ArrayList<>());
+    }
+
+    // (timestamp, _id) > (t, id), where a null timestamp sorts before every date
+    private static Bson after(Date timestamp, ObjectId id) {
+        if (timestamp == null) {
+            return Filters.or(
+                    Filters.and(Filters.eq("timestamp", null), Filters.gt("_id", id)),
+                    Filters.ne("timestamp", null));
+        }
+        return Filters.or(
+                Filters.gt("timestamp", timestamp),
+                Filters.and(Filters.eq("timestamp", timestamp), Filters.gt("_id", id)));
+    }
+
+    // (timestamp, _id) < (t, id), where a null timestamp sorts before every date
+    private static Bson before(Date timestamp, ObjectId id) {
+        if (timestamp == null) {
+            return Filters.and(Filters.eq("timestamp", null), Filters.lt("_id", id));
+        }
+        return Filters.or(
+                Filters.lt("timestamp", timestamp),
+                Filters.and(Filters.eq("timestamp", timestamp), Filters.lt("_id", id)),
+                Filters.eq("timestamp", null));
+    }
+
+    private Bson displaySort() {
+        return newestFirst ? Sorts.descending("timestamp", "_id") : Sorts.ascending("timestamp", "_id");
+    }
+
+    private Bson reverseSort() {
+        return newestFirst ? Sorts.ascending("timestamp", "_id") : Sorts.descending("timestamp", "_id");
+    }
+}
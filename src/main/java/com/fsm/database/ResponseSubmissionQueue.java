@@ -0,0 +1,409 @@
+package com.fsm.database;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Write-behind queue for survey responses.
+ * A submission is appended to a local journal file and fsync'ed, which is all the
+ * data-entry screen waits for. A background flusher then sends queued responses to the
+ * 'responses' collection with insertMany in batches, retrying with exponential backoff
+ * while the database is unreachable. Unsent responses are replayed from the journal on startup.
+ *
+ * Journal format (one entry per line):
+ *   A {json}   - a submitted response (its _id is assigned before journaling)
+ *   C {hex id} - the response with that _id is stored in MongoDB (or was moved to the dead-letter file)
+ *
+ * A response the server rejects for good (e.g. schema validation) is appended to
+ * response-rejected.log next to the journal, one JSON line with the error, and leaves the queue.
+ */
+public class ResponseSubmissionQueue {
+
+    private static ResponseSubmissionQueue instance;
+
+    // --- Tuning (overridable with -D system properties) ---
+    private static final int BATCH_SIZE = Integer.getInteger("fsm.queue.batchSize", 50);
+    private static final long MAX_DELAY_MS = Long.getLong("fsm.queue.maxDelayMs", 2000L);
+    private static final long INITIAL_BACKOFF_MS = 500L;
+    private static final long MAX_BACKOFF_MS = 30_000L;
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+    // Per-document write errors worth retrying (failover, shutdown, time limits); every other code is final
+    private static final Set<Integer> TRANSIENT_WRITE_ERRORS = Set.of(
+            50, 91, 112, 189, 262, 10107, 11600, 11602, 13435, 13436);
+
+    private final Path journalPath;
+    private final Path deadLetterPath;
+    private FileChannel journal;
+    private final Object journalLock = new Object();
+
+    // Responses journaled but not yet confirmed by MongoDB, oldest first. Guarded by 'this'.
+    private final ArrayDeque<Document> pending = new ArrayDeque<>();
+    private long oldestPendingSince = 0;
+    private boolean running = false;
+    private Thread flusher;
+
+    private ResponseSubmissionQueue() {
+        String dir = System.getProperty("fsm.journal.dir",
+                Paths.get(System.getProperty("user.home"), ".fsm").toString());
+        this.journalPath = Paths.get(dir, "response-journal.log");
+        this.deadLetterPath = Paths.get(dir, "response-rejected.log");
+    }
+
+    public static synchronized ResponseSubmissionQueue getInstance() {
+        if (instance == null) {
+            instance = new ResponseSubmissionQueue();
+        }
+        return instance;
+    }
+
+    /**
+     * Replays the journal (responses that never reached MongoDB) and starts the background flusher.
+     * Called once at application startup.
+     */
+    public synchronized void start() throws IOException {
+        if (running) return;
+
+        Files.createDirectories(journalPath.getParent());
+        List<Document> unsent = replayJournal();
+
+        synchronized (journalLock) {
+            // Compact: write only the unsent entries to a temp file, fsync it, then swap it in atomically.
+            // The old journal stays intact until the move, so a crash or a full disk here loses nothing.
+            Path compacted = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Document doc : unsent) {
+                    writeLine(out, "A " + doc.toJson());
+                }
+                out.force(false);
+            }
+            Files.move(compacted, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            journal.position(journal.size());
+        }
+
+        pending.addAll(unsent);
+        if (!pending.isEmpty()) {
+            oldestPendingSince = System.currentTimeMillis();
+            System.out.println("✅ ResponseSubmissionQueue: Replaying " + pending.size() + " unsent responses from " + journalPath);
+        }
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "response-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Queues a response for insertion. Returns once the response is durably written to the local journal.
+     *
+     * @param responseDoc The response document (an _id is assigned if missing).
+     * @throws IOException if the journal could not be written; the response is NOT queued in that case.
+     */
+    public void submit(Document responseDoc) throws IOException {
+        if (!responseDoc.containsKey("_id")) {
+            // Client-side id makes retries and journal replays idempotent (a re-insert is a duplicate key)
+            responseDoc.put("_id", new ObjectId());
+        }
+
+        // Journal append and enqueue happen under one lock so a concurrent commit cannot truncate
+        // the journal between the two (lock order everywhere: this -> journalLock)
+        synchronized (this) {
+            synchronized (journalLock) {
+                if (journal == null) {
+                    throw new IOException("Submission queue has not been started.");
+                }
+                appendLine("A " + responseDoc.toJson());
+                journal.force(false); // the only wait on the submit path
+            }
+
+            if (pending.isEmpty()) {
+                oldestPendingSince = System.currentTimeMillis();
+            }
+            pending.addLast(responseDoc);
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return The number of responses saved locally but not yet stored in MongoDB.
+     */
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stops the flusher after one last attempt to send what is queued. Anything still unsent stays in the journal.
+     */
+    public void shutdown(long timeoutMs) {
+        Thread worker;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            notifyAll();
+            worker = flusher;
+        }
+        try {
+            worker.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (journalLock) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error closing response journal: " + e.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    // -----------------------------------------------------------
+    // Flusher
+    // -----------------------------------------------------------
+
+    private void flushLoop() {
+        long backoff = INITIAL_BACKOFF_MS;
+
+        while (true) {
+            List<Document> batch;
+            synchronized (this) {
+                try {
+                    // Wait until a batch is full, the oldest response is due, or we are shutting down
+                    while (running && !batchReady()) {
+                        long waitMs = pending.isEmpty()
+                                ? 0
+                                : Math.max(1, oldestPendingSince + MAX_DELAY_MS - System.currentTimeMillis());
+                        wait(waitMs);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (pending.isEmpty()) {
+                    if (!running) return;
+                    continue;
+                }
+                batch = new ArrayList<>(Math.min(BATCH_SIZE, pending.size()));
+                for (Document doc : pending) {
+                    if (batch.size() == BATCH_SIZE) break;
+                    batch.add(doc);
+                }
+            }
+
+            Set<Object> done = insertBatch(batch);
+
+            if (done == null) {
+                // No reply: the database is probably unreachable. Back off and retry.
+                if (!running) return; // leave the rest in the journal for the next start
+                sleepQuietly(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+                continue;
+            }
+            // The server answered: always commit, so retried documents go to the back of the queue
+            commit(batch, done);
+            if (done.isEmpty()) {
+                // Only transient write errors (e.g. a failover in progress): give the server a moment
+                if (!running) return;
+                sleepQuietly(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            } else {
+                backoff = INITIAL_BACKOFF_MS;
+            }
+        }
+    }
+
+    private boolean batchReady() {
+        if (pending.isEmpty()) return false;
+        return pending.size() >= BATCH_SIZE
+                || System.currentTimeMillis() - oldestPendingSince >= MAX_DELAY_MS;
+    }
+
+    /**
+     * Sends one batch with an unordered insertMany and bumps the per-survey response counters
+     * for the documents that were actually inserted (not the ones already stored by an earlier attempt).
+     * Documents rejected with a non-transient error are moved to the dead-letter file.
+     * @return The _ids that no longer need sending: stored in MongoDB (including ones that were already
+     *         there) or dead-lettered. Null if the server did not reply at all.
+     */
+    private Set<Object> insertBatch(List<Document> batch) {
+        MongoDatabase db = MongoManager.getInstance().getDatabase();
+        if (db == null) return null;
+
+        Set<Object> done = new HashSet<>();
+        Set<Integer> failed = new HashSet<>();
+        Set<Integer> duplicates = new HashSet<>();
+        try {
+            db.getCollection("responses").insertMany(batch, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            // Unordered: everything except the failed indexes was written. Duplicates were written earlier.
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (error.getCode() == DUPLICATE_KEY_ERROR) {
+                    duplicates.add(error.getIndex());
+                    continue;
+                }
+                failed.add(error.getIndex());
+                Document doc = batch.get(error.getIndex());
+                if (TRANSIENT_WRITE_ERRORS.contains(error.getCode())) {
+                    System.err.println("Response insert failed (will retry): " + error.getMessage());
+                } else if (deadLetter(doc, error)) {
+                    done.add(doc.get("_id"));
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Response flush failed, will retry: " + e.getMessage());
+            return null;
+        }
+
+        Map<ObjectId, Integer> newPerSurvey = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (failed.contains(i)) continue;
+            Document doc = batch.get(i);
+            done.add(doc.get("_id"));
+            if (!duplicates.contains(i) && doc.get("survey_id") instanceof ObjectId) {
+                newPerSurvey.merge(doc.getObjectId("survey_id"), 1, Integer::sum);
+            }
+        }
+
+        try {
+            ResponseCounterStore.increment(db, newPerSurvey);
+        } catch (Exception e) {
+            // The responses are stored; a missed increment is fixed by ResponseCounterStore.rebuild()
+            System.err.println("⚠️ Could not update response counters: " + e.getMessage());
+        }
+        return done;
+    }
+
+    /**
+     * Appends a rejected response, with the server's error, to the dead-letter file (fsync'ed before
+     * the journal marks it as done, so it is never lost).
+     * @return true if it was written; otherwise the response stays queued and is retried.
+     */
+    private boolean deadLetter(Document doc, BulkWriteError error) {
+        Document entry = new Document("rejected_at", new Date())
+                .append("code", error.getCode())
+                .append("error", error.getMessage())
+                .append("response", doc);
+        try (FileChannel channel = FileChannel.open(deadLetterPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writeLine(channel, entry.toJson());
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not write rejected response to " + deadLetterPath + ": " + e.getMessage());
+            return false;
+        }
+        System.err.println("❌ Response " + doc.get("_id") + " rejected (" + error.getCode() + ": "
+                + error.getMessage() + "), moved to " + deadLetterPath);
+        return true;
+    }
+
+    /**
+     * Removes stored (or dead-lettered) responses from the queue and records them in the journal.
+     */
+    private synchronized void commit(List<Document> batch, Set<Object> stored) {
+        pending.removeIf(doc -> stored.contains(doc.get("_id")));
+        // Documents to retry move to the back so they cannot block newer submissions
+        for (Document doc : batch) {
+            if (!stored.contains(doc.get("_id")) && pending.remove(doc)) {
+                pending.addLast(doc);
+            }
+        }
+        if (!pending.isEmpty()) {
+            oldestPendingSince = System.currentTimeMillis();
+        }
+
+        synchronized (journalLock) {
+            if (journal == null) return;
+            try {
+                if (pending.isEmpty()) {
+                    // Nothing left to replay: start over with an empty journal
+                    journal.truncate(0);
+                    journal.position(0);
+                } else if (!stored.isEmpty()) {
+                    List<String> lines = new ArrayList<>(stored.size());
+                    for (Object id : stored) {
+                        lines.add("C " + ((ObjectId) id).toHexString());
+                    }
+                    appendLine(String.join("\n", lines));
+                }
+            } catch (IOException e) {
+                // Not fatal: replaying an already-stored response is a harmless duplicate key
+                System.err.println("Error updating response journal: " + e.getMessage());
+            }
+        }
+    }
+
+    // -----------------------------------------------------------
+    // Journal helpers
+    // -----------------------------------------------------------
+
+    /**
+     * Reads the journal and returns the responses that were submitted but never committed.
+     */
+    private List<Document> replayJournal() throws IOException {
+        Map<String, Document> unsent = new LinkedHashMap<>();
+        if (!Files.exists(journalPath)) return new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    if (line.startsWith("A ")) {
+                        Document doc = Document.parse(line.substring(2));
+                        unsent.put(doc.getObjectId("_id").toHexString(), doc);
+                    } else if (line.startsWith("C ")) {
+                        unsent.remove(line.substring(2).trim());
+                    }
+                } catch (Exception e) {
+                    // A torn last line from a crash mid-write; the submit never returned, so it is safe to drop
+                    System.err.println("Skipping unreadable journal entry: " + e.getMessage());
+                }
+            }
+        }
+        return new ArrayList<>(unsent.values());
+    }
+
+    private void appendLine(String line) throws IOException {
+        writeLine(journal, line);
+    }
+
+    private static void writeLine(FileChannel channel, String line) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
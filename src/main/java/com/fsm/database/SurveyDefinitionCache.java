@@ -0,0 +1,186 @@
+package com.fsm.database;
+
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.fsm.model.Survey;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide cache of survey definitions (including the full 'questions' list), keyed by _id.
+ * Entries are decoded Survey records (see com.fsm.model.codec), not Document maps.
+ *
+ * Survey definitions are read by the data-entry screen, the report chart, the detailed report and the
+ * question builder, and rarely change, so every screen shares this cache instead of fetching the same
+ * document on every selection. Each survey carries a 'version' counter that every write increments.
+ * A cached entry older than -Dfsm.surveyCache.validateMs (default 5000) is checked against the
+ * server with a tiny {_id, version} query, so edits made by other clients are picked up too.
+ *
+ * Size is bounded by -Dfsm.surveyCache.size (default 64), least recently used first out.
+ * Survey records are immutable, so cached entries can be shared freely between screens.
+ */
+public class SurveyDefinitionCache {
+
+    public static final String VERSION_FIELD = "version";
+
+    private static final int MAX_SIZE = Math.max(1, Integer.getInteger("fsm.surveyCache.size", 64));
+    private static final long VALIDATE_AFTER_MS = Long.getLong("fsm.surveyCache.validateMs", 5000);
+
+    // -----------------------------------------------------------
+    // Nested Model Class: One cached survey
+    // -----------------------------------------------------------
+    private static class Entry {
+        final Survey survey;
+        final long version;
+        volatile long validatedAt;
+
+        Entry(Survey survey, long validatedAt) {
+            this.survey = survey;
+            this.version = survey.version();
+            this.validatedAt = validatedAt;
+        }
+    }
+
+    // -----------------------------------------------------------
+    // Nested Model Class: Counters for the diagnostics panel / logs
+    // -----------------------------------------------------------
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long staleReloads;
+        private final long evictions;
+        private final int size;
+
+        Stats(long hits, long misses, long staleReloads, long evictions, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.staleReloads = staleReloads;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getStaleReloads() { return staleReloads; }
+        public long getEvictions() { return evictions; }
+        public int getSize() { return size; }
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d hits, %d misses (%.0f%% hit ratio), %d stale reloads, %d evictions, %d/%d cached",
+                    hits, misses, getHitRatio() * 100, staleReloads, evictions, size, MAX_SIZE);
+        }
+    }
+    // -----------------------------------------------------------
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder STALE_RELOADS = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+
+    // Access-ordered LRU; guarded by the class lock, never held during a database call
+    private static final Map<ObjectId, Entry> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ObjectId, Entry> eldest) {
+            if (size() > MAX_SIZE) {
+                EVICTIONS.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private SurveyDefinitionCache() {
+        // Static helper class, no instances.
+    }
+
+    /**
+     * Returns the survey, from the cache when it is still current. Blocks on the database
+     * on a miss or when the entry is due for validation, so call it from a background query.
+     *
+     * @return The survey with its questions, or null if no survey has this _id.
+     */
+    public static Survey get(MongoDatabase db, ObjectId surveyId) {
+        Entry entry;
+        synchronized (SurveyDefinitionCache.class) {
+            entry = CACHE.get(surveyId);
+        }
+
+        long now = System.currentTimeMillis();
+        if (entry != null) {
+            if (now - entry.validatedAt < VALIDATE_AFTER_MS) {
+                HITS.increment();
+                return entry.survey;
+            }
+            // Cheap version check: _id lookup returning only the version stamp
+            Document stamp = db.getCollection("surveys")
+                    .find(Filters.eq("_id", surveyId))
+                    .projection(Projections.include(VERSION_FIELD))
+                    .first();
+            if (stamp != null && versionOf(stamp) == entry.version) {
+                entry.validatedAt = now;
+                HITS.increment();
+                return entry.survey;
+            }
+            STALE_RELOADS.increment();
+            if (stamp == null) {
+                invalidate(surveyId);
+                return null;
+            }
+        }
+
+        MISSES.increment();
+        Survey survey = SurveyRepository.findById(db, surveyId);
+        synchronized (SurveyDefinitionCache.class) {
+            if (survey != null) {
+                CACHE.put(surveyId, new Entry(survey, now));
+            } else {
+                CACHE.remove(surveyId);
+            }
+        }
+        return survey;
+    }
+
+    /**
+     * Convenience overload for the hex ids the controllers pass around.
+     */
+    public static Survey get(MongoDatabase db, String surveyId) {
+        return get(db, new ObjectId(surveyId));
+    }
+
+    /**
+     * Drops one survey. Call after writing to it (the version bump would catch it too, but only after
+     * the validation interval).
+     */
+    public static synchronized void invalidate(ObjectId surveyId) {
+        if (surveyId != null) CACHE.remove(surveyId);
+    }
+
+    public static void invalidate(String surveyId) {
+        if (surveyId != null && ObjectId.isValid(surveyId)) invalidate(new ObjectId(surveyId));
+        else invalidateAll();
+    }
+
+    public static synchronized void invalidateAll() {
+        CACHE.clear();
+    }
+
+    public static synchronized Stats getStats() {
+        return new Stats(HITS.sum(), MISSES.sum(), STALE_RELOADS.sum(), EVICTIONS.sum(), CACHE.size());
+    }
+
+    private static long versionOf(Document stamp) {
+        Object version = stamp.get(VERSION_FIELD);
+        return version instanceof Number ? ((Number) version).longValue() : 0;
+    }
+}
@@ -0,0 +1,80 @@
+package com.fsm.database;
+
+import com.fsm.model.Survey;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lightweight queries behind the list screens (surveys, reports, data-entry picker, users).
+ *
+ * A survey document carries its whole 'questions' array, but a list only needs a handful of fields.
+ * These queries project just those fields and let the server compute the question count with $size,
+ * so listing thousands of surveys transfers kilobytes instead of every question and option.
+ * Cursor batches are larger than the driver default (101 documents in the first batch) because the
+ * projected rows are tiny; tune with -Dfsm.listing.batchSize (default 1000).
+ */
+public class SurveyListingQueries {
+
+    public static final int BATCH_SIZE = Integer.getInteger("fsm.listing.batchSize", 1000);
+
+    private SurveyListingQueries() {
+        // Static helper class, no instances.
+    }
+
+    /**
+     * Survey rows for the survey and report tables: _id, name, status, creator, dateCreated and numQuestions.
+     * The rows are Survey records without questions; numQuestions is the server-side count.
+     *
+     * @param filter Which surveys to list (e.g. by creator). Use an empty Document for all.
+     * @param collation Collation the filter needs (e.g. MongoManager.CASE_INSENSITIVE), or null.
+     */
+    public static List<Survey> listSurveys(MongoDatabase db, Bson filter, Collation collation) {
+        List<Bson> pipeline = Arrays.asList(
+                new Document("$match", filter),
+                new Document("$project", new Document("name", 1)
+                        .append("status", 1)
+                        .append("creator", 1)
+                        .append("dateCreated", 1)
+                        // Counted on the server; the questions themselves never leave it
+                        .append("numQuestions", new Document("$size", new Document("$ifNull", Arrays.asList("$questions", List.of())))))
+        );
+
+        return db.getCollection("surveys", Survey.class)
+                .aggregate(pipeline)
+                .collation(collation)
+                .batchSize(BATCH_SIZE)
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * _id and name of every Active survey, sorted by name, for the data-entry survey picker.
+     */
+    public static List<Document> listActiveSurveyNames(MongoDatabase db) {
+        return db.getCollection("surveys")
+                .find(Filters.eq("status", "Active"))
+                .projection(Projections.include("name"))
+                .sort(Sorts.ascending("name"))
+                .batchSize(BATCH_SIZE)
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * username and role of every user. The password hash is never fetched for a list.
+     */
+    public static List<Document> listUsers(MongoDatabase db) {
+        return db.getCollection("users")
+                .find()
+                .projection(Projections.fields(Projections.include("username", "role"), Projections.excludeId()))
+                .batchSize(BATCH_SIZE)
+                .into(new ArrayList<>());
+    }
+}
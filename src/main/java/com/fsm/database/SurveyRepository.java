@@ -0,0 +1,230 @@
+package com.fsm.database;
+
+import com.fsm.model.Question;
+import com.fsm.model.Survey;
+import com.fsm.model.codec.ResponseFormat;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes single surveys by _id.
+ *
+ * Every read and write here is a primary-key lookup, so an edit can never hit another survey that
+ * happens to share (or used to share) the same name. Survey names are unique, compared
+ * case-insensitively: the name_ci collation index enforces it on the server and the checks below
+ * turn a clash into a DUPLICATE_NAME result instead of a raw write error.
+ * Every write bumps the survey's version stamp and drops it from the SurveyDefinitionCache.
+ */
+public class SurveyRepository {
+
+    private static final int DUPLICATE_KEY = 11000;
+    // Concurrent question saves re-merge and retry; only a survey edited nonstop would exhaust this
+    private static final int MAX_QUESTION_SAVE_ATTEMPTS = 5;
+
+    // -----------------------------------------------------------
+    // Nested Model Class: Outcome of a write, for the forms to report
+    // -----------------------------------------------------------
+    public enum WriteResult {
+        SAVED,
+        DUPLICATE_NAME,   // Another survey already uses this name (ignoring case)
+        NOT_FOUND,        // No survey with this _id (deleted in the meantime)
+        FAILED            // Database error, already logged
+    }
+    // -----------------------------------------------------------
+
+    private SurveyRepository() {
+        // Static helper class, no instances.
+    }
+
+    private static MongoCollection<Survey> surveys(MongoDatabase db) {
+        return db.getCollection("surveys", Survey.class);
+    }
+
+    /**
+     * @return The full survey including its questions, or null if no survey has this _id.
+     */
+    public static Survey findById(MongoDatabase db, ObjectId id) {
+        return surveys(db).find(Filters.eq("_id", id)).first();
+    }
+
+    /**
+     * Checks whether another survey already uses the name (case-insensitive, served by name_ci).
+     *
+     * @param excludeId The survey being renamed, which may keep its own name. Null when creating.
+     */
+    public static boolean isNameTaken(MongoDatabase db, String name, ObjectId excludeId) {
+        Bson filter = (excludeId != null)
+                ? Filters.and(Filters.eq("name", name), Filters.ne("_id", excludeId))
+                : Filters.eq("name", name);
+        return surveys(db).countDocuments(filter, new CountOptions().collation(MongoManager.CASE_INSENSITIVE).limit(1)) > 0;
+    }
+
+    /**
+     * Inserts a new survey without questions.
+     */
+    public static WriteResult create(MongoDatabase db, String name, String status, String creator) {
+        try {
+            if (isNameTaken(db, name, null)) {
+                System.out.println("❌ SurveyRepository: Survey name '" + name + "' is already taken.");
+                return WriteResult.DUPLICATE_NAME;
+            }
+            surveys(db).insertOne(new Survey(null, name, status, creator, new Date(), 0, 0, 0, null));
+            return WriteResult.SAVED;
+        } catch (MongoWriteException e) {
+            return fromWriteError(e, name);
+        } catch (Exception e) {
+            System.err.println("MongoDB Insert Error: " + e.getMessage());
+            return WriteResult.FAILED;
+        }
+    }
+
+    /**
+     * Renames a survey and/or changes its status. The creator is never changed here.
+     */
+    public static WriteResult updateDetails(MongoDatabase db, ObjectId id, String name, String status) {
+        try {
+            if (isNameTaken(db, name, id)) {
+                System.out.println("❌ SurveyRepository: Survey name '" + name + "' is already taken.");
+                return WriteResult.DUPLICATE_NAME;
+            }
+            return update(db, id, Updates.combine(
+                    Updates.set("name", name),
+                    Updates.set("status", status)));
+        } catch (MongoWriteException e) {
+            return fromWriteError(e, name);
+        } catch (Exception e) {
+            System.err.println("MongoDB Update Error: " + e.getMessage());
+            return WriteResult.FAILED;
+        }
+    }
+
+    /**
+     * Replaces the survey's questions and keeps 'numQuestions' in step with them.
+     * Each question keeps its option dictionary ('codes') from the stored version, with new options
+     * appended, so option indexes in v2 responses keep their meaning (see ResponseFormat).
+     * The write only applies to the version the dictionaries were merged from: if another editor saved
+     * in between, the survey is read and merged again, so neither editor's new options lose their index.
+     *
+     * Question IDs are never reused. A question that is not in the stored survey but carries an ID the
+     * survey has already issued (to a question deleted since, or to another editor's new question) gets
+     * the next free ID; it has no answers yet, while the old ID may. 'nextQuestionId' moves past every ID saved.
+     */
+    public static WriteResult replaceQuestions(MongoDatabase db, ObjectId id, List<Question> questions) {
+        try {
+            for (int attempt = 1; ; attempt++) {
+                Survey stored = findById(db, id);
+                if (stored == null) return WriteResult.NOT_FOUND;
+
+                Map<String, Question> previous = ResponseFormat.byId(stored.questions());
+                int issued = stored.nextQuestionNumber();
+                int next = issued;
+                for (Question question : questions) {
+                    next = Math.max(next, Survey.questionNumber(question.id()) + 1);
+                }
+                List<Question> merged = new ArrayList<>(questions.size());
+                for (Question question : questions) {
+                    Question stale = previous.get(question.id());
+                    int number = Survey.questionNumber(question.id());
+                    if (stale == null && number > 0 && number < issued) {
+                        System.out.println("⚠️ SurveyRepository: Question ID " + question.id() + " was issued before, saving the new question as Q" + next + ".");
+                        question = question.withId("Q" + next++);
+                    }
+                    merged.add(question.withCodesFrom(stale));
+                }
+
+                UpdateResult result = surveys(db).updateOne(
+                        Filters.and(Filters.eq("_id", id), versionIs(stored.version())),
+                        Updates.combine(
+                                Updates.set("questions", merged),
+                                Updates.set("numQuestions", questions.size()),
+                                Updates.set("nextQuestionId", next),
+                                Updates.inc(SurveyDefinitionCache.VERSION_FIELD, 1)));
+                SurveyDefinitionCache.invalidate(id);
+                if (result.getMatchedCount() > 0) return WriteResult.SAVED;
+
+                if (attempt == MAX_QUESTION_SAVE_ATTEMPTS) {
+                    System.err.println("MongoDB Question Save Error: The survey kept changing, gave up after " + attempt + " attempts.");
+                    return WriteResult.FAILED;
+                }
+                System.out.println("⚠️ SurveyRepository: Survey " + id + " was changed by another editor, merging the questions again.");
+            }
+        } catch (Exception e) {
+            System.err.println("MongoDB Question Save Error: " + e.getMessage());
+            return WriteResult.FAILED;
+        }
+    }
+
+    /**
+     * Matches the survey only while it is still at the given version (surveys written before the
+     * version stamp existed have no field, which the codec reads as 0).
+     */
+    private static Bson versionIs(long version) {
+        Bson same = Filters.eq(SurveyDefinitionCache.VERSION_FIELD, version);
+        return version == 0 ? Filters.or(same, Filters.exists(SurveyDefinitionCache.VERSION_FIELD, false)) : same;
+    }
+
+    /**
+     * Deletes the survey document. Its responses are removed afterwards by a CascadeDeleteJob,
+     * which is recorded first so they are cleaned up even if the app closes right after this call.
+     * If the delete itself fails, the job is cancelled again (unless the survey is gone after all).
+     */
+    public static WriteResult delete(MongoDatabase db, ObjectId id, String name) {
+        CascadeDeleteJob cascade = CascadeDeleteJob.getInstance();
+        try {
+            cascade.schedule(db, id, name);
+        } catch (Exception e) {
+            System.err.println("MongoDB Delete Error: " + e.getMessage());
+            return WriteResult.FAILED;
+        }
+
+        try {
+            DeleteResult result = surveys(db).deleteOne(Filters.eq("_id", id));
+            SurveyDefinitionCache.invalidate(id);
+            cascade.wake();
+            return result.getDeletedCount() > 0 ? WriteResult.SAVED : WriteResult.NOT_FOUND;
+        } catch (Exception e) {
+            System.err.println("MongoDB Delete Error: " + e.getMessage());
+            try {
+                // The error may have come after the server applied the delete: keep the job in that case
+                if (findById(db, id) != null) {
+                    cascade.cancel(db, id, name);
+                }
+            } catch (Exception cancelError) {
+                // Still armed; the worker checks that the survey is gone before removing anything
+                System.err.println("MongoDB Delete Error: Could not cancel the cascade delete: " + cancelError.getMessage());
+            }
+            return WriteResult.FAILED;
+        }
+    }
+
+    private static WriteResult update(MongoDatabase db, ObjectId id, Bson changes) {
+        // Version stamp: tells every SurveyDefinitionCache (here and in other clients) its copy is stale
+        UpdateResult result = surveys(db).updateOne(Filters.eq("_id", id),
+                Updates.combine(changes, Updates.inc(SurveyDefinitionCache.VERSION_FIELD, 1)));
+        SurveyDefinitionCache.invalidate(id);
+        return result.getMatchedCount() > 0 ? WriteResult.SAVED : WriteResult.NOT_FOUND;
+    }
+
+    private static WriteResult fromWriteError(MongoWriteException e, String name) {
+        if (e.getError().getCode() == DUPLICATE_KEY) {
+            // Lost a race with another client between the check and the write
+            System.out.println("❌ SurveyRepository: Survey name '" + name + "' is already taken.");
+            return WriteResult.DUPLICATE_NAME;
+        }
+        System.err.println("MongoDB Write Error: " + e.getMessage());
+        return WriteResult.FAILED;
+    }
+}
@@ -0,0 +1,239 @@
+package com.fsm.database;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Creates many users at once from a CSV file (username,password[,role]), e.g. a new field team.
+ *
+ * Per row, the Add User form costs a BCrypt hash, an admin count, a username check and an insert.
+ * Here every check runs once for the whole batch:
+ *  - the usernames are checked in one case-insensitive $in query (served by the username_ci index);
+ *  - the Administrator limit is checked once with a single count;
+ *  - the passwords are hashed in parallel on a ForkJoinPool with one worker per core;
+ *  - all users are written with one unordered bulk write.
+ * A row that fails validation is reported and skipped; the other rows are still created.
+ */
+public class UserProvisioning {
+
+    /** Maximum number of Administrator accounts (also enforced by the Add User form). */
+    public static final int MAX_ADMINS = 3;
+
+    public static final List<String> ROLES = List.of("Administrator", "Survey Creator", "Data Entry");
+    private static final String DEFAULT_ROLE = "Data Entry";
+    private static final int DUPLICATE_KEY = 11000;
+
+    // -----------------------------------------------------------
+    // Nested Model Class: One user row of the file
+    // -----------------------------------------------------------
+    public static class UserRow {
+        private final int line;
+        private final String username;
+        private final String password;
+        private final String role;
+
+        public UserRow(int line, String username, String password, String role) {
+            this.line = line;
+            this.username = username;
+            this.password = password;
+            this.role = role;
+        }
+
+        public int getLine() { return line; }
+        public String getUsername() { return username; }
+        public String getRole() { return role; }
+    }
+
+    // -----------------------------------------------------------
+    // Nested Model Class: Outcome of a provisioning run
+    // -----------------------------------------------------------
+    public static class Result {
+        private final int created;
+        private final List<String> rejected;
+        private final long elapsedMs;
+
+        Result(int created, List<String> rejected, long elapsedMs) {
+            this.created = created;
+            this.rejected = rejected;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public int getCreated() { return created; }
+        /** "Line N (username): reason", in file order. */
+        public List<String> getRejected() { return rejected; }
+        public long getElapsedMs() { return elapsedMs; }
+    }
+    // -----------------------------------------------------------
+
+    private UserProvisioning() {
+        // Static helper class, no instances.
+    }
+
+    /**
+     * Reads the CSV file and creates its users. A first line starting with "username" is a header.
+     * Rows without a role become Data Entry users.
+     */
+    public static Result provisionFromCsv(MongoDatabase db, Path file) throws IOException {
+        String text = Files.readString(file, StandardCharsets.UTF_8);
+        if (text.startsWith("﻿")) text = text.substring(1);
+
+        List<UserRow> rows = new ArrayList<>();
+        int line = 0;
+        int pos = 0;
+        while (pos < text.length()) {
+            int end = CsvParser.recordEnd(text, pos);
+            String record = text.substring(pos, end);
+            pos = end + 1;
+            line++;
+            if (record.isBlank()) continue;
+
+            List<String> cells = CsvParser.parseRecord(record);
+            String username = cells.get(0).trim();
+            if (line == 1 && "username".equalsIgnoreCase(username)) continue; // Header
+
+            String password = cells.size() > 1 ? cells.get(1) : "";
+            String role = cells.size() > 2 && !cells.get(2).isBlank() ? cells.get(2).trim() : DEFAULT_ROLE;
+            rows.add(new UserRow(line, username, password, role));
+        }
+        return provision(db, rows);
+    }
+
+    /**
+     * Validates and creates the given users.
+     */
+    public static Result provision(MongoDatabase db, List<UserRow> rows) {
+        long start = System.nanoTime();
+        MongoCollection<Document> users = db.getCollection("users");
+        Map<Integer, String> rejected = new TreeMap<>(); // line -> message, in file order
+
+        // --- 1. Local checks: required fields, known role, duplicates inside the file ---
+        List<UserRow> candidates = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (UserRow row : rows) {
+            String canonicalRole = canonicalRole(row.role);
+            if (row.username.isEmpty()) {
+                reject(rejected, row, "username is empty");
+            } else if (row.password == null || row.password.isEmpty()) {
+                reject(rejected, row, "password is empty");
+            } else if (canonicalRole == null) {
+                reject(rejected, row, "unknown role '" + row.role + "' (expected one of " + ROLES + ")");
+            } else if (!seen.add(row.username.toLowerCase(Locale.ROOT))) {
+                reject(rejected, row, "username appears more than once in the file");
+            } else {
+                candidates.add(new UserRow(row.line, row.username, row.password, canonicalRole));
+            }
+        }
+
+        // --- 2. Existing usernames: one $in query, compared case-insensitively like the unique index ---
+        if (!candidates.isEmpty()) {
+            List<String> names = new ArrayList<>(candidates.size());
+            for (UserRow row : candidates) names.add(row.username);
+
+            Set<String> taken = new HashSet<>();
+            for (Document doc : users.find(Filters.in("username", names))
+                    .collation(MongoManager.CASE_INSENSITIVE)
+                    .projection(Projections.include("username"))) {
+                taken.add(doc.getString("username").toLowerCase(Locale.ROOT));
+            }
+            candidates.removeIf(row -> {
+                if (!taken.contains(row.username.toLowerCase(Locale.ROOT))) return false;
+                reject(rejected, row, "username is already taken");
+                return true;
+            });
+        }
+
+        // --- 3. Administrator limit, once for the whole batch (first admins in the file win) ---
+        long newAdmins = candidates.stream().filter(row -> "Administrator".equals(row.role)).count();
+        if (newAdmins > 0) {
+            long adminSlots = Math.max(0, MAX_ADMINS - users.countDocuments(Filters.eq("role", "Administrator")));
+            if (newAdmins > adminSlots) {
+                long[] allowed = {adminSlots};
+                candidates.removeIf(row -> {
+                    if (!"Administrator".equals(row.role)) return false;
+                    if (allowed[0]-- > 0) return false;
+                    reject(rejected, row, "the maximum of " + MAX_ADMINS + " Administrators would be exceeded");
+                    return true;
+                });
+            }
+        }
+
+        // --- 4. Hash all passwords in parallel, then one unordered bulk write ---
+        int created = 0;
+        if (!candidates.isEmpty()) {
+            List<InsertOneModel<Document>> inserts = hashAll(candidates);
+            try {
+                created = users.bulkWrite(inserts, new BulkWriteOptions().ordered(false)).getInsertedCount();
+            } catch (MongoBulkWriteException e) {
+                // Unordered: every row without an error was written
+                created = e.getWriteResult().getInsertedCount();
+                for (BulkWriteError error : e.getWriteErrors()) {
+                    UserRow row = candidates.get(error.getIndex());
+                    reject(rejected, row, error.getCode() == DUPLICATE_KEY
+                            ? "username is already taken" // Created by someone else in the meantime
+                            : "database error: " + error.getMessage());
+                }
+            }
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("✅ UserProvisioning: " + created + " users created, " + rejected.size()
+                + " rejected in " + elapsedMs + " ms.");
+        return new Result(created, List.copyOf(rejected.values()), elapsedMs);
+    }
+
+    /**
+     * BCrypt is CPU-bound at a fixed cost per hash, so hashing N passwords on all cores takes about
+     * N / cores hashes of wall time. A dedicated pool keeps this off the common pool that other
+     * parallel work (and the login pool's callers) share.
+     */
+    private static List<InsertOneModel<Document>> hashAll(List<UserRow> rows) {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return pool.submit(() -> rows.parallelStream()
+                    .map(row -> new InsertOneModel<>(new Document()
+                            .append("username", row.username)
+                            .append("password", MongoManager.hashPassword(row.password))
+                            .append("role", row.role)))
+                    .toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Password hashing interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String canonicalRole(String role) {
+        for (String known : ROLES) {
+            if (known.equalsIgnoreCase(role)) return known;
+        }
+        return null;
+    }
+
+    private static void reject(Map<Integer, String> rejected, UserRow row, String reason) {
+        rejected.put(row.line, "Line " + row.line + " (" + (row.username.isEmpty() ? "-" : row.username) + "): " + reason);
+    }
+}
@@ -0,0 +1,38 @@
+package com.fsm.model;
+
+import java.util.List;
+
+/**
+ * One answer inside a response's 'answers' array.
+ * Exactly one of text / choices is set: MULTI_CHOICE answers are stored as an array of the selected
+ * options, every other answer as a single value (text, chosen option or rating).
+ *
+ * @param questionId The question this answers (stored as 'question_id').
+ * @param text Single-valued answer, "" when an optional question was skipped. Null for multi-choice.
+ * @param choices Selected options of a multi-choice question, null otherwise.
+ */
+public record Answer(String questionId, String text, List<String> choices) {
+
+    public Answer {
+        choices = (choices != null) ? List.copyOf(choices) : null;
+    }
+
+    public static Answer ofText(String questionId, String text) {
+        return new Answer(questionId, text, null);
+    }
+
+    public static Answer ofChoices(String questionId, List<String> choices) {
+        return new Answer(questionId, null, choices);
+    }
+
+    public boolean isMultiChoice() {
+        return choices != null;
+    }
+
+    /**
+     * The answer as shown in tables and CSV: the text, or the selected options as "[a, b]".
+     */
+    public String displayValue() {
+        return isMultiChoice() ? choices.toString() : (text != null ? text : "");
+    }
+}
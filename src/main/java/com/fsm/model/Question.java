@@ -0,0 +1,71 @@
+package com.fsm.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One question of a survey, as stored in the survey's 'questions' array.
+ *
+ * @param id Question ID inside the survey (e.g. "Q3"); answers refer to it.
+ * @param text The question shown to the respondent.
+ * @param type TEXT_INPUT, SINGLE_CHOICE, MULTI_CHOICE, RATING (or the older aliases TEXT, RADIO, CHECKBOX).
+ * @param options Choices for SINGLE_CHOICE / MULTI_CHOICE, empty otherwise. Never null.
+ * @param mandatory Whether the data-entry form requires an answer (stored as 'isMandatory').
+ * @param codes Dictionary for v2 responses, which store a chosen option as its index in this list.
+ *              Append-only: every option the question has ever had keeps its index, so editing the
+ *              options never changes the meaning of stored answers. Defaults to the options.
+ */
+public record Question(String id, String text, String type, List<String> options, boolean mandatory, List<String> codes) {
+
+    public Question {
+        options = (options != null) ? List.copyOf(options) : List.of();
+        codes = (codes != null) ? List.copyOf(codes) : options;
+    }
+
+    public Question(String id, String text, String type, List<String> options, boolean mandatory) {
+        this(id, text, type, options, mandatory, null);
+    }
+
+    public boolean isMultiChoice() {
+        return "MULTI_CHOICE".equalsIgnoreCase(type) || "CHECKBOX".equalsIgnoreCase(type);
+    }
+
+    public boolean isSingleChoice() {
+        return "SINGLE_CHOICE".equalsIgnoreCase(type) || "RADIO".equalsIgnoreCase(type);
+    }
+
+    public boolean isRating() {
+        return "RATING".equalsIgnoreCase(type);
+    }
+
+    /**
+     * @return The dictionary index of the option label, or -1 if it has none.
+     */
+    public int codeOf(String label) {
+        return codes.indexOf(label);
+    }
+
+    /**
+     * @return The option label for a dictionary index, or null if the index is unknown.
+     */
+    public String labelOf(int code) {
+        return (code >= 0 && code < codes.size()) ? codes.get(code) : null;
+    }
+
+    public Question withId(String newId) {
+        return new Question(newId, text, type, options, mandatory, codes);
+    }
+
+    /**
+     * This question with the previous version's dictionary kept intact and any new options appended.
+     * Only while the question's ID stays in the survey: a deleted ID is never issued again (see Survey.nextQuestionId).
+     */
+    public Question withCodesFrom(Question previous) {
+        if (previous == null) return this;
+        List<String> merged = new ArrayList<>(previous.codes());
+        for (String option : options) {
+            if (!merged.contains(option)) merged.add(option);
+        }
+        return new Question(id, text, type, options, mandatory, merged);
+    }
+}
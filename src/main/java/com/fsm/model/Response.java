@@ -0,0 +1,19 @@
+package com.fsm.model;
+
+import org.bson.types.ObjectId;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A submitted response from the 'responses' collection.
+ * Projected queries (e.g. ResponsePager) leave the fields they did not fetch null.
+ *
+ * @param userId Username of the data-entry user who submitted it (stored as 'user_id').
+ */
+public record Response(ObjectId id, ObjectId surveyId, String userId, Date timestamp, List<Answer> answers) {
+
+    public Response {
+        answers = (answers != null) ? List.copyOf(answers) : List.of();
+    }
+}
@@ -0,0 +1,72 @@
+package com.fsm.model;
+
+import org.bson.types.ObjectId;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A survey document from the 'surveys' collection.
+ *
+ * Listing queries (SurveyListingQueries) do not fetch the questions; for those, 'questions' is empty
+ * and 'numQuestions' holds the count computed on the server. For full definitions both agree.
+ *
+ * @param version Incremented by every write; see SurveyDefinitionCache.
+ * @param nextQuestionId Number of the next question ID to issue ("Q" + n). IDs of deleted questions are
+ *                       never issued again: stored answers under an old ID would otherwise be read with the
+ *                       new question's options. 0 for surveys saved before the counter existed.
+ */
+public record Survey(ObjectId id, String name, String status, String creator, Date dateCreated,
+                     int numQuestions, long version, int nextQuestionId, List<Question> questions) {
+
+    public Survey {
+        questions = (questions != null) ? List.copyOf(questions) : List.of();
+    }
+
+    /**
+     * The hex form of the _id the controllers pass around, or null for an unsaved survey.
+     */
+    public String idHex() {
+        return id != null ? id.toHexString() : null;
+    }
+
+    public Survey withName(String newName) {
+        return new Survey(id, newName, status, creator, dateCreated, numQuestions, version, nextQuestionId, questions);
+    }
+
+    public Survey withStatus(String newStatus) {
+        return new Survey(id, name, newStatus, creator, dateCreated, numQuestions, version, nextQuestionId, questions);
+    }
+
+    public Survey withCreator(String newCreator) {
+        return new Survey(id, name, status, newCreator, dateCreated, numQuestions, version, nextQuestionId, questions);
+    }
+
+    public Survey withNumQuestions(int count) {
+        return new Survey(id, name, status, creator, dateCreated, count, version, nextQuestionId, questions);
+    }
+
+    /**
+     * The number for the next new question ID: past the stored counter and past every current question
+     * (for surveys saved before the counter existed, and for full definitions only).
+     */
+    public int nextQuestionNumber() {
+        int next = Math.max(1, nextQuestionId);
+        for (Question question : questions) {
+            next = Math.max(next, questionNumber(question.id()) + 1);
+        }
+        return next;
+    }
+
+    /**
+     * @return n for a question ID "Qn", or 0 for any other ID.
+     */
+    public static int questionNumber(String questionId) {
+        if (questionId == null || questionId.length() < 2 || questionId.charAt(0) != 'Q') return 0;
+        try {
+            return Math.max(0, Integer.parseInt(questionId.substring(1)));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.fsm.model.codec;
+
+import com.fsm.model.Answer;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import java.util.List;
+
+/**
+ * Reads and writes one element of a response's 'answers' array: { question_id, answer }.
+ * An array 'answer' is a multi-choice answer; any scalar is read as text.
+ */
+public class AnswerCodec implements Codec<Answer> {
+
+    @Override
+    public Answer decode(BsonReader reader, DecoderContext decoderContext) {
+        String questionId = null;
+        String text = null;
+        List<String> choices = null;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "question_id":
+                    questionId = BsonValues.readString(reader);
+                    break;
+                case "answer":
+                    if (reader.getCurrentBsonType() == BsonType.ARRAY) {
+                        choices = BsonValues.readStringList(reader);
+                    } else {
+                        text = BsonValues.readString(reader);
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.readEndDocument();
+
+        return new Answer(questionId, text, choices);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Answer answer, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writer.writeString("question_id", answer.questionId());
+        if (answer.isMultiChoice()) {
+            writer.writeStartArray("answer");
+            for (String choice : answer.choices()) {
+                writer.writeString(choice);
+            }
+            writer.writeEndArray();
+        } else {
+            writer.writeString("answer", answer.text() != null ? answer.text() : "");
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<Answer> getEncoderClass() {
+        return Answer.class;
+    }
+}
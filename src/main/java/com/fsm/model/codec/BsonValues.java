@@ -0,0 +1,93 @@
+package com.fsm.model.codec;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Small reading helpers shared by the model codecs. Values of an unexpected BSON type are
+ * converted where that is unambiguous (numbers to text) and skipped otherwise, so one odd
+ * field never makes a whole document unreadable.
+ */
+final class BsonValues {
+
+    private BsonValues() {
+        // Static helper class, no instances.
+    }
+
+    /**
+     * Reads the current value as a string: strings as-is, numbers and booleans in their text form,
+     * null as null. Anything else is skipped and read as null.
+     */
+    static String readString(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case STRING:
+                return reader.readString();
+            case INT32:
+                return String.valueOf(reader.readInt32());
+            case INT64:
+                return String.valueOf(reader.readInt64());
+            case DOUBLE:
+                double value = reader.readDouble();
+                return value == Math.rint(value) && !Double.isInfinite(value) ? String.valueOf((long) value) : String.valueOf(value);
+            case BOOLEAN:
+                return String.valueOf(reader.readBoolean());
+            case NULL:
+                reader.readNull();
+                return null;
+            default:
+                reader.skipValue();
+                return null;
+        }
+    }
+
+    /**
+     * Reads an array of scalars as strings, dropping nulls and nested documents.
+     */
+    static List<String> readStringList(BsonReader reader) {
+        if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+            reader.skipValue();
+            return new ArrayList<>();
+        }
+        List<String> values = new ArrayList<>();
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String value = readString(reader);
+            if (value != null) values.add(value);
+        }
+        reader.readEndArray();
+        return values;
+    }
+
+    static int readInt(BsonReader reader, int fallback) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32: return reader.readInt32();
+            case INT64: return (int) reader.readInt64();
+            case DOUBLE: return (int) reader.readDouble();
+            default:
+                reader.skipValue();
+                return fallback;
+        }
+    }
+
+    static long readLong(BsonReader reader, long fallback) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32: return reader.readInt32();
+            case INT64: return reader.readInt64();
+            case DOUBLE: return (long) reader.readDouble();
+            default:
+                reader.skipValue();
+                return fallback;
+        }
+    }
+
+    static boolean readBoolean(BsonReader reader, boolean fallback) {
+        if (reader.getCurrentBsonType() == BsonType.BOOLEAN) {
+            return reader.readBoolean();
+        }
+        reader.skipValue();
+        return fallback;
+    }
+}
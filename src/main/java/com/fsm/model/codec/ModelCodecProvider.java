@@ -0,0 +1,54 @@
+package com.fsm.model.codec;
+
+import com.fsm.model.Answer;
+import com.fsm.model.Question;
+import com.fsm.model.Survey;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.util.List;
+
+/**
+ * Supplies the hand-written codecs for the com.fsm.model records.
+ * MongoManager adds this provider to the client's CodecRegistry, so collections can be opened as
+ * e.g. db.getCollection("surveys", Survey.class), and records can be used as values in filters
+ * and updates (Updates.set("questions", List&lt;Question&gt;)).
+ *
+ * Response is not in the shared registry: decoding and encoding it needs one survey's question
+ * dictionaries, so readers and writers of 'responses' open the collection with forResponses(..).
+ */
+public class ModelCodecProvider implements CodecProvider {
+
+    private final QuestionCodec questionCodec = new QuestionCodec();
+    private final AnswerCodec answerCodec = new AnswerCodec();
+    private final SurveyCodec surveyCodec = new SurveyCodec(questionCodec);
+
+    /**
+     * The driver's default registry plus the model codecs.
+     */
+    public static CodecRegistry withDefaults(CodecRegistry defaults) {
+        return CodecRegistries.fromRegistries(defaults, CodecRegistries.fromProviders(new ModelCodecProvider()));
+    }
+
+    /**
+     * The given registry plus a Response codec for one survey, for use with
+     * db.getCollection("responses", Response.class).withCodecRegistry(..).
+     *
+     * @param questions The survey's questions; List.of() is enough to read v1 responses only.
+     */
+    public static CodecRegistry forResponses(CodecRegistry base, List<Question> questions) {
+        ResponseCodec responseCodec = new ResponseCodec(new AnswerCodec(), ResponseFormat.byId(questions));
+        return CodecRegistries.fromRegistries(CodecRegistries.fromCodecs(responseCodec), base);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+        if (clazz == Survey.class) return (Codec<T>) surveyCodec;
+        if (clazz == Question.class) return (Codec<T>) questionCodec;
+        if (clazz == Answer.class) return (Codec<T>) answerCodec;
+        return null;
+    }
+}
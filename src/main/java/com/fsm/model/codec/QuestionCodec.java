@@ -0,0 +1,72 @@
+package com.fsm.model.codec;
+
+import com.fsm.model.Question;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import java.util.List;
+
+/**
+ * Reads and writes one element of a survey's 'questions' array:
+ * { id, text, type, options: [..], isMandatory, codes: [..] }. 'codes' is absent on questions saved
+ * before response format v2 and then defaults to the options.
+ */
+public class QuestionCodec implements Codec<Question> {
+
+    @Override
+    public Question decode(BsonReader reader, DecoderContext decoderContext) {
+        String id = null;
+        String text = null;
+        String type = null;
+        List<String> options = null;
+        boolean mandatory = false;
+        List<String> codes = null;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "id": id = BsonValues.readString(reader); break;
+                case "text": text = BsonValues.readString(reader); break;
+                case "type": type = BsonValues.readString(reader); break;
+                case "options": options = BsonValues.readStringList(reader); break;
+                case "isMandatory": mandatory = BsonValues.readBoolean(reader, false); break;
+                case "codes": codes = BsonValues.readStringList(reader); break;
+                default: reader.skipValue(); break;
+            }
+        }
+        reader.readEndDocument();
+
+        return new Question(id, text, type, options, mandatory, codes);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Question question, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writer.writeString("id", question.id());
+        writer.writeString("text", question.text());
+        writer.writeString("type", question.type());
+        writer.writeStartArray("options");
+        for (String option : question.options()) {
+            writer.writeString(option);
+        }
+        writer.writeEndArray();
+        writer.writeBoolean("isMandatory", question.mandatory());
+        if (!question.codes().isEmpty()) {
+            writer.writeStartArray("codes");
+            for (String code : question.codes()) {
+                writer.writeString(code);
+            }
+            writer.writeEndArray();
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<Question> getEncoderClass() {
+        return Question.class;
+    }
+}
@@ -0,0 +1,162 @@
+package com.fsm.model.codec;
+
+import com.fsm.model.Answer;
+import com.fsm.model.Question;
+import com.fsm.model.Response;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes 'responses' documents: { _id, survey_id, user_id, timestamp, v: 2, a: {..} }.
+ * Answers are decoded straight into Answer records, without an intermediate Document per answer.
+ *
+ * Both storage formats are read (see ResponseFormat); responses are always written as v2. Option
+ * indexes are translated with the question dictionaries given to the constructor. Those belong to one
+ * survey, so a ResponseCodec only reads and writes that survey's responses; the caller, which already
+ * holds the survey definition, builds it through ModelCodecProvider.forResponses. The codec itself
+ * never queries the database (it runs inside the driver, on a connection already in use).
+ */
+public class ResponseCodec implements CollectibleCodec<Response> {
+
+    private final AnswerCodec answerCodec;
+    private final Map<String, Question> questions;
+
+    /**
+     * @param questions The survey's questions by ID (see ResponseFormat.byId). An empty map is enough
+     *                  for reading v1 documents; v2 option indexes would then decode as "#n".
+     */
+    public ResponseCodec(AnswerCodec answerCodec, Map<String, Question> questions) {
+        this.answerCodec = answerCodec;
+        this.questions = Map.copyOf(questions);
+    }
+
+    @Override
+    public Response decode(BsonReader reader, DecoderContext decoderContext) {
+        ObjectId id = null;
+        ObjectId surveyId = null;
+        String userId = null;
+        Date timestamp = null;
+        List<Answer> answers = null;
+        Map<String, Object> compact = null; // v2 'a' values, translated once survey_id is known
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String field = reader.readName();
+            BsonType type = reader.getCurrentBsonType();
+            switch (field) {
+                case "_id":
+                    if (type == BsonType.OBJECT_ID) id = reader.readObjectId();
+                    else reader.skipValue();
+                    break;
+                case "survey_id":
+                    if (type == BsonType.OBJECT_ID) surveyId = reader.readObjectId();
+                    else reader.skipValue();
+                    break;
+                case "user_id":
+                    userId = BsonValues.readString(reader);
+                    break;
+                case "timestamp":
+                    if (type == BsonType.DATE_TIME) timestamp = new Date(reader.readDateTime());
+                    else reader.skipValue();
+                    break;
+                case "answers":
+                    if (type != BsonType.ARRAY) {
+                        reader.skipValue();
+                        break;
+                    }
+                    answers = new ArrayList<>();
+                    reader.readStartArray();
+                    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                        if (reader.getCurrentBsonType() == BsonType.DOCUMENT) {
+                            answers.add(answerCodec.decode(reader, decoderContext));
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.readEndArray();
+                    break;
+                case ResponseFormat.ANSWERS_FIELD:
+                    if (type != BsonType.DOCUMENT) {
+                        reader.skipValue();
+                        break;
+                    }
+                    compact = new LinkedHashMap<>();
+                    reader.readStartDocument();
+                    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                        String questionId = reader.readName();
+                        compact.put(questionId, ResponseFormat.readValue(reader));
+                    }
+                    reader.readEndDocument();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.readEndDocument();
+
+        if (compact != null) {
+            answers = new ArrayList<>(compact.size());
+            for (Map.Entry<String, Object> entry : compact.entrySet()) {
+                answers.add(ResponseFormat.decodeValue(entry.getKey(), entry.getValue(), questions.get(entry.getKey())));
+            }
+        }
+        return new Response(id, surveyId, userId, timestamp, answers);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Response response, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (response.id() != null) writer.writeObjectId("_id", response.id());
+        if (response.surveyId() != null) writer.writeObjectId("survey_id", response.surveyId());
+        if (response.userId() != null) writer.writeString("user_id", response.userId());
+        if (response.timestamp() != null) writer.writeDateTime("timestamp", response.timestamp().getTime());
+        writer.writeInt32(ResponseFormat.VERSION_FIELD, ResponseFormat.V2);
+        writer.writeStartDocument(ResponseFormat.ANSWERS_FIELD);
+        for (Answer answer : response.answers()) {
+            Object value = ResponseFormat.encodeValue(answer, questions.get(answer.questionId()));
+            if (value == null) continue; // Sparse: unanswered questions are not stored
+            writer.writeName(answer.questionId());
+            ResponseFormat.writeValue(writer, value);
+        }
+        writer.writeEndDocument();
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<Response> getEncoderClass() {
+        return Response.class;
+    }
+
+    // --- CollectibleCodec: lets insertOne/insertMany report the generated _id ---
+
+    @Override
+    public Response generateIdIfAbsentFromDocument(Response response) {
+        if (response.id() != null) return response;
+        return new Response(new ObjectId(), response.surveyId(), response.userId(), response.timestamp(), response.answers());
+    }
+
+    @Override
+    public boolean documentHasId(Response response) {
+        return response.id() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Response response) {
+        if (response.id() == null) throw new IllegalStateException("The response does not have an _id");
+        return new BsonObjectId(response.id());
+    }
+}
@@ -0,0 +1,162 @@
+package com.fsm.model.codec;
+
+import com.fsm.model.Answer;
+import com.fsm.model.Question;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The two storage formats of a response's answers, and the rules to convert between them.
+ *
+ * v1 (original): answers: [ { question_id: "Q1", answer: "Yes" }, { question_id: "Q2", answer: "" }, .. ]
+ *    One sub-document per question, including unanswered ones; every value is a string or string array.
+ *
+ * v2 (compact):  v: 2, a: { Q1: 0, Q4: [1, 3], Q5: 4, Q7: "free text" }
+ *    - sparse: unanswered questions are left out;
+ *    - ratings are int32;
+ *    - chosen options are int32 indexes into the question's 'codes' dictionary (see Question.codes).
+ *    A label that is not in the dictionary (e.g. an option removed while a form was open) is kept as
+ *    its string, so the conversion never loses an answer. Readers accept both formats.
+ */
+public final class ResponseFormat {
+
+    public static final String VERSION_FIELD = "v";
+    public static final String ANSWERS_FIELD = "a";
+    public static final String LEGACY_ANSWERS_FIELD = "answers";
+    public static final int V2 = 2;
+
+    private ResponseFormat() {
+        // Static helper class, no instances.
+    }
+
+    /**
+     * Indexes the survey's questions by ID for the lookups below.
+     */
+    public static Map<String, Question> byId(List<Question> questions) {
+        Map<String, Question> map = new HashMap<>();
+        for (Question question : questions) {
+            if (question.id() != null) map.put(question.id(), question);
+        }
+        return map;
+    }
+
+    // --- Encoding ---
+
+    /**
+     * The stored v2 value of one answer: Integer, String or List of Integer/String. Null when the answer
+     * is empty and is left out of the document.
+     *
+     * @param question The answered question, or null if unknown (the value is then stored as text).
+     */
+    public static Object encodeValue(Answer answer, Question question) {
+        if (answer.isMultiChoice()) {
+            if (answer.choices().isEmpty()) return null;
+            List<Object> codes = new ArrayList<>(answer.choices().size());
+            for (String choice : answer.choices()) {
+                codes.add(encodeLabel(choice, question));
+            }
+            return codes;
+        }
+
+        String text = answer.text();
+        if (text == null || text.isEmpty()) return null;
+        if (question == null) return text;
+        if (question.isSingleChoice() || question.isMultiChoice()) return encodeLabel(text, question);
+        if (question.isRating()) {
+            try {
+                return Integer.parseInt(text.trim());
+            } catch (NumberFormatException e) {
+                return text; // Kept as entered rather than dropped
+            }
+        }
+        return text;
+    }
+
+    private static Object encodeLabel(String label, Question question) {
+        int code = question != null ? question.codeOf(label) : -1;
+        return code >= 0 ? (Object) code : label;
+    }
+
+    /**
+     * Builds the sparse v2 'a' sub-document (for code paths that write Documents, e.g. the journal).
+     */
+    public static Document encodeAnswers(List<Answer> answers, List<Question> questions) {
+        Map<String, Question> questionsById = byId(questions);
+        Document encoded = new Document();
+        for (Answer answer : answers) {
+            Object value = encodeValue(answer, questionsById.get(answer.questionId()));
+            if (value != null) encoded.append(answer.questionId(), value);
+        }
+        return encoded;
+    }
+
+    static void writeValue(BsonWriter writer, Object value) {
+        if (value instanceof Integer) {
+            writer.writeInt32((Integer) value);
+        } else if (value instanceof List) {
+            writer.writeStartArray();
+            for (Object item : (List<?>) value) {
+                writeValue(writer, item);
+            }
+            writer.writeEndArray();
+        } else {
+            writer.writeString(String.valueOf(value));
+        }
+    }
+
+    // --- Decoding ---
+
+    /**
+     * Reads the current v2 value: Integer, String or List of those. Other types are read as text.
+     */
+    public static Object readValue(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32:
+                return reader.readInt32();
+            case ARRAY: {
+                List<Object> items = new ArrayList<>();
+                reader.readStartArray();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    Object item = readValue(reader);
+                    if (item != null) items.add(item);
+                }
+                reader.readEndArray();
+                return items;
+            }
+            default:
+                return BsonValues.readString(reader);
+        }
+    }
+
+    /**
+     * Turns a stored v2 value back into an Answer with option labels.
+     *
+     * @param question The question, or null if it is no longer in the survey (indexes then show as "#n").
+     */
+    public static Answer decodeValue(String questionId, Object value, Question question) {
+        if (value instanceof List) {
+            List<String> choices = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                choices.add(decodeLabel(item, question));
+            }
+            return Answer.ofChoices(questionId, choices);
+        }
+        if (value instanceof Integer && question != null && (question.isSingleChoice() || question.isMultiChoice())) {
+            return Answer.ofText(questionId, decodeLabel(value, question));
+        }
+        return Answer.ofText(questionId, value != null ? value.toString() : "");
+    }
+
+    private static String decodeLabel(Object item, Question question) {
+        if (!(item instanceof Integer)) return String.valueOf(item);
+        String label = question != null ? question.labelOf((Integer) item) : null;
+        return label != null ? label : "#" + item;
+    }
+}
@@ -0,0 +1,136 @@
+package com.fsm.model.codec;
+
+import com.fsm.model.Question;
+import com.fsm.model.Survey;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.BsonObjectId;
+import org.bson.BsonValue;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reads and writes 'surveys' documents. Unknown fields are skipped, missing ones get defaults,
+ * so the same codec serves full definitions and projected listing rows.
+ */
+public class SurveyCodec implements CollectibleCodec<Survey> {
+
+    private final QuestionCodec questionCodec;
+
+    public SurveyCodec(QuestionCodec questionCodec) {
+        this.questionCodec = questionCodec;
+    }
+
+    @Override
+    public Survey decode(BsonReader reader, DecoderContext decoderContext) {
+        ObjectId id = null;
+        String name = null;
+        String status = null;
+        String creator = null;
+        Date dateCreated = null;
+        int numQuestions = -1;
+        long version = 0;
+        int nextQuestionId = 0;
+        List<Question> questions = null;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id":
+                    if (reader.getCurrentBsonType() == BsonType.OBJECT_ID) id = reader.readObjectId();
+                    else reader.skipValue();
+                    break;
+                case "name": name = BsonValues.readString(reader); break;
+                case "status": status = BsonValues.readString(reader); break;
+                case "creator": creator = BsonValues.readString(reader); break;
+                case "dateCreated":
+                    if (reader.getCurrentBsonType() == BsonType.DATE_TIME) dateCreated = new Date(reader.readDateTime());
+                    else reader.skipValue();
+                    break;
+                case "numQuestions": numQuestions = BsonValues.readInt(reader, -1); break;
+                case "version": version = BsonValues.readLong(reader, 0); break;
+                case "nextQuestionId": nextQuestionId = BsonValues.readInt(reader, 0); break;
+                case "questions":
+                    if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+                        reader.skipValue();
+                        break;
+                    }
+                    questions = new ArrayList<>();
+                    reader.readStartArray();
+                    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                        if (reader.getCurrentBsonType() == BsonType.DOCUMENT) {
+                            questions.add(questionCodec.decode(reader, decoderContext));
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.readEndArray();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.readEndDocument();
+
+        // The questions array is the truth when we have it; the stored counter may lag behind
+        if (questions != null) numQuestions = questions.size();
+        return new Survey(id, name, status, creator, dateCreated, Math.max(0, numQuestions), version, nextQuestionId, questions);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Survey survey, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (survey.id() != null) writer.writeObjectId("_id", survey.id());
+        writeStringOrNull(writer, "name", survey.name());
+        writeStringOrNull(writer, "status", survey.status());
+        writeStringOrNull(writer, "creator", survey.creator());
+        if (survey.dateCreated() != null) writer.writeDateTime("dateCreated", survey.dateCreated().getTime());
+        writer.writeInt32("numQuestions", survey.questions().isEmpty() ? survey.numQuestions() : survey.questions().size());
+        writer.writeInt64("version", survey.version());
+        if (survey.nextQuestionId() > 0) writer.writeInt32("nextQuestionId", survey.nextQuestionId());
+        writer.writeStartArray("questions");
+        for (Question question : survey.questions()) {
+            questionCodec.encode(writer, question, encoderContext);
+        }
+        writer.writeEndArray();
+        writer.writeEndDocument();
+    }
+
+    private static void writeStringOrNull(BsonWriter writer, String name, String value) {
+        if (value != null) writer.writeString(name, value);
+        else writer.writeNull(name);
+    }
+
+    @Override
+    public Class<Survey> getEncoderClass() {
+        return Survey.class;
+    }
+
+    // --- CollectibleCodec: lets insertOne report the generated _id ---
+
+    @Override
+    public Survey generateIdIfAbsentFromDocument(Survey survey) {
+        if (survey.id() != null) return survey;
+        return new Survey(new ObjectId(), survey.name(), survey.status(), survey.creator(), survey.dateCreated(),
+                survey.numQuestions(), survey.version(), survey.nextQuestionId(), survey.questions());
+    }
+
+    @Override
+    public boolean documentHasId(Survey survey) {
+        return survey.id() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Survey survey) {
+        if (survey.id() == null) throw new IllegalStateException("The survey does not have an _id");
+        return new BsonObjectId(survey.id());
+    }
+}
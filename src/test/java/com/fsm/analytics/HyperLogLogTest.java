@@ -0,0 +1,74 @@
+package com.fsm.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    private static void assertWithin(double tolerance, long expected, long estimate) {
+        double error = Math.abs(estimate - expected) / (double) expected;
+        assertTrue(error <= tolerance, "estimate " + estimate + " for " + expected + " is off by " + error);
+    }
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    @Test
+    void smallCountsAreNearlyExact() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            sketch.add("answer " + i);
+        }
+        assertWithin(0.02, 100, sketch.estimate());
+    }
+
+    @Test
+    void duplicatesAreNotCounted() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 1000; i++) {
+                sketch.add("answer " + i);
+            }
+        }
+        assertWithin(0.03, 1000, sketch.estimate());
+    }
+
+    @Test
+    void estimateIsWithinAFewPercentAtOneHundredThousand() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add("respondent-" + i + "@example.org");
+        }
+        assertWithin(0.03, 100_000, sketch.estimate());
+    }
+
+    @Test
+    void mergeEstimatesTheUnion() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (int i = 0; i < 60_000; i++) {
+            first.add("value " + i);
+        }
+        for (int i = 40_000; i < 100_000; i++) {
+            second.add("value " + i);
+        }
+        first.merge(second);
+        assertWithin(0.03, 100_000, first.estimate());
+    }
+
+    @Test
+    void mergeRejectsOtherPrecisions() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(14).merge(new HyperLogLog(12)));
+    }
+
+    @Test
+    void precisionIsValidated() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(19));
+    }
+}
@@ -0,0 +1,86 @@
+package com.fsm.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTest {
+
+    private static void add(SpaceSaving sketch, String value, int times) {
+        for (int i = 0; i < times; i++) {
+            sketch.add(value);
+        }
+    }
+
+    @Test
+    void countsAreExactBelowCapacity() {
+        SpaceSaving sketch = new SpaceSaving(10);
+        add(sketch, "yes", 7);
+        add(sketch, "no", 3);
+        add(sketch, "maybe", 5);
+
+        List<SpaceSaving.Entry> top = sketch.top(10);
+
+        assertEquals(List.of("yes", "maybe", "no"), top.stream().map(SpaceSaving.Entry::getValue).toList());
+        assertEquals(List.of(7L, 5L, 3L), top.stream().map(SpaceSaving.Entry::getCount).toList());
+        assertTrue(top.stream().allMatch(entry -> entry.getError() == 0));
+    }
+
+    @Test
+    void topReturnsAtMostK() {
+        SpaceSaving sketch = new SpaceSaving(10);
+        add(sketch, "a", 3);
+        add(sketch, "b", 2);
+        add(sketch, "c", 1);
+
+        assertEquals(2, sketch.top(2).size());
+        assertEquals(3, sketch.entries().size());
+    }
+
+    @Test
+    void frequentValuesSurviveALongTailOfRareOnes() {
+        SpaceSaving sketch = new SpaceSaving(20);
+        int rare = 0;
+        // 1000 "good" and 500 "bad" among 5000 one-off answers, interleaved
+        for (int i = 0; i < 6500; i++) {
+            if (i % 13 == 0 || i % 13 == 7) sketch.add("good");
+            else if (i % 13 == 3) sketch.add("bad");
+            else sketch.add("one-off " + rare++);
+        }
+
+        List<SpaceSaving.Entry> top = sketch.top(2);
+
+        assertEquals("good", top.get(0).getValue());
+        assertEquals("bad", top.get(1).getValue());
+        // The count is an upper bound, off by at most the error
+        for (SpaceSaving.Entry entry : top) {
+            long trueCount = entry.getValue().equals("good") ? 1000 : 500;
+            assertTrue(entry.getCount() >= trueCount);
+            assertTrue(entry.getCount() - entry.getError() <= trueCount);
+        }
+    }
+
+    @Test
+    void evictedCountIsKeptAsError() {
+        SpaceSaving sketch = new SpaceSaving(2);
+        add(sketch, "a", 3);
+        add(sketch, "b", 2);
+        sketch.add("c"); // replaces "b"
+
+        SpaceSaving.Entry c = sketch.entries().stream()
+                .filter(entry -> entry.getValue().equals("c"))
+                .findFirst().orElseThrow();
+        assertEquals(2, sketch.entries().size());
+        assertEquals(3, c.getCount());
+        assertEquals(2, c.getError());
+    }
+
+    @Test
+    void capacityMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSaving(0));
+    }
+}
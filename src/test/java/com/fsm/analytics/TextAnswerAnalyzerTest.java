@@ -0,0 +1,52 @@
+package com.fsm.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TextAnswerAnalyzerTest {
+
+    @Test
+    void normalizesCaseAccentsAndPunctuation() {
+        assertEquals("yes", TextAnswerAnalyzer.normalize("  YES! "));
+        assertEquals("cafe au lait", TextAnswerAnalyzer.normalize("Café   au lait."));
+        assertEquals("", TextAnswerAnalyzer.normalize(null));
+    }
+
+    @Test
+    void sameAnswerWrittenDifferentlyCountsOnce() {
+        TextAnswerAnalyzer analyzer = new TextAnswerAnalyzer(5);
+        analyzer.add("Yes");
+        analyzer.add(" yes.");
+        analyzer.add("YES");
+        analyzer.add("No");
+        analyzer.add("   ");
+
+        TextAnswerAnalyzer.Result result = analyzer.result();
+
+        assertEquals(4, result.getAnswerCount());
+        assertEquals(2, result.getDistinctAnswers());
+        assertEquals("yes", result.getTopAnswers().get(0).getValue());
+        assertEquals(3, result.getTopAnswers().get(0).getCount());
+    }
+
+    @Test
+    void unreliableEntriesDoNotCrowdOutReliableOnes() {
+        // topK 1 keeps 10 counters. "great" is seen 5 times; then one-off answers churn through the
+        // other 9 counters until the newest one inherits a count of 5 and ranks first (count 5, error 4)
+        TextAnswerAnalyzer analyzer = new TextAnswerAnalyzer(1);
+        for (int i = 0; i < 5; i++) {
+            analyzer.add("great");
+        }
+        for (int i = 0; i < 9 + 27 + 1; i++) {
+            analyzer.add("one-off " + i);
+        }
+
+        List<SpaceSaving.Entry> top = analyzer.result().getTopAnswers();
+
+        assertEquals(1, top.size());
+        assertEquals("great", top.get(0).getValue());
+    }
+}
@@ -0,0 +1,38 @@
+package com.fsm.database;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseFormatMigrationTest {
+
+    @Test
+    void boundCarriesTheGivenSecond() {
+        ObjectId bound = ResponseFormatMigration.smallestObjectIdAt(1_700_000_000L);
+
+        assertEquals(1_700_000_000, bound.getTimestamp());
+    }
+
+    @Test
+    void boundSortsBeforeEveryIdOfThatSecond() {
+        long seconds = 1_700_000_000L;
+        ObjectId bound = ResponseFormatMigration.smallestObjectIdAt(seconds);
+        ObjectId sameSecond = new ObjectId(new Date(seconds * 1000));
+        ObjectId previousSecond = new ObjectId(new Date((seconds - 1) * 1000));
+
+        assertTrue(bound.compareTo(sameSecond) < 0);
+        assertTrue(bound.compareTo(previousSecond) > 0);
+    }
+
+    @Test
+    void boundHandlesTimestampsAboveSignedIntRange() {
+        // ObjectId timestamps are unsigned 32-bit seconds (until 2106)
+        long seconds = 0xF000_0000L;
+
+        assertEquals(seconds, Integer.toUnsignedLong(ResponseFormatMigration.smallestObjectIdAt(seconds).getTimestamp()));
+    }
+}
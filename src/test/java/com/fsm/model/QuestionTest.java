@@ -0,0 +1,80 @@
+package com.fsm.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class QuestionTest {
+
+    private static Question choice(List<String> options) {
+        return new Question("Q1", "Favourite colour?", "SINGLE_CHOICE", options, false);
+    }
+
+    @Test
+    void codesDefaultToTheOptions() {
+        Question question = choice(List.of("Red", "Green", "Blue"));
+
+        assertEquals(List.of("Red", "Green", "Blue"), question.codes());
+        assertEquals(1, question.codeOf("Green"));
+        assertEquals("Blue", question.labelOf(2));
+    }
+
+    @Test
+    void unknownLabelsAndIndexesAreReported() {
+        Question question = choice(List.of("Red", "Green"));
+
+        assertEquals(-1, question.codeOf("Purple"));
+        assertNull(question.labelOf(2));
+        assertNull(question.labelOf(-1));
+    }
+
+    @Test
+    void reorderingOptionsKeepsEveryIndex() {
+        Question stored = choice(List.of("Red", "Green", "Blue"));
+        Question edited = choice(List.of("Blue", "Red", "Green")).withCodesFrom(stored);
+
+        assertEquals(List.of("Blue", "Red", "Green"), edited.options());
+        assertEquals(List.of("Red", "Green", "Blue"), edited.codes());
+        assertEquals(0, edited.codeOf("Red"));
+    }
+
+    @Test
+    void renamedOptionIsAppendedAndTheOldLabelKeepsItsIndex() {
+        Question stored = choice(List.of("Red", "Green"));
+        Question edited = choice(List.of("Crimson", "Green")).withCodesFrom(stored);
+
+        assertEquals(List.of("Red", "Green", "Crimson"), edited.codes());
+        // Answers stored as 0 still mean what the respondent chose
+        assertEquals("Red", edited.labelOf(0));
+        assertEquals(2, edited.codeOf("Crimson"));
+    }
+
+    @Test
+    void removedOptionStaysInTheDictionary() {
+        Question stored = choice(List.of("Red", "Green", "Blue"));
+        Question edited = choice(List.of("Red", "Blue")).withCodesFrom(stored);
+
+        assertEquals(List.of("Red", "Green", "Blue"), edited.codes());
+        assertEquals("Green", edited.labelOf(1));
+    }
+
+    @Test
+    void mergingTwiceIsStable() {
+        Question stored = choice(List.of("Red", "Green"));
+        Question once = choice(List.of("Green", "Blue")).withCodesFrom(stored);
+        Question twice = choice(List.of("Green", "Blue")).withCodesFrom(once);
+
+        assertEquals(List.of("Red", "Green", "Blue"), twice.codes());
+    }
+
+    @Test
+    void withoutPreviousVersionTheQuestionIsUnchanged() {
+        Question question = choice(List.of("Red", "Green"));
+
+        assertSame(question, question.withCodesFrom(null));
+    }
+}
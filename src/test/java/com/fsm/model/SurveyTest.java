@@ -0,0 +1,46 @@
+package com.fsm.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SurveyTest {
+
+    private static Question question(String id) {
+        return new Question(id, "Question " + id, "TEXT_INPUT", List.of(), false);
+    }
+
+    private static Survey survey(int nextQuestionId, List<Question> questions) {
+        return new Survey(null, "Customer survey", "Active", "alice", null, questions.size(), 0, nextQuestionId, questions);
+    }
+
+    @Test
+    void questionNumberParsesOnlyQPrefixedIds() {
+        assertEquals(12, Survey.questionNumber("Q12"));
+        assertEquals(0, Survey.questionNumber("Q"));
+        assertEquals(0, Survey.questionNumber("QX"));
+        assertEquals(0, Survey.questionNumber("3f2a-uuid"));
+        assertEquals(0, Survey.questionNumber(null));
+    }
+
+    @Test
+    void deletedIdsAreNotIssuedAgain() {
+        // Q5 was deleted: only Q1..Q4 remain, but the counter remembers Q5
+        Survey survey = survey(6, List.of(question("Q1"), question("Q2"), question("Q3"), question("Q4")));
+
+        assertEquals(6, survey.nextQuestionNumber());
+    }
+
+    @Test
+    void surveysWithoutCounterContinueAfterTheHighestId() {
+        assertEquals(4, survey(0, List.of(question("Q1"), question("Q3"))).nextQuestionNumber());
+        assertEquals(1, survey(0, List.of()).nextQuestionNumber());
+    }
+
+    @Test
+    void counterNeverFallsBehindTheQuestions() {
+        assertEquals(8, survey(3, List.of(question("Q7"))).nextQuestionNumber());
+    }
+}
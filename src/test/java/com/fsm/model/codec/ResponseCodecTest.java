@@ -0,0 +1,162 @@
+package com.fsm.model.codec;
+
+import com.fsm.model.Answer;
+import com.fsm.model.Question;
+import com.fsm.model.Response;
+import org.bson.BsonArray;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt32;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ResponseCodecTest {
+
+    private static final Question COLOUR = new Question("Q1", "Colour?", "SINGLE_CHOICE",
+            List.of("Red", "Green", "Blue"), true);
+    private static final Question TOPPINGS = new Question("Q2", "Toppings?", "MULTI_CHOICE",
+            List.of("Cheese", "Ham", "Olives"), false);
+    private static final Question RATING = new Question("Q3", "Rate us", "RATING", List.of(), false);
+    private static final Question COMMENT = new Question("Q4", "Comments", "TEXT_INPUT", List.of(), false);
+    private static final List<Question> QUESTIONS = List.of(COLOUR, TOPPINGS, RATING, COMMENT);
+
+    private static final ObjectId ID = new ObjectId("65a0f0000000000000000001");
+    private static final ObjectId SURVEY_ID = new ObjectId("65a0f0000000000000000002");
+    private static final Date TIMESTAMP = new Date(1_700_000_000_000L);
+
+    private static Response decode(BsonDocument document, List<Question> questions) {
+        ResponseCodec codec = new ResponseCodec(new AnswerCodec(), ResponseFormat.byId(questions));
+        return codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+
+    private static BsonDocument encode(Response response, List<Question> questions) {
+        ResponseCodec codec = new ResponseCodec(new AnswerCodec(), ResponseFormat.byId(questions));
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), response, EncoderContext.builder().build());
+        return document;
+    }
+
+    private static BsonDocument v1Answer(String questionId, String answer) {
+        return new BsonDocument("question_id", new BsonString(questionId)).append("answer", new BsonString(answer));
+    }
+
+    private static BsonDocument v1Document() {
+        return new BsonDocument("_id", new BsonObjectId(ID))
+                .append("survey_id", new BsonObjectId(SURVEY_ID))
+                .append("user_id", new BsonString("alice"))
+                .append("timestamp", new BsonDateTime(TIMESTAMP.getTime()))
+                .append("answers", new BsonArray(List.of(
+                        v1Answer("Q1", "Green"),
+                        new BsonDocument("question_id", new BsonString("Q2"))
+                                .append("answer", new BsonArray(List.of(new BsonString("Olives"), new BsonString("Ham")))),
+                        v1Answer("Q3", "4.5"),
+                        v1Answer("Q4", "Friendly staff"))));
+    }
+
+    private static final List<Answer> V1_ANSWERS = List.of(
+            Answer.ofText("Q1", "Green"),
+            Answer.ofChoices("Q2", List.of("Olives", "Ham")),
+            Answer.ofText("Q3", "4.5"),
+            Answer.ofText("Q4", "Friendly staff"));
+
+    @Test
+    void readsV1Documents() {
+        Response response = decode(v1Document(), QUESTIONS);
+
+        assertEquals(new Response(ID, SURVEY_ID, "alice", TIMESTAMP, V1_ANSWERS), response);
+    }
+
+    @Test
+    void readsV1DocumentsWithoutQuestionDictionaries() {
+        // The migration reads old documents before it knows which survey they belong to
+        assertEquals(V1_ANSWERS, decode(v1Document(), List.of()).answers());
+    }
+
+    @Test
+    void writesV2WithIndexesAndNoLegacyField() {
+        BsonDocument document = encode(new Response(ID, SURVEY_ID, "alice", TIMESTAMP, V1_ANSWERS), QUESTIONS);
+
+        assertEquals(new BsonInt32(ResponseFormat.V2), document.get(ResponseFormat.VERSION_FIELD));
+        assertFalse(document.containsKey(ResponseFormat.LEGACY_ANSWERS_FIELD));
+        assertEquals(new BsonDocument("Q1", new BsonInt32(1))
+                .append("Q2", new BsonArray(List.of(new BsonInt32(2), new BsonInt32(1))))
+                .append("Q3", new BsonString("4.5"))
+                .append("Q4", new BsonString("Friendly staff")),
+                document.getDocument(ResponseFormat.ANSWERS_FIELD));
+    }
+
+    @Test
+    void v2RoundTrip() {
+        Response response = new Response(ID, SURVEY_ID, "alice", TIMESTAMP, List.of(
+                Answer.ofText("Q1", "Blue"),
+                Answer.ofChoices("Q2", List.of("Cheese", "Pineapple")),
+                Answer.ofText("Q3", "5"),
+                Answer.ofText("Q4", "Ok")));
+
+        assertEquals(response, decode(encode(response, QUESTIONS), QUESTIONS));
+    }
+
+    @Test
+    void skippedAnswersAreNotStored() {
+        Response response = new Response(ID, SURVEY_ID, "alice", TIMESTAMP, List.of(
+                Answer.ofText("Q1", "Red"),
+                Answer.ofText("Q4", "")));
+
+        BsonDocument document = encode(response, QUESTIONS);
+
+        assertEquals(new BsonDocument("Q1", new BsonInt32(0)), document.getDocument(ResponseFormat.ANSWERS_FIELD));
+        assertEquals(List.of(Answer.ofText("Q1", "Red")), decode(document, QUESTIONS).answers());
+    }
+
+    @Test
+    void migratedDocumentReadsBackTheSameAnswers() {
+        // What ResponseFormatMigration does: read v1, then $set v and a from encodeAnswers, $unset answers
+        BsonDocument document = v1Document();
+        Response legacy = decode(document, List.of());
+        Document compact = ResponseFormat.encodeAnswers(legacy.answers(), QUESTIONS);
+
+        document.remove(ResponseFormat.LEGACY_ANSWERS_FIELD);
+        document.append(ResponseFormat.VERSION_FIELD, new BsonInt32(ResponseFormat.V2));
+        document.append(ResponseFormat.ANSWERS_FIELD, compact.toBsonDocument());
+
+        assertEquals(legacy, decode(document, QUESTIONS));
+    }
+
+    @Test
+    void renamedAndReorderedOptionsStillDecodeToTheChosenLabels() {
+        BsonDocument stored = encode(new Response(ID, SURVEY_ID, "alice", TIMESTAMP, V1_ANSWERS), QUESTIONS);
+
+        Question colour = new Question("Q1", "Colour?", "SINGLE_CHOICE", List.of("Blue", "Emerald", "Red"), true)
+                .withCodesFrom(COLOUR);
+        Question toppings = new Question("Q2", "Toppings?", "MULTI_CHOICE", List.of("Olives", "Cheese"), false)
+                .withCodesFrom(TOPPINGS);
+
+        Response response = decode(stored, List.of(colour, toppings, RATING, COMMENT));
+
+        assertEquals(V1_ANSWERS, response.answers());
+    }
+
+    @Test
+    void unknownQuestionKeepsStoredValues() {
+        // Without the definition a single int may as well be a rating; only choice lists are indexes
+        BsonDocument document = new BsonDocument(ResponseFormat.VERSION_FIELD, new BsonInt32(ResponseFormat.V2))
+                .append(ResponseFormat.ANSWERS_FIELD, new BsonDocument("Q1", new BsonInt32(1))
+                        .append("Q2", new BsonArray(List.of(new BsonInt32(0), new BsonString("Other")))));
+
+        assertEquals(List.of(Answer.ofText("Q1", "1"), Answer.ofChoices("Q2", List.of("#0", "Other"))),
+                decode(document, List.of()).answers());
+    }
+}
@@ -0,0 +1,106 @@
+package com.fsm.model.codec;
+
+import com.fsm.model.Answer;
+import com.fsm.model.Question;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseFormatTest {
+
+    private static final Question COLOUR = new Question("Q1", "Colour?", "SINGLE_CHOICE",
+            List.of("Red", "Green", "Blue"), true);
+    private static final Question TOPPINGS = new Question("Q2", "Toppings?", "MULTI_CHOICE",
+            List.of("Cheese", "Ham", "Olives"), false);
+    private static final Question RATING = new Question("Q3", "Rate us", "RATING", List.of(), false);
+    private static final Question COMMENT = new Question("Q4", "Comments", "TEXT_INPUT", List.of(), false);
+
+    @Test
+    void singleChoiceIsStoredAsItsIndex() {
+        assertEquals(2, ResponseFormat.encodeValue(Answer.ofText("Q1", "Blue"), COLOUR));
+        assertEquals(Answer.ofText("Q1", "Blue"), ResponseFormat.decodeValue("Q1", 2, COLOUR));
+    }
+
+    @Test
+    void multiChoiceIsStoredAsAListOfIndexes() {
+        Object stored = ResponseFormat.encodeValue(Answer.ofChoices("Q2", List.of("Olives", "Cheese")), TOPPINGS);
+
+        assertEquals(List.of(2, 0), stored);
+        assertEquals(Answer.ofChoices("Q2", List.of("Olives", "Cheese")), ResponseFormat.decodeValue("Q2", stored, TOPPINGS));
+    }
+
+    @Test
+    void labelMissingFromTheDictionaryIsKeptAsText() {
+        Object stored = ResponseFormat.encodeValue(Answer.ofChoices("Q2", List.of("Ham", "Pineapple")), TOPPINGS);
+
+        assertEquals(List.of(1, "Pineapple"), stored);
+        assertEquals(Answer.ofChoices("Q2", List.of("Ham", "Pineapple")), ResponseFormat.decodeValue("Q2", stored, TOPPINGS));
+        assertEquals("Purple", ResponseFormat.encodeValue(Answer.ofText("Q1", "Purple"), COLOUR));
+    }
+
+    @Test
+    void indexMissingFromTheDictionaryDecodesAsPlaceholder() {
+        assertEquals(Answer.ofText("Q1", "#7"), ResponseFormat.decodeValue("Q1", 7, COLOUR));
+        assertEquals(Answer.ofChoices("Q2", List.of("#1")), ResponseFormat.decodeValue("Q2", List.of(1), null));
+    }
+
+    @Test
+    void reorderedOptionsDecodeToTheOriginalLabels() {
+        Object stored = ResponseFormat.encodeValue(Answer.ofText("Q1", "Green"), COLOUR);
+        Question reordered = new Question("Q1", "Colour?", "SINGLE_CHOICE", List.of("Blue", "Green", "Red"), true)
+                .withCodesFrom(COLOUR);
+
+        assertEquals(Answer.ofText("Q1", "Green"), ResponseFormat.decodeValue("Q1", stored, reordered));
+    }
+
+    @Test
+    void renamedOptionDecodesToTheLabelThatWasChosen() {
+        Object stored = ResponseFormat.encodeValue(Answer.ofText("Q1", "Red"), COLOUR);
+        Question renamed = new Question("Q1", "Colour?", "SINGLE_CHOICE", List.of("Crimson", "Green", "Blue"), true)
+                .withCodesFrom(COLOUR);
+
+        assertEquals(Answer.ofText("Q1", "Red"), ResponseFormat.decodeValue("Q1", stored, renamed));
+        assertEquals(3, ResponseFormat.encodeValue(Answer.ofText("Q1", "Crimson"), renamed));
+    }
+
+    @Test
+    void integerRatingIsStoredAsInt() {
+        assertEquals(4, ResponseFormat.encodeValue(Answer.ofText("Q3", " 4 "), RATING));
+        assertEquals(Answer.ofText("Q3", "4"), ResponseFormat.decodeValue("Q3", 4, RATING));
+    }
+
+    @Test
+    void nonIntegerRatingIsKeptAsEntered() {
+        assertEquals("4.5", ResponseFormat.encodeValue(Answer.ofText("Q3", "4.5"), RATING));
+        assertEquals("good", ResponseFormat.encodeValue(Answer.ofText("Q3", "good"), RATING));
+        assertEquals(Answer.ofText("Q3", "4.5"), ResponseFormat.decodeValue("Q3", "4.5", RATING));
+    }
+
+    @Test
+    void textAndUnknownQuestionsAreStoredAsText() {
+        assertEquals("Great service", ResponseFormat.encodeValue(Answer.ofText("Q4", "Great service"), COMMENT));
+        assertEquals("Blue", ResponseFormat.encodeValue(Answer.ofText("Q9", "Blue"), null));
+    }
+
+    @Test
+    void emptyAnswersAreLeftOut() {
+        assertNull(ResponseFormat.encodeValue(Answer.ofText("Q1", ""), COLOUR));
+        assertNull(ResponseFormat.encodeValue(Answer.ofText("Q4", null), COMMENT));
+        assertNull(ResponseFormat.encodeValue(Answer.ofChoices("Q2", List.of()), TOPPINGS));
+    }
+
+    @Test
+    void encodedAnswersAreSparse() {
+        Document encoded = ResponseFormat.encodeAnswers(List.of(
+                Answer.ofText("Q1", "Red"),
+                Answer.ofChoices("Q2", List.of()),
+                Answer.ofText("Q3", "5"),
+                Answer.ofText("Q4", "")), List.of(COLOUR, TOPPINGS, RATING, COMMENT));
+
+        assertEquals(new Document("Q1", 0).append("Q3", 5), encoded);
+    }
+}